@@ -0,0 +1,174 @@
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * 点击和重置的内存分配检查
+ * 用与 MineSweeper 相同的组件（Revealer、BoardEvents、BoardView、Minimap、SpectatorHub、计数器文字）模拟整局游戏：
+ * 随机揭示和标记直到胜利或踩雷，然后换下一个棋盘重置，统计预热之后事件线程上分配的字节数。
+ * <p>
+ * 棋盘在游戏中由 BoardPool 的后台线程生成，这里也在测量之前生成好，不计入分配。
+ * 练习模式的操作日志需要保存历史，不在检查范围内。
+ * JIT 编译完成、替换代码时可能去优化，逃逸分析消除掉的对象此时会被真正分配出来，
+ * 因此预热到一整轮都没有新的编译为止再测量；测量若干轮，最后一轮分配了内存时以状态码 1 退出，
+ * 只在少数路径上发生的分配（如大数字缓存未命中）也会被发现。
+ * 可以作为回归检查运行（不需要显示器），-XX:-BackgroundCompilation 让编译在预热期间同步完成：
+ * java -Djava.awt.headless=true -XX:-BackgroundCompilation AllocationBenchmark [行数 列数 地雷数]
+ * </p>
+ */
+public class AllocationBenchmark implements IntConsumer {
+    /**
+     * 每轮预热的局数和最多预热的轮数，以及测量的轮数和每轮局数
+     */
+    private static final int WARMUP_GAMES = 200;
+    private static final int MAX_WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 5;
+    private static final int MEASURED_GAMES = 200;
+
+    /**
+     * 轮流使用的预生成棋盘数
+     */
+    private static final int BOARDS = 16;
+
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final Topology topology;
+    private final BoardGenerator.Board[] boards;
+    private final BoardEvents boardEvents = new BoardEvents();
+    private final Revealer revealer = new Revealer();
+    private final Random random = new Random(1);
+
+    private CellGrid cells;
+    private int remainingMines;
+    private long clicks;
+    private long resets;
+
+    /**
+     * 最近一次更新的计数器文字，防止被优化掉
+     */
+    private String counter;
+
+    private AllocationBenchmark(int rows, int cols, int mines) {
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        topology = Topology.of(Topology.Kind.SQUARE, rows, cols);
+        BoardView boardView = new BoardView(rows, cols, false);
+        new Minimap(boardView);
+        boardEvents.addListener(boardView);
+        boardEvents.addListener(new SpectatorHub());
+        Random seeds = new Random(rows * 31L + cols);
+        MineProbability probability = new MineProbability();
+        boards = new BoardGenerator.Board[BOARDS];
+        for (int b = 0; b < BOARDS; b++) {
+            boards[b] = BoardGenerator.generate(topology, mines, BoardGenerator.Mode.SAFE_START, seeds,
+                    probability, () -> false);
+        }
+    }
+
+    public static void main(String[] args) {
+        int rows = args.length >= 3 ? Integer.parseInt(args[0]) : 16;
+        int cols = args.length >= 3 ? Integer.parseInt(args[1]) : 30;
+        int mines = args.length >= 3 ? Integer.parseInt(args[2]) : 99;
+        AllocationBenchmark benchmark = new AllocationBenchmark(rows, cols, mines);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+        if (vm != null && Boolean.parseBoolean(vm.getVMOption("BackgroundCompilation").getValue())) {
+            System.err.println("提示：没有使用 -XX:-BackgroundCompilation，后台编译可能在测量期间替换代码并分配内存");
+        }
+
+        // 预热到一整轮没有新的编译为止
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        for (int round = 0; round < MAX_WARMUP_ROUNDS; round++) {
+            long compiling = jit.getTotalCompilationTime();
+            benchmark.play(WARMUP_GAMES);
+            if (round > 0 && jit.getTotalCompilationTime() == compiling) {
+                break;
+            }
+        }
+        long allocated = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            long clicksBefore = benchmark.clicks;
+            long resetsBefore = benchmark.resets;
+            long before = threads.getThreadAllocatedBytes(thread);
+            benchmark.play(MEASURED_GAMES);
+            allocated = threads.getThreadAllocatedBytes(thread) - before;
+            long clicks = benchmark.clicks - clicksBefore;
+            long resets = benchmark.resets - resetsBefore;
+            System.out.printf("%d x %d / %d 第 %d 轮：%d 局，%d 次点击，分配 %d 字节（每次操作 %.2f 字节）%n",
+                    rows, cols, mines, round, resets, clicks, allocated, (double) allocated / (clicks + resets));
+        }
+        if (allocated > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 连续进行若干局
+     */
+    private void play(int games) {
+        for (int g = 0; g < games; g++) {
+            reset(boards[(int) (resets % BOARDS)]);
+            boolean over = false;
+            while (!over) {
+                int cell = random.nextInt(rows * cols);
+                if (cells.isRevealed(cell)) {
+                    continue;
+                }
+                clicks++;
+                if (random.nextInt(8) == 0) {
+                    // 右键：切换旗帜
+                    boolean flag = !cells.isFlagged(cell);
+                    revealer.setFlagged(cell, flag);
+                    setLook(cell, flag ? BoardView.FLAG : BoardView.HIDDEN);
+                    remainingMines += flag ? -1 : 1;
+                    counter = MineSweeper.counterText(remainingMines);
+                    boardEvents.endMove(remainingMines, BoardEvents.PLAYING);
+                } else if (cells.isFlagged(cell)) {
+                    continue;
+                } else if (cells.isMine(cell)) {
+                    setLook(cell, BoardView.EXPLODED);
+                    boardEvents.endMove(remainingMines, BoardEvents.LOST);
+                    over = true;
+                } else {
+                    revealer.reveal(cell, this);
+                    over = cells.getRevealedCount() == rows * cols - mines;
+                    boardEvents.endMove(remainingMines, over ? BoardEvents.WON : BoardEvents.PLAYING);
+                }
+            }
+        }
+    }
+
+    /**
+     * 与 MineSweeper.resetGame 的普通重置相同，棋盘来自预生成的棋盘
+     */
+    private void reset(BoardGenerator.Board board) {
+        resets++;
+        board.cells.clearState();
+        remainingMines = mines;
+        counter = MineSweeper.counterText(remainingMines);
+        cells = board.cells;
+        revealer.reset(cells, topology, board.openings);
+        boardEvents.beginGame(Topology.Kind.SQUARE, rows, cols, mines);
+        revealer.reveal(board.startRow * cols + board.startCol, this);
+        boardEvents.endMove(remainingMines, BoardEvents.PLAYING);
+    }
+
+    /**
+     * 单元格被揭示，与 MineSweeper.cellRevealed 相同
+     */
+    @Override
+    public void accept(int cell) {
+        setLook(cell, BoardView.revealed(cells.getAdjacentMines(cell)));
+    }
+
+    private void setLook(int cell, byte look) {
+        boardEvents.cellChanged(cell, look);
+    }
+}
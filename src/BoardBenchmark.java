@@ -0,0 +1,262 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 棋盘存储性能对比工具
+ * 在不同尺寸的棋盘上比较二维数组实现与游戏使用的 CellGrid 实现的三项操作：
+ * 计算相邻地雷数、展开空白区、胜利判定，并校验两者结果一致。
+ * 同时比较经典方格的 Topology 邻居表与原先带越界检查的九宫格扫描。
+ * <p>
+ * 二维数组一侧使用与 MineSweeper 原先相同的逐格九宫格扫描；
+ * 展开空白区使用与 revealCell 规则相同的显式栈版本，因为递归版本在大棋盘上会栈溢出。
+ * CellGrid 计算相邻地雷数的耗时包含从 boolean[][] 写入地雷的开销；展开空白区使用 Revealer，
+ * 空白区标注与游戏一样在生成棋盘时完成，不计入展开的耗时。
+ * 可以在命令行运行：java BoardBenchmark [行数 列数 地雷密度]
+ * </p>
+ */
+public class BoardBenchmark {
+    /**
+     * 每项测量的预热轮数
+     */
+    private static final int WARMUP = 20;
+
+    /**
+     * 每项测量的计时轮数，取平均值
+     */
+    private static final int ROUNDS = 10;
+
+    private BoardBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 3) {
+            run(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Double.parseDouble(args[2]));
+            return;
+        }
+        run(30, 30, 0.2);
+        run(500, 500, 0.2);
+        run(2000, 2000, 0.2);
+        run(2000, 2000, 0.05);
+    }
+
+    private static void run(int rows, int cols, double density) {
+        Random random = new Random(rows * 31L + cols);
+        boolean[][] mines = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                mines[i][j] = random.nextDouble() < density;
+            }
+        }
+        System.out.printf("%d x %d, 地雷密度 %.2f%n", rows, cols, density);
+
+        // 相邻地雷数
+        int[][] arrayCounts = new int[rows][cols];
+        double arrayAdjacency = time(() -> countArray(mines, arrayCounts));
+        Topology topology = Topology.of(Topology.Kind.SQUARE, rows, cols);
+        CellGrid[] holder = new CellGrid[1];
+        double gridAdjacency = time(() -> holder[0] = fromMines(mines, topology));
+        CellGrid grid = holder[0];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!mines[i][j] && arrayCounts[i][j] != grid.getAdjacentMines(i, j)) {
+                    throw new IllegalStateException("相邻地雷数不一致: " + i + "," + j);
+                }
+            }
+        }
+        report("相邻地雷数", "CellGrid", arrayAdjacency, gridAdjacency);
+
+        // 经典方格的邻居表与原先的九宫格扫描对比
+        int[][] tableCounts = new int[rows][cols];
+        double tableAdjacency = time(() -> topology.countAdjacentMines(mines, tableCounts));
+        for (int i = 0; i < rows; i++) {
+            if (!Arrays.equals(arrayCounts[i], tableCounts[i])) {
+                throw new IllegalStateException("邻居表相邻地雷数不一致: 第 " + i + " 行");
+            }
+        }
+        report("相邻地雷数", "邻居表", arrayAdjacency, tableAdjacency);
+
+        // 展开最大的空白区：从第一个空白单元格开始
+        int startRow = -1;
+        int startCol = -1;
+        for (int i = 0; i < rows && startRow < 0; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!mines[i][j] && arrayCounts[i][j] == 0) {
+                    startRow = i;
+                    startCol = j;
+                    break;
+                }
+            }
+        }
+        if (startRow >= 0) {
+            final int r = startRow;
+            final int c = startCol;
+            int[] arrayOpened = new int[1];
+            double arrayReveal = time(() -> {
+                boolean[][] fresh = new boolean[rows][cols];
+                long start = System.nanoTime();
+                arrayOpened[0] = revealArray(mines, arrayCounts, fresh, r, c);
+                return System.nanoTime() - start;
+            });
+            Openings openings = Openings.label(grid, topology);
+            Revealer revealer = new Revealer();
+            int[] gridOpened = new int[1];
+            double gridReveal = time(() -> {
+                grid.clearState();
+                revealer.reset(grid, topology, openings);
+                long start = System.nanoTime();
+                gridOpened[0] = revealer.reveal(r * cols + c, null);
+                return System.nanoTime() - start;
+            });
+            if (arrayOpened[0] != gridOpened[0]) {
+                throw new IllegalStateException("展开数量不一致: " + arrayOpened[0] + " / " + gridOpened[0]);
+            }
+            report("展开空白区（" + gridOpened[0] + " 格）", "CellGrid", arrayReveal, gridReveal);
+        }
+
+        // 胜利判定
+        boolean[][] revealed = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                revealed[i][j] = grid.isRevealed(i, j);
+            }
+        }
+        int mineCount = countRevealed(mines);
+        boolean[] arrayWon = new boolean[1];
+        double arrayWin = time(() -> arrayWon[0] = countRevealed(revealed) == rows * cols - mineCount);
+        boolean[] gridWon = new boolean[1];
+        double gridWin = time(() -> gridWon[0] = grid.getRevealedCount() == rows * cols - mineCount);
+        if (arrayWon[0] != gridWon[0]) {
+            throw new IllegalStateException("胜利判定不一致");
+        }
+        report("胜利判定", "CellGrid", arrayWin, gridWin);
+        System.out.println();
+    }
+
+    /**
+     * 需要单独计时一部分代码的测量任务，返回实际耗时（纳秒）
+     */
+    private interface TimedTask {
+        long run();
+    }
+
+    private static double time(Runnable task) {
+        return time(() -> {
+            long start = System.nanoTime();
+            task.run();
+            return System.nanoTime() - start;
+        });
+    }
+
+    /**
+     * 预热后多次运行任务
+     *
+     * @return 平均耗时（毫秒）
+     */
+    private static double time(TimedTask task) {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+        long total = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            total += task.run();
+        }
+        return total / (ROUNDS * 1e6);
+    }
+
+    private static void report(String name, String candidate, double arrayMillis, double candidateMillis) {
+        System.out.printf("  %-24s 数组 %9.3f ms   %s %9.3f ms   加速 %6.1fx%n",
+                name, arrayMillis, candidate, candidateMillis, arrayMillis / Math.max(candidateMillis, 1e-6));
+    }
+
+    /**
+     * 把地雷写入新的 CellGrid 并计算相邻地雷数
+     */
+    private static CellGrid fromMines(boolean[][] mines, Topology topology) {
+        int cols = mines[0].length;
+        CellGrid grid = new CellGrid(mines.length, cols);
+        for (int i = 0; i < mines.length; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (mines[i][j]) {
+                    grid.setMine(i * cols + j);
+                }
+            }
+        }
+        grid.computeCounts(topology);
+        return grid;
+    }
+
+    /**
+     * 与 MineSweeper 原先的 calculateAdjacentMines 相同的逐格扫描
+     */
+    private static void countArray(boolean[][] mines, int[][] adjacentMines) {
+        int rows = mines.length;
+        int cols = mines[0].length;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (!mines[i][j]) {
+                    int count = 0;
+                    for (int di = -1; di <= 1; di++) {
+                        for (int dj = -1; dj <= 1; dj++) {
+                            int ni = i + di;
+                            int nj = j + dj;
+                            if (ni >= 0 && ni < rows && nj >= 0 && nj < cols && mines[ni][nj]) {
+                                count++;
+                            }
+                        }
+                    }
+                    adjacentMines[i][j] = count;
+                }
+            }
+        }
+    }
+
+    /**
+     * 与 revealCell 规则相同的展开，用显式栈代替递归
+     *
+     * @return 新揭示的单元格数量
+     */
+    private static int revealArray(boolean[][] mines, int[][] adjacentMines, boolean[][] revealed,
+                                   int row, int col) {
+        int rows = mines.length;
+        int cols = mines[0].length;
+        ArrayDeque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{row, col});
+        int opened = 0;
+        while (!stack.isEmpty()) {
+            int[] cell = stack.pop();
+            int i = cell[0];
+            int j = cell[1];
+            if (revealed[i][j]) continue;
+            revealed[i][j] = true;
+            opened++;
+            if (adjacentMines[i][j] == 0) {
+                for (int di = -1; di <= 1; di++) {
+                    for (int dj = -1; dj <= 1; dj++) {
+                        int ni = i + di;
+                        int nj = j + dj;
+                        if (ni >= 0 && ni < rows && nj >= 0 && nj < cols && !revealed[ni][nj]) {
+                            stack.push(new int[]{ni, nj});
+                        }
+                    }
+                }
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * 与 checkWinCondition 相同的逐格统计，也用于统计地雷数
+     */
+    private static int countRevealed(boolean[][] revealed) {
+        int count = 0;
+        for (boolean[] row : revealed) {
+            for (boolean cell : row) {
+                if (cell) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
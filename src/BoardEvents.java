@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * 对局的单元格变化通知
+ * <p>
+ * 游戏在一步操作（一次左键、右键、撤销、重做或开局揭示）中改变单元格外观时只调用 cellChanged 记下变化，
+ * 操作结束时调用 endMove，本步的所有变化作为一批（Batch）一次通知给每个监听者：
+ * 单元格编号、原外观和新外观保存在基本类型数组中，没有每个单元格一次的回调，也不为每个单元格创建对象，
+ * 一次展开一百万个单元格也只有一次通知。外观没有改变的调用会被忽略；同一单元格在一步中先后改变多次时
+ * 在一批中出现多次，按顺序应用即可得到最终状态。缓冲区在大面积展开后保留，之后的操作不再分配内存。
+ * </p>
+ * <p>
+ * 监听者可以选择两种投递方式：
+ * - 同步：在发布方（事件线程）上依次回调，收到的 Batch 是发布方复用的缓冲区，只在回调期间有效，不分配内存
+ * - 异步：通过指定的 Executor 回调，收到的是本步变化的不可变副本，所有异步监听者共用同一份副本；
+ *   Executor 应当按提交顺序执行（如单线程执行器或 SwingUtilities::invokeLater），否则各批的先后可能颠倒
+ * 添加和移除监听者都在发布方线程上进行，回调中移除自己不影响本次通知的其他监听者。
+ * </p>
+ */
+public final class BoardEvents {
+    /**
+     * 对局状态：进行中、胜利、失败
+     */
+    public static final int PLAYING = 0;
+    public static final int WON = 1;
+    public static final int LOST = 2;
+
+    /**
+     * 单元格变化的监听者
+     */
+    public interface Listener {
+        /**
+         * 开始新的一局，所有单元格为未揭示
+         */
+        default void gameStarted(Topology.Kind kind, int rows, int cols, int mines) {
+        }
+
+        /**
+         * 一步操作结束
+         *
+         * @param batch 本步改变的单元格以及操作结束后的剩余地雷数和对局状态；同步投递时只在回调期间有效
+         */
+        void cellsChanged(Batch batch);
+    }
+
+    /**
+     * 一步操作改变的单元格，按改变的先后排列
+     */
+    public static final class Batch {
+        private int size;
+        private int[] cells;
+        private byte[] oldLooks;
+        private byte[] looks;
+        private int remainingMines;
+        private int state;
+
+        Batch(int capacity) {
+            cells = new int[capacity];
+            oldLooks = new byte[capacity];
+            looks = new byte[capacity];
+        }
+
+        /**
+         * 改变的单元格数
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 第 i 个变化的单元格编号（行 * 列数 + 列）
+         */
+        public int cell(int i) {
+            return cells[i];
+        }
+
+        /**
+         * 第 i 个变化之前的外观代码
+         */
+        public byte oldLook(int i) {
+            return oldLooks[i];
+        }
+
+        /**
+         * 第 i 个变化之后的外观代码（BoardView 的外观代码）
+         */
+        public byte look(int i) {
+            return looks[i];
+        }
+
+        public int getRemainingMines() {
+            return remainingMines;
+        }
+
+        /**
+         * 对局状态：PLAYING、WON 或 LOST
+         */
+        public int getState() {
+            return state;
+        }
+
+        private void add(int cell, byte oldLook, byte look) {
+            if (size == cells.length) {
+                int capacity = size * 2;
+                cells = Arrays.copyOf(cells, capacity);
+                oldLooks = Arrays.copyOf(oldLooks, capacity);
+                looks = Arrays.copyOf(looks, capacity);
+            }
+            cells[size] = cell;
+            oldLooks[size] = oldLook;
+            looks[size] = look;
+            size++;
+        }
+
+        private Batch copy() {
+            Batch copy = new Batch(0);
+            copy.size = size;
+            copy.cells = Arrays.copyOf(cells, size);
+            copy.oldLooks = Arrays.copyOf(oldLooks, size);
+            copy.looks = Arrays.copyOf(looks, size);
+            copy.remainingMines = remainingMines;
+            copy.state = state;
+            return copy;
+        }
+    }
+
+    /**
+     * 已注册的监听者，executor 为 null 时同步投递
+     */
+    private static final class Registration {
+        final Listener listener;
+        final Executor executor;
+
+        Registration(Listener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * 监听者数组，添加和移除时整体替换，通知时遍历当时的数组
+     */
+    private Registration[] registrations = new Registration[0];
+
+    /**
+     * 当前对局每个单元格的外观，用于忽略没有变化的调用并提供原外观
+     */
+    private byte[] looks = new byte[0];
+
+    /**
+     * 本步尚未通知的变化
+     */
+    private final Batch pending = new Batch(256);
+
+    /**
+     * 上一次通知的剩余地雷数和状态，单元格和状态都没有变化时不通知
+     */
+    private int lastRemaining;
+    private int lastState;
+
+    /**
+     * 添加同步投递的监听者
+     */
+    public void addListener(Listener listener) {
+        addListener(listener, null);
+    }
+
+    /**
+     * 添加监听者
+     *
+     * @param listener 监听者
+     * @param executor 异步投递使用的执行器，为 null 时在发布方线程上同步投递
+     */
+    public void addListener(Listener listener, Executor executor) {
+        Registration[] current = registrations;
+        Registration[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Registration(listener, executor);
+        registrations = updated;
+    }
+
+    /**
+     * 移除监听者，已经提交给执行器的通知仍会送达
+     */
+    public void removeListener(Listener listener) {
+        Registration[] current = registrations;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].listener == listener) {
+                Registration[] updated = new Registration[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                registrations = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 开始新的一局并通知监听者，尚未结束的操作被丢弃
+     */
+    public void beginGame(Topology.Kind kind, int rows, int cols, int mines) {
+        if (looks.length == rows * cols) {
+            Arrays.fill(looks, BoardView.HIDDEN);
+        } else {
+            looks = new byte[rows * cols];
+        }
+        pending.size = 0;
+        lastRemaining = mines;
+        lastState = PLAYING;
+        for (Registration registration : registrations) {
+            Listener listener = registration.listener;
+            if (registration.executor == null) {
+                listener.gameStarted(kind, rows, cols, mines);
+            } else {
+                registration.executor.execute(() -> listener.gameStarted(kind, rows, cols, mines));
+            }
+        }
+    }
+
+    /**
+     * 当前对局中单元格的外观，包括本步尚未通知的变化
+     */
+    public byte getLook(int cell) {
+        return looks[cell];
+    }
+
+    /**
+     * 记录单元格外观变化，在 endMove 时随本步一起通知
+     *
+     * @param cell 单元格编号（行 * 列数 + 列）
+     * @param look BoardView 的外观代码
+     */
+    public void cellChanged(int cell, byte look) {
+        byte old = looks[cell];
+        if (old == look) {
+            return;
+        }
+        looks[cell] = look;
+        pending.add(cell, old, look);
+    }
+
+    /**
+     * 结束一步操作，把本步的所有变化作为一批通知监听者
+     *
+     * @param remainingMines 剩余地雷数
+     * @param state 对局状态：PLAYING、WON 或 LOST
+     */
+    public void endMove(int remainingMines, int state) {
+        if (pending.size == 0 && remainingMines == lastRemaining && state == lastState) {
+            return;
+        }
+        pending.remainingMines = remainingMines;
+        pending.state = state;
+        lastRemaining = remainingMines;
+        lastState = state;
+
+        Batch copy = null;
+        for (Registration registration : registrations) {
+            if (registration.executor == null) {
+                registration.listener.cellsChanged(pending);
+            } else {
+                if (copy == null) {
+                    copy = pending.copy();
+                }
+                Batch batch = copy;
+                Listener listener = registration.listener;
+                registration.executor.execute(() -> listener.cellsChanged(batch));
+            }
+        }
+        pending.size = 0;
+    }
+}
@@ -0,0 +1,454 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 棋盘生成
+ * 由随机种子确定地雷位置，相同的种子、尺寸和地雷数总是得到相同的棋盘，
+ * 游戏、对局历史和机器人比赛因此可以用种子复现同一个棋盘。
+ * <p>
+ * 除完全随机的棋盘外还支持两种开局方式，它们都从随机种子中筛选满足条件的棋盘，生成代价较高：
+ * - 安全开局：棋盘至少有一个空白单元格，开局时自动揭示离中心最近的空白区
+ * - 无猜：在安全开局的基础上，从该空白区出发只靠推理（不需要猜测）就能完成整局
+ * 起始单元格由棋盘本身确定，因此只凭种子和开局方式仍然可以复现整局。
+ * </p>
+ * <p>
+ * 单元格不少于 TILED_CELLS 的大棋盘按块并行放置地雷：
+ * - 每个单元格的随机键由种子和单元格编号经 SplitMix64 混合得到（基于计数器的随机数），
+ *   每块只计算自己范围内的键，不需要共享或按顺序推进的随机数生成器
+ * - 键最小的 count 个单元格是地雷，等价于从所有单元格中均匀地选出 count 个：
+ *   第 count 小的键几乎一定落在按地雷比例预估的窄窗口中，第一遍各块统计小于窗口和落在窗口中的键数，
+ *   确认窗口包含它（否则加宽重来）；第二遍各块直接放置小于窗口的单元格，并收集窗口中的键，
+ *   排序后取出剩余的个数，窗口中通常只有几万个键
+ * 结果只取决于种子，与分块方式和处理器个数无关。小棋盘仍使用原来的顺序放置，已有种子得到的棋盘不变。
+ * </p>
+ */
+public final class BoardGenerator {
+    /**
+     * 开局方式
+     */
+    public enum Mode {
+        RANDOM("随机"),
+        SAFE_START("安全开局"),
+        NO_GUESS("无猜");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 判定概率为 0 或 1 时允许的浮点误差
+     */
+    private static final double CERTAIN = 1e-9;
+
+    /**
+     * 按开局方式筛选棋盘时最多尝试的种子数
+     */
+    private static final int MAX_ATTEMPTS = 10000;
+
+    /**
+     * 按块并行放置地雷的最少单元格数（约 2048 × 2048），以及每块的单元格数
+     */
+    private static final int TILED_CELLS = 1 << 22;
+    private static final int TILE_CELLS = 1 << 20;
+
+    /**
+     * 第 count 小的键的预估窗口的半宽（标准差的倍数），窗口没有包含它时加宽重新统计
+     */
+    private static final double WINDOW_SIGMAS = 10;
+
+    /**
+     * 生成好的棋盘，包括相邻地雷数、空白区标注和 3BV
+     */
+    public static final class Board {
+        final long seed;
+
+        /**
+         * 地雷位置和相邻地雷数，全部未揭示
+         */
+        final CellGrid cells;
+
+        /**
+         * 空白区标注，非经典方格棋盘为 null
+         */
+        final Openings openings;
+        final int bbbv;
+
+        /**
+         * 开局时自动揭示的单元格，随机开局时为 -1
+         */
+        final int startRow;
+        final int startCol;
+
+        Board(long seed, CellGrid cells, Openings openings, int bbbv, int startRow, int startCol) {
+            this.seed = seed;
+            this.cells = cells;
+            this.openings = openings;
+            this.bbbv = bbbv;
+            this.startRow = startRow;
+            this.startCol = startCol;
+        }
+
+        /**
+         * 估算一个棋盘占用的内存（字节）
+         */
+        static long estimateBytes(int rows, int cols) {
+            return CellGrid.estimateBytes(rows, cols) + Openings.estimateBytes(rows, cols);
+        }
+    }
+
+    private BoardGenerator() {
+    }
+
+    /**
+     * 按开局方式生成棋盘，从随机数生成器中依次取种子，直到得到满足条件的棋盘
+     * 尝试 MAX_ATTEMPTS 个种子仍不满足时（例如地雷过密，不可能有空白单元格），退回随机开局。
+     *
+     * @param topology 棋盘的邻居关系
+     * @param mineCount 地雷数
+     * @param mode 开局方式
+     * @param random 种子来源
+     * @param probability 无猜判定使用的概率计算器，调用方在同一线程中复用
+     * @param cancelled 返回 true 时放弃生成
+     * @return 生成的棋盘，放弃时返回 null
+     */
+    public static Board generate(Topology topology, int mineCount, Mode mode, Random random,
+                                 MineProbability probability, BooleanSupplier cancelled) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Board board = generate(topology, mineCount, mode, random.nextLong(), probability);
+            if (board != null) {
+                return board;
+            }
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+        }
+        return generate(topology, mineCount, Mode.RANDOM, random.nextLong(), probability);
+    }
+
+    /**
+     * 用指定种子生成棋盘
+     *
+     * @return 生成的棋盘，种子得到的棋盘不满足开局方式的条件时返回 null
+     */
+    public static Board generate(Topology topology, int mineCount, Mode mode, long seed,
+                                 MineProbability probability) {
+        int cols = topology.getCols();
+        CellGrid cells = new CellGrid(topology.getRows(), cols);
+        placeMines(cells, mineCount, seed);
+        cells.computeCounts(topology);
+
+        int startRow = -1;
+        int startCol = -1;
+        if (mode != Mode.RANDOM) {
+            int start = findStart(cells);
+            if (start < 0) {
+                return null;
+            }
+            startRow = start / cols;
+            startCol = start % cols;
+            if (mode == Mode.NO_GUESS && !isSolvable(cells, mineCount, topology, start, probability)) {
+                return null;
+            }
+        }
+        Openings openings = Openings.label(cells, topology);
+        int bbbv = openings != null ? openings.get3BV() : BoardMetrics.compute3BV(cells, topology);
+        return new Board(seed, cells, openings, bbbv, startRow, startCol);
+    }
+
+    /**
+     * 找到离棋盘中心最近的空白单元格（周围没有地雷），没有时返回 -1
+     * 安全开局和无猜模式以它作为起始单元格，重放校验也用它核对记录中的起始单元格。
+     */
+    static int findStart(CellGrid cells) {
+        int rows = cells.getRows();
+        int cols = cells.getCols();
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (cells.isZero(i * cols + j)) {
+                    long di = 2L * i - (rows - 1);
+                    long dj = 2L * j - (cols - 1);
+                    long distance = di * di + dj * dj;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = i * cols + j;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 判断从起始单元格出发能否只靠推理完成整局
+     * 先反复使用单个数字的两条基本规则；卡住时再用精确概率，概率为 0 的单元格一定安全、为 1 的一定是地雷；
+     * 两者都没有进展时说明必须猜测。判定过程在 cells 上揭示单元格，返回前恢复为全部未揭示。
+     */
+    static boolean isSolvable(CellGrid cells, int mineCount, Topology topology, int start,
+                              MineProbability probability) {
+        try {
+            return solve(cells, mineCount, topology, start, probability);
+        } finally {
+            cells.clearState();
+        }
+    }
+
+    private static boolean solve(CellGrid cells, int mineCount, Topology topology, int start,
+                                 MineProbability probability) {
+        int rows = cells.getRows();
+        int cols = cells.getCols();
+        Revealer revealer = new Revealer();
+        revealer.reset(cells, topology, null);
+        revealer.reveal(start, null);
+        int target = rows * cols - mineCount;
+        probability.clear();
+        // 推理确定的地雷用旗帜位记录
+        while (cells.getRevealedCount() < target) {
+            int progress = 0;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int cell = i * cols + j;
+                    int number = cells.getAdjacentMines(cell);
+                    if (!cells.isRevealed(cell) || number == 0) {
+                        continue;
+                    }
+                    int[] offsets = topology.cellOffsets(i, j);
+                    int hidden = 0;
+                    int flagged = 0;
+                    for (int offset : offsets) {
+                        if (cells.isFlagged(cell + offset)) {
+                            flagged++;
+                        } else if (!cells.isRevealed(cell + offset)) {
+                            hidden++;
+                        }
+                    }
+                    if (hidden == 0) {
+                        continue;
+                    }
+                    boolean safe = number == flagged;
+                    if (!safe && number - flagged != hidden) {
+                        continue;
+                    }
+                    for (int offset : offsets) {
+                        int neighbour = cell + offset;
+                        if (!cells.isCovered(neighbour)) {
+                            continue;
+                        }
+                        if (safe) {
+                            revealer.reveal(neighbour, null);
+                        } else {
+                            cells.setFlagged(neighbour, true);
+                        }
+                        progress++;
+                    }
+                }
+            }
+            if (progress > 0) {
+                continue;
+            }
+
+            double[][] p = probability.compute(cells, mineCount, topology);
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int cell = i * cols + j;
+                    if (!cells.isCovered(cell) || Double.isNaN(p[i][j])) {
+                        continue;
+                    }
+                    if (p[i][j] < CERTAIN) {
+                        revealer.reveal(cell, null);
+                        progress++;
+                    } else if (p[i][j] > 1 - CERTAIN) {
+                        cells.setFlagged(cell, true);
+                        progress++;
+                    }
+                }
+            }
+            if (progress == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在棋盘上随机放置地雷，棋盘应当没有地雷
+     * 单元格不少于 TILED_CELLS 时按块并行放置。
+     *
+     * @param cells 棋盘，输出
+     * @param count 地雷数
+     * @param seed 随机种子
+     */
+    public static void placeMines(CellGrid cells, int count, long seed) {
+        int rows = cells.getRows();
+        int cols = cells.getCols();
+        if ((long) rows * cols >= TILED_CELLS) {
+            placeTiled(rows * cols, count, seed, cells::setMine);
+            return;
+        }
+        Random random = new Random(seed);
+        int minesPlaced = 0;
+        while (minesPlaced < count) {
+            int cell = random.nextInt(rows) * cols + random.nextInt(cols);
+            if (!cells.isMine(cell)) {
+                cells.setMine(cell);
+                minesPlaced++;
+            }
+        }
+    }
+
+    /**
+     * 与 placeMines(CellGrid, int, long) 相同的放置顺序，结果按 行 * 列数 + 列 存入一维数组
+     *
+     * @param mines 地雷位置，长度为 rows * cols，输出
+     * @param rows 行数
+     * @param cols 列数
+     * @param count 地雷数
+     * @param seed 随机种子
+     */
+    public static void placeMines(boolean[] mines, int rows, int cols, int count, long seed) {
+        if ((long) rows * cols >= TILED_CELLS) {
+            placeTiled(rows * cols, count, seed, cell -> mines[cell] = true);
+            return;
+        }
+        Random random = new Random(seed);
+        int minesPlaced = 0;
+        while (minesPlaced < count) {
+            int cell = random.nextInt(rows) * cols + random.nextInt(cols);
+            if (!mines[cell]) {
+                mines[cell] = true;
+                minesPlaced++;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 按块并行放置
+    // ------------------------------------------------------------------
+
+    /**
+     * 选出随机键最小的 count 个单元格作为地雷
+     *
+     * @param cellCount 单元格数
+     * @param count 地雷数，不超过单元格数
+     * @param seed 随机种子
+     * @param setMine 放置地雷，会在多个线程中以不同的单元格调用
+     */
+    private static void placeTiled(int cellCount, int count, long seed, IntConsumer setMine) {
+        long stream = mix(seed);
+        int tiles = (cellCount + TILE_CELLS - 1) / TILE_CELLS;
+
+        // 第一遍：统计各块中小于 low 和落在 [low, high) 中的键，直到窗口包含第 count 小的键
+        double fraction = (double) count / cellCount;
+        double margin = WINDOW_SIGMAS * Math.sqrt(fraction * (1 - fraction) / cellCount) + 16.0 / cellCount;
+        long low;
+        long high;
+        int[] below = new int[tiles];
+        int[] inWindow = new int[tiles];
+        int belowTotal;
+        int windowTotal;
+        while (true) {
+            low = keyAt(fraction - margin);
+            high = keyAt(fraction + margin);
+            long lowKey = low;
+            long highKey = high;
+            IntStream.range(0, tiles).parallel().forEach(t -> {
+                int end = tileEnd(cellCount, t);
+                int smaller = 0;
+                int window = 0;
+                for (int cell = t * TILE_CELLS; cell < end; cell++) {
+                    // 比较结果直接相加，不产生难以预测的分支
+                    long key = key(stream, cell);
+                    smaller += (int) ((key - lowKey) >>> 63);
+                    window += (int) ((key - highKey) >>> 63);
+                }
+                below[t] = smaller;
+                inWindow[t] = window - smaller;
+            });
+            belowTotal = 0;
+            windowTotal = 0;
+            for (int t = 0; t < tiles; t++) {
+                belowTotal += below[t];
+                windowTotal += inWindow[t];
+            }
+            if (belowTotal <= count && count <= belowTotal + windowTotal) {
+                break;
+            }
+            margin *= 4;
+        }
+
+        // 第二遍：放置小于 low 的键，收集窗口中的键
+        long lowKey = low;
+        long highKey = high;
+        long[][] candidates = new long[tiles][];
+        IntStream.range(0, tiles).parallel().forEach(t -> {
+            long[] keys = new long[inWindow[t]];
+            int size = 0;
+            int end = tileEnd(cellCount, t);
+            for (int cell = t * TILE_CELLS; cell < end; cell++) {
+                long key = key(stream, cell);
+                if (key < lowKey) {
+                    setMine.accept(cell);
+                } else if (key < highKey) {
+                    keys[size++] = key;
+                }
+            }
+            candidates[t] = keys;
+        });
+
+        // 键的低位就是单元格编号，排序后取最小的几个
+        long[] keys = new long[windowTotal];
+        int offset = 0;
+        for (long[] tileKeys : candidates) {
+            System.arraycopy(tileKeys, 0, keys, offset, tileKeys.length);
+            offset += tileKeys.length;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count - belowTotal; i++) {
+            setMine.accept((int) (keys[i] & Integer.MAX_VALUE));
+        }
+    }
+
+    private static int tileEnd(int cellCount, int tile) {
+        return (int) Math.min(cellCount, (long) (tile + 1) * TILE_CELLS);
+    }
+
+    /**
+     * 单元格的随机键：第 62 到 31 位是随机数，低 31 位是单元格编号，因此各不相同，随机数相同时编号小的在前
+     */
+    private static long key(long stream, int cell) {
+        return (mix(stream + cell * 0x9E3779B97F4A7C15L) >>> 32) << 31 | cell;
+    }
+
+    /**
+     * 随机部分占比为 fraction 处的键，超出 [0, 1] 时取两端
+     */
+    private static long keyAt(double fraction) {
+        if (fraction <= 0) {
+            return 0;
+        }
+        if (fraction >= 1) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (fraction * 0x1p32) << 31;
+    }
+
+    /**
+     * SplitMix64 的混合函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,287 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 把棋盘导出为 PNG 图片，用于报告和问题反馈
+ * <p>
+ * 大棋盘的图片远超单个 BufferedImage 能容纳的像素数，因此不在内存中生成整张图片：
+ * - 每种外观的单元格先用 BoardView 的绘制方法（包括 IconManager 的旗帜和地雷图标）绘制成 pitch × pitch 的图块
+ * - 按像素行逐行输出：每一行由各单元格图块的对应行拼接而成，每次拼接 TILE_CELLS 个单元格写入压缩流，
+ *   不需要保存完整的一行
+ * - 压缩数据每满 CHUNK_SIZE 字节写成一个 IDAT 块
+ * 内存占用只与单元格间距有关，与棋盘尺寸无关；不需要显示器，可以在 headless 模式下运行。
+ * </p>
+ * <p>
+ * 命令行：java -Djava.awt.headless=true BoardImage 输出文件 行数 列数 地雷数 种子 [棋盘类型 [单元格间距]]
+ * 导出由种子生成的棋盘的答案（所有安全单元格已揭示、地雷标记为旗帜）。
+ * </p>
+ */
+public final class BoardImage {
+    /**
+     * 默认的单元格间距（像素），与棋盘视图的默认大小相同
+     */
+    public static final int DEFAULT_PITCH = (int) BoardView.DEFAULT_PITCH;
+
+    /**
+     * 自动选择单元格间距时图片的最大像素数
+     */
+    public static final long MAX_PIXELS = 1L << 28;
+
+    /**
+     * 每次拼接写入压缩流的单元格数
+     */
+    private static final int TILE_CELLS = 256;
+
+    /**
+     * IDAT 块的最大数据长度
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * 单元格外观的来源，导出时按行、列顺序读取，每个单元格读取 pitch 次
+     */
+    public interface LookSource {
+        /**
+         * @return BoardView 的外观代码
+         */
+        byte lookAt(int row, int col);
+    }
+
+    private BoardImage() {
+    }
+
+    /**
+     * 选择单元格间距：不超过默认间距，并使图片不超过 MAX_PIXELS 个像素，最小为 1
+     *
+     * @param rows 行数
+     * @param cols 列数
+     * @param hex 是否按六边形错开奇数行
+     * @return 单元格间距（像素）
+     */
+    public static int fitPitch(int rows, int cols, boolean hex) {
+        int pitch = DEFAULT_PITCH;
+        while (pitch > 1 && imageWidth(cols, hex, pitch) * rows * pitch > MAX_PIXELS) {
+            pitch = pitch > 8 ? pitch / 2 : pitch - 1;
+        }
+        return pitch;
+    }
+
+    private static long imageWidth(int cols, boolean hex, int pitch) {
+        return (long) cols * pitch + (hex ? pitch / 2 : 0);
+    }
+
+    /**
+     * 把单元格外观写成 PNG 图片
+     *
+     * @param looks 单元格外观
+     * @param rows 行数
+     * @param cols 列数
+     * @param hex 是否按六边形错开奇数行（奇数行向右错开半个单元格）
+     * @param pitch 单元格间距（像素），不小于 8 时单元格之间留 1 像素间隔
+     * @param out 输出流，不会被关闭
+     * @throws IllegalArgumentException 图片的宽或高超出 PNG 的上限
+     */
+    public static void write(LookSource looks, int rows, int cols, boolean hex, int pitch, OutputStream out)
+            throws IOException {
+        long width = imageWidth(cols, hex, pitch);
+        long height = (long) rows * pitch;
+        if (pitch < 1 || width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("图片尺寸超出范围: " + width + " × " + height);
+        }
+
+        // 每种外观的图块，按外观代码索引，每像素 3 字节 RGB
+        byte[][] sprites = new byte[BoardView.REVEALED + 9][];
+        for (byte look = 0; look < sprites.length; look++) {
+            if (look <= BoardView.EXPLODED || look >= BoardView.REVEALED) {
+                sprites[look] = rgb(BoardView.cellImage(look, pitch));
+            }
+        }
+        int shift = hex ? pitch / 2 : 0;
+        byte[] gap = new byte[Math.max(shift, 1) * 3];
+        int gapColor = BoardView.GAP_COLOR.getRGB();
+        for (int i = 0; i < gap.length; i += 3) {
+            putRGB(gap, i, gapColor);
+        }
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(header);
+        data.writeInt((int) width);
+        data.writeInt((int) height);
+        data.writeByte(8);  // 每个通道 8 位
+        data.writeByte(2);  // RGB
+        data.writeByte(0);  // deflate
+        data.writeByte(0);  // 自适应滤波
+        data.writeByte(0);  // 不隔行
+        writeChunk(out, "IHDR", header.toByteArray(), header.size());
+
+        int rowBytes = pitch * 3;
+        byte[] tile = new byte[TILE_CELLS * rowBytes];
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream idat = new DeflaterOutputStream(new ChunkStream(out), deflater, CHUNK_SIZE);
+            for (int row = 0; row < rows; row++) {
+                boolean shifted = (row & 1) == 1;
+                for (int y = 0; y < pitch; y++) {
+                    idat.write(0);  // 滤波类型：无
+                    if (shifted) {
+                        idat.write(gap, 0, shift * 3);
+                    }
+                    int offset = y * rowBytes;
+                    for (int from = 0; from < cols; from += TILE_CELLS) {
+                        int to = Math.min(cols, from + TILE_CELLS);
+                        int length = 0;
+                        for (int col = from; col < to; col++) {
+                            System.arraycopy(sprites[looks.lookAt(row, col)], offset, tile, length, rowBytes);
+                            length += rowBytes;
+                        }
+                        idat.write(tile, 0, length);
+                    }
+                    if (!shifted) {
+                        idat.write(gap, 0, shift * 3);
+                    }
+                }
+            }
+            idat.close();
+        } finally {
+            deflater.end();
+        }
+        writeChunk(out, "IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    /**
+     * 导出棋盘的答案：所有安全单元格已揭示，地雷标记为旗帜
+     */
+    public static void writeSolved(CellGrid cells, boolean hex, int pitch, OutputStream out) throws IOException {
+        int cols = cells.getCols();
+        write((row, col) -> {
+            int cell = row * cols + col;
+            return cells.isMine(cell) ? BoardView.FLAG : BoardView.revealed(cells.getAdjacentMines(cell));
+        }, cells.getRows(), cols, hex, pitch, out);
+    }
+
+    /**
+     * 由种子生成与游戏相同的地雷布局（只计算相邻地雷数，不标注空白区）
+     */
+    public static CellGrid solvedBoard(Topology topology, int mines, long seed) {
+        CellGrid cells = new CellGrid(topology.getRows(), topology.getCols());
+        BoardGenerator.placeMines(cells, mines, seed);
+        cells.computeCounts(topology);
+        return cells;
+    }
+
+    private static byte[] rgb(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] pixels = new byte[width * height * 3];
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i += 3) {
+                putRGB(pixels, i, image.getRGB(x, y));
+            }
+        }
+        return pixels;
+    }
+
+    private static void putRGB(byte[] buffer, int offset, int rgb) {
+        buffer[offset] = (byte) (rgb >> 16);
+        buffer[offset + 1] = (byte) (rgb >> 8);
+        buffer[offset + 2] = (byte) rgb;
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        writeInt(out, length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * 把写入的数据按 CHUNK_SIZE 分成 IDAT 块，关闭时写出剩余数据但不关闭底层输出流
+     */
+    private static final class ChunkStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int length;
+
+        ChunkStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == buffer.length) {
+                flushChunk();
+            }
+            buffer[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int count) throws IOException {
+            while (count > 0) {
+                if (length == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(count, buffer.length - length);
+                System.arraycopy(data, offset, buffer, length, n);
+                length += n;
+                offset += n;
+                count -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (length > 0) {
+                writeChunk(out, "IDAT", buffer, length);
+                length = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushChunk();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("用法: java BoardImage <输出文件> <行> <列> <地雷> <种子> [SQUARE|TORUS|HEX|KNIGHT [单元格间距]]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[1]);
+        int cols = Integer.parseInt(args[2]);
+        int mines = Integer.parseInt(args[3]);
+        long seed = Long.parseLong(args[4]);
+        Topology.Kind kind = args.length >= 6 ? Topology.Kind.valueOf(args[5].toUpperCase()) : Topology.Kind.SQUARE;
+        boolean hex = kind == Topology.Kind.HEX;
+        int pitch = args.length >= 7 ? Integer.parseInt(args[6]) : fitPitch(rows, cols, hex);
+
+        long start = System.nanoTime();
+        CellGrid cells = solvedBoard(Topology.of(kind, rows, cols), mines, seed);
+        long generated = System.nanoTime();
+        File file = new File(args[0]);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeSolved(cells, hex, pitch, out);
+        }
+        long written = System.nanoTime();
+        System.out.printf("%d x %d / %d，种子 %d，单元格 %d 像素：生成 %.2f s，导出 %.2f s，%s %d 字节%n",
+                rows, cols, mines, seed, pitch, (generated - start) / 1e9, (written - generated) / 1e9,
+                file, file.length());
+    }
+}
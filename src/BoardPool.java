@@ -0,0 +1,166 @@
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * 后台预生成的棋盘池
+ * 后台线程为当前难度和开局方式预先生成若干个棋盘（放置地雷、计算相邻地雷数和 3BV，
+ * 无猜模式还要验证可解），重置游戏时直接取出一个，不在事件分发线程上做这些计算。
+ * 事件分发线程只调用不阻塞的 poll；池为空时由游戏在工作线程上调用 take 等待。
+ * <p>
+ * - 池中棋盘数不超过 MAX_READY，且总内存估算不超过构造时给定的预算；
+ *   单个棋盘就超过预算的大棋盘不预生成，取用时在调用线程上现场生成
+ * - configure 切换难度或开局方式时清空旧的棋盘，后台线程立即按新配置补充；
+ *   切换前已经开始生成的棋盘完成后按代数判断为过期并丢弃
+ * - 池为空时，take 对随机棋盘直接在调用线程上生成（代价与等待相当），其他开局方式等待后台线程生成，
+ *   避免同时生成两个代价很高的棋盘；等待或生成期间配置被切换时返回 null
+ * </p>
+ */
+public final class BoardPool {
+    /**
+     * 池中最多保存的棋盘数
+     */
+    private static final int MAX_READY = 4;
+
+    private final long memoryBudget;
+    private final ArrayDeque<BoardGenerator.Board> ready = new ArrayDeque<>();
+    private final Thread producer;
+
+    /**
+     * 当前配置，尚未配置时 topology 为 null
+     */
+    private Topology topology;
+    private int mines;
+    private BoardGenerator.Mode mode;
+
+    /**
+     * 当前配置下池的容量
+     */
+    private int capacity;
+
+    /**
+     * 配置代数，每次 configure 递增；后台线程生成过程中不加锁读取，用于尽早放弃过期的生成
+     */
+    private volatile int generation;
+
+    /**
+     * 创建棋盘池并启动后台线程
+     *
+     * @param memoryBudget 池中棋盘的内存预算（字节）
+     */
+    public BoardPool(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        producer = new Thread(this::produce, "board-pool");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+
+    /**
+     * 切换难度或开局方式，丢弃旧配置的棋盘并开始按新配置补充
+     *
+     * @param topology 棋盘的邻居关系
+     * @param mines 地雷数
+     * @param mode 开局方式
+     */
+    public synchronized void configure(Topology topology, int mines, BoardGenerator.Mode mode) {
+        if (this.topology != null && sameBoard(this.topology, topology) && this.mines == mines && this.mode == mode) {
+            return;
+        }
+        this.topology = topology;
+        this.mines = mines;
+        this.mode = mode;
+        long perBoard = BoardGenerator.Board.estimateBytes(topology.getRows(), topology.getCols());
+        capacity = (int) Math.min(MAX_READY, memoryBudget / perBoard);
+        generation++;
+        ready.clear();
+        notifyAll();
+    }
+
+    private static boolean sameBoard(Topology a, Topology b) {
+        return a.getKind() == b.getKind() && a.getRows() == b.getRows() && a.getCols() == b.getCols();
+    }
+
+    /**
+     * 取出一个已经生成好的当前配置的棋盘，不等待
+     *
+     * @return 生成好的棋盘，池为空时返回 null
+     */
+    public synchronized BoardGenerator.Board poll() {
+        BoardGenerator.Board board = ready.poll();
+        if (board != null) {
+            notifyAll(); // 唤醒后台线程补充
+        }
+        return board;
+    }
+
+    /**
+     * 取出一个当前配置的棋盘，池为空时按开局方式现场生成或等待后台线程
+     * 可能阻塞到棋盘生成完毕，不能在事件分发线程上调用。
+     *
+     * @return 生成好的棋盘；等待或生成期间 configure 切换了配置、或线程被中断时返回 null
+     */
+    public BoardGenerator.Board take() {
+        Topology currentTopology;
+        int currentMines;
+        BoardGenerator.Mode currentMode;
+        int gen;
+        synchronized (this) {
+            BoardGenerator.Board board = poll();
+            if (board != null) {
+                return board;
+            }
+            gen = generation;
+            if (capacity > 0 && mode != BoardGenerator.Mode.RANDOM) {
+                while (ready.isEmpty() && gen == generation) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+                return gen == generation ? poll() : null;
+            }
+            currentTopology = topology;
+            currentMines = mines;
+            currentMode = mode;
+        }
+        return BoardGenerator.generate(currentTopology, currentMines, currentMode, new Random(),
+                new MineProbability(), () -> gen != generation);
+    }
+
+    /**
+     * 后台线程：池未满时按当前配置生成棋盘
+     */
+    private void produce() {
+        Random random = new Random();
+        MineProbability probability = new MineProbability();
+        while (true) {
+            Topology currentTopology;
+            int currentMines;
+            BoardGenerator.Mode currentMode;
+            int gen;
+            synchronized (this) {
+                while (topology == null || ready.size() >= capacity) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                currentTopology = topology;
+                currentMines = mines;
+                currentMode = mode;
+                gen = generation;
+            }
+            BoardGenerator.Board board = BoardGenerator.generate(currentTopology, currentMines, currentMode, random,
+                    probability, () -> gen != generation);
+            synchronized (this) {
+                if (board != null && gen == generation && ready.size() < capacity) {
+                    ready.add(board);
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,951 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.*;
+
+/**
+ * 自绘的游戏棋盘视图，放在 JScrollPane 中使用，支持缩放和平移
+ * <p>
+ * 视图不为每个单元格创建组件，只保存每个单元格的外观代码，绘制时只处理裁剪区域内可见的单元格：
+ * - 单元格不小于 DETAIL_PITCH 像素时逐格绘制边框、数字和图标
+ * - 更小时直接写入与可见区域同尺寸的像素缓冲区，每个像素块的颜色按块内已揭示、已标记单元格的比例着色，
+ *   比例取自按 4 倍逐级聚合的计数金字塔，金字塔在单元格变化时增量更新
+ * 因此绘制耗时只与可见像素数有关，与棋盘的行数 × 列数无关。
+ * </p>
+ * <p>
+ * 操作方式：左键揭示、右键标记；左键或中键拖动平移；滚轮滚动，Ctrl+滚轮以鼠标位置为中心缩放；
+ * 方向键平移，+ / - 键缩放，0 键恢复默认大小。
+ * </p>
+ * <p>
+ * 视图可以作为同步监听者注册到对局的 BoardEvents：每步的一批变化一次写入外观和计数金字塔，
+ * 然后按变化单元格的外接矩形只请求一次重绘，小地图也只重绘一次，大面积展开不会产生成千上万个重绘请求。
+ * </p>
+ */
+public class BoardView extends JComponent implements Scrollable, BoardEvents.Listener {
+    /**
+     * 未揭示单元格
+     */
+    public static final byte HIDDEN = 0;
+
+    /**
+     * 已标记为地雷
+     */
+    public static final byte FLAG = 1;
+
+    /**
+     * 游戏结束时显示的未标记地雷
+     */
+    public static final byte MINE = 2;
+
+    /**
+     * 游戏结束时显示的错误标记
+     */
+    public static final byte WRONG_FLAG = 3;
+
+    /**
+     * 踩中的地雷
+     */
+    public static final byte EXPLODED = 4;
+
+    /**
+     * 已揭示单元格，外观代码为 REVEALED + 相邻地雷数
+     */
+    public static final byte REVEALED = 16;
+
+    /**
+     * 默认的单元格间距（单元格 25 像素加 1 像素间隔）
+     */
+    public static final double DEFAULT_PITCH = 26;
+
+    /**
+     * 逐格绘制细节所需的最小单元格间距，更小时改用像素缓冲区绘制
+     */
+    private static final double DETAIL_PITCH = 4;
+
+    /**
+     * 可选的缩放级别（单元格间距，像素）
+     */
+    private static final double[] ZOOM_LEVELS = {
+            64, 48, 36, 26, 20, 16, 12, 8, 6, 4, 3, 2, 1,
+            1 / 2.0, 1 / 4.0, 1 / 8.0, 1 / 16.0, 1 / 32.0, 1 / 64.0, 1 / 128.0
+    };
+
+    /**
+     * 视口的最大默认尺寸，更大的棋盘通过滚动查看
+     */
+    private static final int MAX_VIEWPORT_WIDTH = 960;
+    private static final int MAX_VIEWPORT_HEIGHT = 720;
+
+    /**
+     * 拖动超过该距离（像素）后视为平移而不是点击
+     */
+    private static final int DRAG_THRESHOLD = 4;
+
+    /**
+     * 数字颜色，与原先按钮的配色一致
+     */
+    private static final Color[] NUMBER_COLORS = {
+            Color.BLUE, Color.GREEN, Color.RED,
+            Color.MAGENTA, Color.ORANGE, Color.CYAN,
+            Color.BLACK, Color.GRAY
+    };
+
+    /**
+     * 数字的文字，按相邻地雷数索引；绘制时直接取用，不为每个单元格新建字符串
+     */
+    private static final String[] DIGITS = {"0", "1", "2", "3", "4", "5", "6", "7", "8"};
+
+    /**
+     * 概率数组中的占位值，表示该单元格使用共用的概率
+     */
+    private static final float OUTSIDE = -1f;
+
+    static final Color GAP_COLOR = Color.GRAY;
+    private static final Color HIDDEN_COLOR = new Color(214, 217, 223);
+    private static final Color OPEN_COLOR = Color.LIGHT_GRAY;
+    private static final Color FLAG_COLOR = Color.YELLOW;
+    private static final Color EXPLODED_COLOR = Color.RED;
+
+    /**
+     * 单元格点击监听器
+     */
+    public interface CellClickListener {
+        /**
+         * 单元格被点击
+         *
+         * @param row 行索引
+         * @param col 列索引
+         * @param rightButton 是否为右键
+         */
+        void cellClicked(int row, int col, boolean rightButton);
+    }
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * 奇数行是否向右错开半个单元格（六边形棋盘）
+     */
+    private final boolean hex;
+
+    /**
+     * 每个单元格的外观代码，按行优先存储
+     */
+    private final byte[] cells;
+
+    /**
+     * 每个单元格是地雷的概率，NaN 表示该单元格没有概率，OUTSIDE 表示使用 outsideProbability
+     * 第一次显示概率提示时分配，之后每次更新只改写上一次和这一次给出概率的单元格。
+     */
+    private float[] probabilities;
+
+    /**
+     * 上一次单独给出概率的单元格，下一次更新时恢复为 OUTSIDE
+     */
+    private int[] probabilityCells;
+
+    /**
+     * 没有单独给出概率的单元格共用的概率
+     */
+    private float outsideProbability = Float.NaN;
+
+    /**
+     * 是否显示概率提示
+     */
+    private boolean showProbabilities;
+
+    /**
+     * 计数金字塔，第 L 层的块边长为 4^(L+1) 个单元格
+     * opened 统计块内已揭示的单元格数，marked 统计块内显示为旗帜或地雷的单元格数
+     */
+    private final int[][] opened;
+    private final int[][] marked;
+    private final int[] blockCols;
+
+    /**
+     * 当前单元格间距（像素），可以小于 1
+     */
+    private double pitch = DEFAULT_PITCH;
+
+    private Font numberFont;
+    private CellClickListener clickListener;
+
+    /**
+     * 像素缓冲区，尺寸不足时重新分配
+     */
+    private BufferedImage raster;
+
+    /**
+     * 跟随本视图的小地图，可以为 null
+     */
+    private Minimap minimap;
+
+    /**
+     * 创建棋盘视图，所有单元格为未揭示状态
+     *
+     * @param rows 行数
+     * @param cols 列数
+     * @param hex 是否按六边形错开奇数行
+     */
+    public BoardView(int rows, int cols, boolean hex) {
+        this.rows = rows;
+        this.cols = cols;
+        this.hex = hex;
+        this.cells = new byte[rows * cols];
+
+        int levels = 0;
+        for (long block = 4; block < Math.max(rows, cols) * 4L; block *= 4) {
+            levels++;
+        }
+        opened = new int[levels][];
+        marked = new int[levels][];
+        blockCols = new int[levels];
+        for (int level = 0, block = 4; level < levels; level++, block *= 4) {
+            blockCols[level] = (cols + block - 1) / block;
+            int size = blockCols[level] * ((rows + block - 1) / block);
+            opened[level] = new int[size];
+            marked[level] = new int[size];
+        }
+
+        setOpaque(true);
+        setBackground(GAP_COLOR);
+        updateFont();
+        ToolTipManager.sharedInstance().registerComponent(this);
+        installMouseHandlers();
+        installKeyBindings();
+    }
+
+    public void setCellClickListener(CellClickListener listener) {
+        this.clickListener = listener;
+    }
+
+    /**
+     * 设置跟随本视图的小地图，单元格外观变化时同步更新小地图
+     */
+    void setMinimap(Minimap minimap) {
+        this.minimap = minimap;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * 获取单元格的外观代码
+     */
+    public byte getCell(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    /**
+     * 复制所有单元格的外观代码（行优先），供后台线程在对局继续时读取
+     */
+    public byte[] copyCells() {
+        return cells.clone();
+    }
+
+    /**
+     * 设置单元格的外观并重绘该单元格
+     *
+     * @param row 行索引
+     * @param col 列索引
+     * @param look 外观代码：HIDDEN、FLAG、MINE、WRONG_FLAG、EXPLODED 或 revealed(相邻地雷数)
+     */
+    public void setCell(int row, int col, byte look) {
+        if (store(row, col, look)) {
+            if (minimap != null) {
+                minimap.flush();
+            }
+            repaintCell(row, col);
+        }
+    }
+
+    /**
+     * 一步操作结束，应用本步的所有变化并重绘它们的外接矩形
+     */
+    @Override
+    public void cellsChanged(BoardEvents.Batch batch) {
+        int top = rows;
+        int bottom = -1;
+        int left = cols;
+        int right = -1;
+        for (int i = 0; i < batch.size(); i++) {
+            int cell = batch.cell(i);
+            int row = cell / cols;
+            int col = cell - row * cols;
+            if (store(row, col, batch.look(i))) {
+                top = Math.min(top, row);
+                bottom = Math.max(bottom, row);
+                left = Math.min(left, col);
+                right = Math.max(right, col);
+            }
+        }
+        if (bottom < 0) {
+            return;
+        }
+        if (minimap != null) {
+            minimap.flush();
+        }
+        // 六边形棋盘的奇数行右移半格，右边界按右移计算
+        int x0 = (int) Math.floor(left * pitch);
+        int y0 = (int) Math.floor(top * pitch);
+        int x1 = (int) Math.ceil((right + 1) * pitch + (hex ? pitch / 2 : 0));
+        int y1 = (int) Math.ceil((bottom + 1) * pitch);
+        repaint(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+    }
+
+    /**
+     * 开始新的一局，所有单元格恢复为未揭示状态
+     */
+    @Override
+    public void gameStarted(Topology.Kind kind, int rows, int cols, int mines) {
+        clear();
+    }
+
+    /**
+     * 写入单元格外观并更新计数金字塔和小地图的像素，不请求重绘
+     *
+     * @return 外观改变时返回 true
+     */
+    private boolean store(int row, int col, byte look) {
+        int index = row * cols + col;
+        byte old = cells[index];
+        if (old == look) {
+            return false;
+        }
+        cells[index] = look;
+        int openDelta = (isOpen(look) ? 1 : 0) - (isOpen(old) ? 1 : 0);
+        int markDelta = (isMarked(look) ? 1 : 0) - (isMarked(old) ? 1 : 0);
+        if (openDelta != 0 || markDelta != 0) {
+            for (int level = 0, block = 4; level < opened.length; level++, block *= 4) {
+                int b = (row / block) * blockCols[level] + col / block;
+                opened[level][b] += openDelta;
+                marked[level][b] += markDelta;
+            }
+        }
+        if (minimap != null) {
+            minimap.cellChanged(row, col, old, look);
+        }
+        return true;
+    }
+
+    /**
+     * 已揭示单元格的外观代码
+     *
+     * @param adjacentMines 相邻地雷数
+     * @return 外观代码
+     */
+    public static byte revealed(int adjacentMines) {
+        return (byte) (REVEALED + adjacentMines);
+    }
+
+    static boolean isOpen(byte look) {
+        return look >= REVEALED;
+    }
+
+    static boolean isMarked(byte look) {
+        return look != HIDDEN && look < REVEALED;
+    }
+
+    /**
+     * 把所有单元格恢复为未揭示状态，并清除概率提示
+     */
+    public void clear() {
+        Arrays.fill(cells, HIDDEN);
+        for (int level = 0; level < opened.length; level++) {
+            Arrays.fill(opened[level], 0);
+            Arrays.fill(marked[level], 0);
+        }
+        clearProbabilities();
+        if (minimap != null) {
+            minimap.reset();
+        }
+        repaint();
+    }
+
+    /**
+     * 设置概率提示，只对未揭示、未标记的单元格着色
+     * 只改写上一次和这一次给出概率的单元格，其余单元格使用共用的概率，因此代价与边界大小成正比。
+     * 数组在调用之后不能再修改。
+     *
+     * @param cells 单独给出概率的单元格编号（行 * 列数 + 列）
+     * @param values 对应单元格是地雷的概率（NaN 表示无）
+     * @param outside 其余单元格共用的概率（NaN 表示无）
+     */
+    public void setProbabilities(int[] cells, float[] values, float outside) {
+        if (probabilities == null) {
+            probabilities = new float[rows * cols];
+            Arrays.fill(probabilities, OUTSIDE);
+        }
+        resetProbabilityCells();
+        for (int i = 0; i < cells.length; i++) {
+            probabilities[cells[i]] = values[i];
+        }
+        probabilityCells = cells;
+        outsideProbability = outside;
+        showProbabilities = true;
+        repaint();
+    }
+
+    /**
+     * 清除概率提示
+     */
+    public void clearProbabilities() {
+        resetProbabilityCells();
+        outsideProbability = Float.NaN;
+        if (showProbabilities) {
+            showProbabilities = false;
+            repaint();
+        }
+    }
+
+    private void resetProbabilityCells() {
+        if (probabilityCells != null) {
+            for (int cell : probabilityCells) {
+                probabilities[cell] = OUTSIDE;
+            }
+            probabilityCells = null;
+        }
+    }
+
+    /**
+     * 单元格的概率，不显示概率提示时为 NaN
+     */
+    private float probability(int index) {
+        if (!showProbabilities) {
+            return Float.NaN;
+        }
+        float value = probabilities[index];
+        return value == OUTSIDE ? outsideProbability : value;
+    }
+
+    // ------------------------------------------------------------------
+    // 坐标换算
+    // ------------------------------------------------------------------
+
+    /**
+     * 单元格所在行的水平偏移（六边形奇数行错开半格）
+     */
+    private double rowShift(int row) {
+        return hex && (row & 1) == 1 ? pitch / 2 : 0;
+    }
+
+    /**
+     * 根据视图坐标查找单元格
+     *
+     * @return {行, 列}，不在任何单元格上时返回 null
+     */
+    public int[] cellAt(Point p) {
+        int row = (int) Math.floor(p.y / pitch);
+        if (row < 0 || row >= rows) {
+            return null;
+        }
+        int col = (int) Math.floor((p.x - rowShift(row)) / pitch);
+        if (col < 0 || col >= cols) {
+            return null;
+        }
+        return new int[]{row, col};
+    }
+
+    private void repaintCell(int row, int col) {
+        double x = col * pitch + rowShift(row);
+        double y = row * pitch;
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        repaint(x0, y0, (int) Math.ceil(x + pitch) - x0 + 1, (int) Math.ceil(y + pitch) - y0 + 1);
+    }
+
+    // ------------------------------------------------------------------
+    // 缩放
+    // ------------------------------------------------------------------
+
+    public double getPitch() {
+        return pitch;
+    }
+
+    /**
+     * 以视图中的某一点为中心缩放，该点下方的内容在缩放后保持在原来的屏幕位置
+     *
+     * @param newPitch 新的单元格间距
+     * @param anchor 缩放中心（视图坐标），为 null 时以可见区域中心缩放
+     */
+    public void setPitch(double newPitch, Point anchor) {
+        if (newPitch == pitch) {
+            return;
+        }
+        JViewport viewport = getViewport();
+        Rectangle visible = getVisibleRect();
+        if (anchor == null) {
+            anchor = new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+        }
+        double factor = newPitch / pitch;
+        int screenX = anchor.x - visible.x;
+        int screenY = anchor.y - visible.y;
+
+        pitch = newPitch;
+        updateFont();
+        revalidate();
+        if (viewport != null) {
+            Dimension size = getPreferredSize();
+            viewport.setViewSize(size);
+            int x = (int) Math.round(anchor.x * factor) - screenX;
+            int y = (int) Math.round(anchor.y * factor) - screenY;
+            Dimension extent = viewport.getExtentSize();
+            x = Math.max(0, Math.min(x, size.width - extent.width));
+            y = Math.max(0, Math.min(y, size.height - extent.height));
+            viewport.setViewPosition(new Point(x, y));
+        }
+        repaint();
+    }
+
+    /**
+     * 放大或缩小一级
+     *
+     * @param steps 正数缩小，负数放大
+     * @param anchor 缩放中心（视图坐标），可以为 null
+     */
+    public void zoom(int steps, Point anchor) {
+        int current = 0;
+        for (int i = 0; i < ZOOM_LEVELS.length; i++) {
+            if (Math.abs(ZOOM_LEVELS[i] - pitch) < Math.abs(ZOOM_LEVELS[current] - pitch)) {
+                current = i;
+            }
+        }
+        int next = Math.max(0, Math.min(ZOOM_LEVELS.length - 1, current + steps));
+        // 整个棋盘已经小于视口时不再缩小
+        if (steps > 0 && Math.max(rows, cols) * ZOOM_LEVELS[current] <= 64) {
+            return;
+        }
+        setPitch(ZOOM_LEVELS[next], anchor);
+    }
+
+    private void updateFont() {
+        numberFont = numberFont(pitch);
+    }
+
+    /**
+     * 指定单元格间距下数字使用的字体
+     */
+    private static Font numberFont(double pitch) {
+        int size = (int) Math.max(6, Math.round(pitch * 12 / DEFAULT_PITCH));
+        return new Font("Arial", Font.BOLD, size);
+    }
+
+    private JViewport getViewport() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? (JViewport) parent : null;
+    }
+
+    /**
+     * 把可见区域平移指定的像素
+     */
+    public void pan(int dx, int dy) {
+        JViewport viewport = getViewport();
+        if (viewport == null) {
+            return;
+        }
+        Point position = viewport.getViewPosition();
+        Dimension extent = viewport.getExtentSize();
+        Dimension size = getPreferredSize();
+        int x = Math.max(0, Math.min(position.x + dx, size.width - extent.width));
+        int y = Math.max(0, Math.min(position.y + dy, size.height - extent.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+
+    /**
+     * 滚动视图使指定单元格位于可见区域中心
+     */
+    public void centerOn(int row, int col) {
+        JViewport viewport = getViewport();
+        if (viewport == null) {
+            return;
+        }
+        Dimension extent = viewport.getExtentSize();
+        Point position = viewport.getViewPosition();
+        int x = (int) ((col + 0.5) * pitch + rowShift(row)) - extent.width / 2;
+        int y = (int) ((row + 0.5) * pitch) - extent.height / 2;
+        pan(x - position.x, y - position.y);
+    }
+
+    // ------------------------------------------------------------------
+    // 输入处理
+    // ------------------------------------------------------------------
+
+    private void installMouseHandlers() {
+        MouseAdapter handler = new MouseAdapter() {
+            private Point pressScreen;
+            private int[] pressCell;
+            private boolean panning;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                pressScreen = e.getLocationOnScreen();
+                pressCell = cellAt(e.getPoint());
+                panning = false;
+                if (SwingUtilities.isRightMouseButton(e) && pressCell != null && clickListener != null) {
+                    clickListener.cellClicked(pressCell[0], pressCell[1], true);
+                }
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (pressScreen == null || SwingUtilities.isRightMouseButton(e)) {
+                    return;
+                }
+                Point now = e.getLocationOnScreen();
+                if (!panning && now.distance(pressScreen) < DRAG_THRESHOLD) {
+                    return;
+                }
+                panning = true;
+                pan(pressScreen.x - now.x, pressScreen.y - now.y);
+                pressScreen = now;
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (!panning && SwingUtilities.isLeftMouseButton(e) && pressCell != null && clickListener != null) {
+                    int[] cell = cellAt(e.getPoint());
+                    if (cell != null && cell[0] == pressCell[0] && cell[1] == pressCell[1]) {
+                        clickListener.cellClicked(cell[0], cell[1], false);
+                    }
+                }
+                pressScreen = null;
+                panning = false;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if (e.isControlDown()) {
+                    zoom(e.getWheelRotation() > 0 ? 1 : -1, e.getPoint());
+                } else if (getParent() != null) {
+                    // 交给外层滚动面板处理普通滚动
+                    getParent().dispatchEvent(SwingUtilities.convertMouseEvent(BoardView.this, e, getParent()));
+                }
+            }
+        };
+        addMouseListener(handler);
+        addMouseMotionListener(handler);
+        addMouseWheelListener(handler);
+    }
+
+    private void installKeyBindings() {
+        InputMap inputMap = getInputMap(WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = getActionMap();
+        bind(inputMap, actionMap, "panLeft", () -> pan(-panStep(), 0), KeyEvent.VK_LEFT);
+        bind(inputMap, actionMap, "panRight", () -> pan(panStep(), 0), KeyEvent.VK_RIGHT);
+        bind(inputMap, actionMap, "panUp", () -> pan(0, -panStep()), KeyEvent.VK_UP);
+        bind(inputMap, actionMap, "panDown", () -> pan(0, panStep()), KeyEvent.VK_DOWN);
+        bind(inputMap, actionMap, "zoomIn", () -> zoom(-1, null), KeyEvent.VK_EQUALS, KeyEvent.VK_PLUS, KeyEvent.VK_ADD);
+        bind(inputMap, actionMap, "zoomOut", () -> zoom(1, null), KeyEvent.VK_MINUS, KeyEvent.VK_SUBTRACT);
+        bind(inputMap, actionMap, "zoomReset", () -> setPitch(DEFAULT_PITCH, null), KeyEvent.VK_0, KeyEvent.VK_NUMPAD0);
+    }
+
+    private static void bind(InputMap inputMap, ActionMap actionMap, String name, Runnable action, int... keys) {
+        for (int key : keys) {
+            inputMap.put(KeyStroke.getKeyStroke(key, 0), name);
+        }
+        actionMap.put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 键盘平移的步长：按住方向键时每次移动约 1/16 个视口，保证平移连续
+     */
+    private int panStep() {
+        Rectangle visible = getVisibleRect();
+        return Math.max(8, Math.max(visible.width, visible.height) / 16);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int[] cell = cellAt(e.getPoint());
+        if (cell == null) {
+            return null;
+        }
+        int index = cell[0] * cols + cell[1];
+        float probability = probability(index);
+        if (cells[index] != HIDDEN || Float.isNaN(probability)) {
+            return null;
+        }
+        return String.format("地雷概率: %.1f%%", probability * 100);
+    }
+
+    // ------------------------------------------------------------------
+    // 绘制
+    // ------------------------------------------------------------------
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        if (pitch >= DETAIL_PITCH) {
+            paintCells(g, clip);
+        } else {
+            paintRaster(g, clip);
+        }
+    }
+
+    /**
+     * 逐格绘制裁剪区域内的单元格
+     */
+    private void paintCells(Graphics g, Rectangle clip) {
+        g.setColor(GAP_COLOR);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int firstRow = Math.max(0, (int) (clip.y / pitch));
+        int lastRow = Math.min(rows - 1, (int) ((clip.y + clip.height) / pitch));
+        int gap = pitch >= 8 ? 1 : 0;
+        int size = (int) pitch - gap;
+        g.setFont(numberFont);
+        FontMetrics metrics = g.getFontMetrics();
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            double shift = rowShift(row);
+            int firstCol = Math.max(0, (int) ((clip.x - shift) / pitch) - 1);
+            int lastCol = Math.min(cols - 1, (int) ((clip.x + clip.width - shift) / pitch));
+            int y = (int) (row * pitch);
+            for (int col = firstCol; col <= lastCol; col++) {
+                int x = (int) (col * pitch + shift);
+                int index = row * cols + col;
+                byte look = cells[index];
+                paintCell(g, metrics, look, probability(index), x, y, size);
+            }
+        }
+    }
+
+    private static void paintCell(Graphics g, FontMetrics metrics, byte look, float probability, int x, int y, int size) {
+        if (look >= REVEALED) {
+            g.setColor(OPEN_COLOR);
+            g.fillRect(x, y, size, size);
+            int count = look - REVEALED;
+            if (count > 0 && size >= 8) {
+                String text = DIGITS[count];
+                g.setColor(NUMBER_COLORS[count - 1]);
+                g.drawString(text, x + (size - metrics.stringWidth(text)) / 2,
+                        y + (size - metrics.getHeight()) / 2 + metrics.getAscent());
+            } else if (count > 0) {
+                g.setColor(NUMBER_COLORS[count - 1]);
+                g.fillRect(x + size / 3, y + size / 3, Math.max(1, size / 3), Math.max(1, size / 3));
+            }
+            return;
+        }
+        switch (look) {
+            case FLAG:
+                g.setColor(FLAG_COLOR);
+                g.fillRect(x, y, size, size);
+                paintIcon(g, IconManager.getFlagIcon(), x, y, size);
+                break;
+            case MINE:
+                g.setColor(OPEN_COLOR);
+                g.fillRect(x, y, size, size);
+                paintIcon(g, IconManager.getMineIcon(), x, y, size);
+                break;
+            case EXPLODED:
+                g.setColor(EXPLODED_COLOR);
+                g.fillRect(x, y, size, size);
+                paintIcon(g, IconManager.getMineIcon(), x, y, size);
+                break;
+            case WRONG_FLAG:
+                g.setColor(OPEN_COLOR);
+                g.fillRect(x, y, size, size);
+                g.setColor(Color.RED);
+                int inset = Math.max(1, size / 4);
+                g.drawLine(x + inset, y + inset, x + size - inset, y + size - inset);
+                g.drawLine(x + size - inset, y + inset, x + inset, y + size - inset);
+                break;
+            default:
+                g.setColor(Float.isNaN(probability) ? HIDDEN_COLOR
+                        : Color.getHSBColor((1 - probability) / 3f, 0.45f, 1f));
+                g.fillRect(x, y, size, size);
+                if (size >= 6) {
+                    // 凸起的按钮边框
+                    g.setColor(Color.WHITE);
+                    g.drawLine(x, y, x + size - 1, y);
+                    g.drawLine(x, y, x, y + size - 1);
+                    g.setColor(Color.DARK_GRAY);
+                    g.drawLine(x, y + size - 1, x + size - 1, y + size - 1);
+                    g.drawLine(x + size - 1, y, x + size - 1, y + size - 1);
+                }
+                break;
+        }
+    }
+
+    /**
+     * 把一种外观的单元格连同右侧和下方的间隔绘制成 pitch × pitch 的图块，与逐格绘制的结果相同，用于导出图片
+     *
+     * @param look 外观代码
+     * @param pitch 单元格间距（像素）
+     * @return TYPE_INT_RGB 图块
+     */
+    static BufferedImage cellImage(byte look, int pitch) {
+        BufferedImage image = new BufferedImage(pitch, pitch, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(GAP_COLOR);
+            g.fillRect(0, 0, pitch, pitch);
+            g.setFont(numberFont(pitch));
+            paintCell(g, g.getFontMetrics(), look, Float.NaN, 0, 0, pitch - (pitch >= 8 ? 1 : 0));
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * 在单元格中央绘制图标，单元格较小时按比例缩小
+     */
+    private static void paintIcon(Graphics g, ImageIcon icon, int x, int y, int size) {
+        if (size < 8) {
+            return;
+        }
+        int iconSize = Math.min(icon.getIconWidth(), size - 4);
+        if (iconSize == icon.getIconWidth()) {
+            icon.paintIcon(null, g, x + (size - iconSize) / 2, y + (size - iconSize) / 2);
+        } else {
+            g.drawImage(icon.getImage(), x + (size - iconSize) / 2, y + (size - iconSize) / 2,
+                    iconSize, iconSize, null);
+        }
+    }
+
+    /**
+     * 单元格小于 DETAIL_PITCH 像素时，把裁剪区域绘制到像素缓冲区
+     * 选择块边长 block 使每个块至少占 1 像素，每个像素只读取一个块的计数，
+     * 耗时与裁剪区域的像素数成正比。
+     */
+    private void paintRaster(Graphics g, Rectangle clip) {
+        int width = clip.width;
+        int height = clip.height;
+        if (raster == null || raster.getWidth() < width || raster.getHeight() < height) {
+            raster = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_RGB);
+        }
+        int[] pixels = ((java.awt.image.DataBufferInt) raster.getRaster().getDataBuffer()).getData();
+        int stride = raster.getWidth();
+
+        // 选择聚合层级：-1 表示直接读取单元格
+        int level = -1;
+        int block = 1;
+        while (block * pitch < 1 && level + 1 < opened.length) {
+            level++;
+            block *= 4;
+        }
+        double blockPitch = block * pitch;
+        int blockRows = (rows + block - 1) / block;
+        int blockColsCount = (cols + block - 1) / block;
+        int gapColor = GAP_COLOR.getRGB();
+
+        // 每一列像素对应的块列，六边形错开的半格在这种缩放下可以忽略
+        int[] columnBlock = new int[width];
+        for (int px = 0; px < width; px++) {
+            int b = (int) ((clip.x + px) / blockPitch);
+            columnBlock[px] = b < blockColsCount ? b : -1;
+        }
+        for (int py = 0; py < height; py++) {
+            int br = (int) ((clip.y + py) / blockPitch);
+            int offset = py * stride;
+            if (br >= blockRows) {
+                Arrays.fill(pixels, offset, offset + width, gapColor);
+                continue;
+            }
+            for (int px = 0; px < width; px++) {
+                int bc = columnBlock[px];
+                pixels[offset + px] = bc < 0 ? gapColor : blockColor(level, block, br, bc);
+            }
+        }
+        g.drawImage(raster, clip.x, clip.y, clip.x + width, clip.y + height, 0, 0, width, height, null);
+    }
+
+    /**
+     * 计算一个块的颜色，level 为 -1 时块就是单个单元格
+     */
+    private int blockColor(int level, int block, int br, int bc) {
+        if (level < 0) {
+            return lookColor(cells[br * cols + bc]);
+        }
+        int b = br * blockCols[level] + bc;
+        int h = Math.min(block, rows - br * block);
+        int w = Math.min(block, cols - bc * block);
+        return mixColor(h * w, opened[level][b], marked[level][b]);
+    }
+
+    /**
+     * 单个单元格在远景中的颜色（RGB）
+     */
+    static int lookColor(byte look) {
+        if (look >= REVEALED) {
+            return look == REVEALED ? OPEN_COLOR.getRGB() & 0xFFFFFF : 0xB4B4C8;
+        }
+        switch (look) {
+            case HIDDEN:
+                return HIDDEN_COLOR.getRGB() & 0xFFFFFF;
+            case EXPLODED:
+                return EXPLODED_COLOR.getRGB() & 0xFFFFFF;
+            default:
+                return FLAG_COLOR.getRGB() & 0xFFFFFF;
+        }
+    }
+
+    /**
+     * 按已揭示、已标记单元格的比例混合未揭示、已揭示和旗帜的颜色（RGB）
+     * 未揭示比例越高颜色越深，便于在远景中分辨未探索区域。
+     *
+     * @param total 单元格总数
+     * @param open 已揭示的单元格数
+     * @param mark 显示为旗帜或地雷的单元格数
+     */
+    static int mixColor(int total, int open, int mark) {
+        int hidden = total - open - mark;
+        int shade = 96 * hidden / total;
+        int r = (HIDDEN_COLOR.getRed() * hidden + OPEN_COLOR.getRed() * open + FLAG_COLOR.getRed() * mark) / total;
+        int g = (HIDDEN_COLOR.getGreen() * hidden + OPEN_COLOR.getGreen() * open + FLAG_COLOR.getGreen() * mark) / total;
+        int b = (HIDDEN_COLOR.getBlue() * hidden + OPEN_COLOR.getBlue() * open + FLAG_COLOR.getBlue() * mark) / total;
+        return (Math.max(0, r - shade) << 16) | (Math.max(0, g - shade) << 8) | Math.max(0, b - shade);
+    }
+
+    // ------------------------------------------------------------------
+    // 尺寸与滚动
+    // ------------------------------------------------------------------
+
+    @Override
+    public Dimension getPreferredSize() {
+        double width = cols * pitch + (hex ? pitch / 2 : 0);
+        return new Dimension((int) Math.ceil(width), (int) Math.ceil(rows * pitch));
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension size = getPreferredSize();
+        return new Dimension(Math.min(size.width, MAX_VIEWPORT_WIDTH), Math.min(size.height, MAX_VIEWPORT_HEIGHT));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return (int) Math.max(8, pitch);
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
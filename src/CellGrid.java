@@ -0,0 +1,277 @@
+import java.util.stream.IntStream;
+
+/**
+ * 紧凑的棋盘单元格存储
+ * 每个单元格占一个字节，按 行 * 列数 + 列 存放在一维数组中：
+ * <pre>
+ * 位 0-3  相邻地雷数 0~8（地雷单元格为 0）
+ * 位 4    地雷
+ * 位 5    已揭示
+ * 位 6    已标记
+ * </pre>
+ * 原先的三个 boolean[][] 加一个 int[][] 每格至少 7 字节，另有每行两个数组的对象头；
+ * 10000 × 10000 的棋盘现在只需约 100 MB。按格读写只是一次数组访问加位运算，
+ * 不再需要先取行数组，随机访问的开销与二维数组相当；已揭示和已标记的单元格数随写入维护，胜利判定和剩余地雷数为 O(1)。
+ */
+public final class CellGrid {
+    /**
+     * 相邻地雷数所在的低 4 位
+     */
+    static final int COUNT_MASK = 0x0F;
+    static final int MINE = 0x10;
+    static final int REVEALED = 0x20;
+    static final int FLAGGED = 0x40;
+
+    /**
+     * 计算相邻地雷数时每个行带的最少行数，行数不足两个行带时不并行
+     */
+    private static final int BAND_ROWS = 256;
+
+    private final int rows;
+    private final int cols;
+    private final byte[] cells;
+
+    /**
+     * 已揭示、已标记的单元格数
+     */
+    private int revealedCount;
+    private int flaggedCount;
+
+    /**
+     * 创建空棋盘（没有地雷，全部未揭示）
+     *
+     * @param rows 行数
+     * @param cols 列数
+     */
+    public CellGrid(int rows, int cols) {
+        if ((long) rows * cols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("棋盘过大: " + rows + " x " + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new byte[rows * cols];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getRevealedCount() {
+        return revealedCount;
+    }
+
+    public int getFlaggedCount() {
+        return flaggedCount;
+    }
+
+    /**
+     * 估算 rows × cols 棋盘占用的内存（字节）
+     */
+    static long estimateBytes(int rows, int cols) {
+        return (long) rows * cols + 16;
+    }
+
+    // ------------------------------------------------------------------
+    // 按一维编号访问（cell = 行 * 列数 + 列），用于热点循环
+    // ------------------------------------------------------------------
+
+    public boolean isMine(int cell) {
+        return (cells[cell] & MINE) != 0;
+    }
+
+    public boolean isRevealed(int cell) {
+        return (cells[cell] & REVEALED) != 0;
+    }
+
+    public boolean isFlagged(int cell) {
+        return (cells[cell] & FLAGGED) != 0;
+    }
+
+    /**
+     * 是否既未揭示也未标记
+     */
+    public boolean isCovered(int cell) {
+        return (cells[cell] & (REVEALED | FLAGGED)) == 0;
+    }
+
+    /**
+     * 是否为周围没有地雷的安全单元格
+     */
+    public boolean isZero(int cell) {
+        return (cells[cell] & (MINE | COUNT_MASK)) == 0;
+    }
+
+    public int getAdjacentMines(int cell) {
+        return cells[cell] & COUNT_MASK;
+    }
+
+    public void setMine(int cell) {
+        cells[cell] |= MINE;
+    }
+
+    public void setRevealed(int cell, boolean value) {
+        byte old = cells[cell];
+        if (value == ((old & REVEALED) != 0)) {
+            return;
+        }
+        cells[cell] = (byte) (old ^ REVEALED);
+        revealedCount += value ? 1 : -1;
+    }
+
+    public void setFlagged(int cell, boolean value) {
+        byte old = cells[cell];
+        if (value == ((old & FLAGGED) != 0)) {
+            return;
+        }
+        cells[cell] = (byte) (old ^ FLAGGED);
+        flaggedCount += value ? 1 : -1;
+    }
+
+    // ------------------------------------------------------------------
+    // 按行列访问
+    // ------------------------------------------------------------------
+
+    public boolean isMine(int row, int col) {
+        return isMine(row * cols + col);
+    }
+
+    public boolean isRevealed(int row, int col) {
+        return isRevealed(row * cols + col);
+    }
+
+    public boolean isFlagged(int row, int col) {
+        return isFlagged(row * cols + col);
+    }
+
+    public int getAdjacentMines(int row, int col) {
+        return getAdjacentMines(row * cols + col);
+    }
+
+    public void setRevealed(int row, int col, boolean value) {
+        setRevealed(row * cols + col, value);
+    }
+
+    public void setFlagged(int row, int col, boolean value) {
+        setFlagged(row * cols + col, value);
+    }
+
+    // ------------------------------------------------------------------
+    // 整盘操作
+    // ------------------------------------------------------------------
+
+    /**
+     * 清除所有揭示和标记状态，保留地雷和相邻地雷数
+     */
+    public void clearState() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] &= MINE | COUNT_MASK;
+        }
+        revealedCount = 0;
+        flaggedCount = 0;
+    }
+
+    /**
+     * 按邻居关系计算每个非地雷单元格的相邻地雷数
+     * 经典方格使用滑动窗口：先求每列上中下三格的地雷数，再把相邻三列相加，
+     * 每格只需常数次运算，额外内存只有三行；其他棋盘类型使用 Topology 的邻居表。
+     * 大棋盘按行带并行：各行带只写自己的行，行带交界处读取相邻行带的地雷位，
+     * 写入时地雷位不变，因此结果与逐行计算完全相同。
+     *
+     * @param topology 棋盘的邻居关系
+     */
+    public void computeCounts(Topology topology) {
+        int bandCount = Math.max(1, Math.min(rows / BAND_ROWS, Runtime.getRuntime().availableProcessors() * 4));
+        if (bandCount == 1) {
+            computeCounts(topology, 0, rows);
+            return;
+        }
+        IntStream.range(0, bandCount).parallel().forEach(b -> computeCounts(topology,
+                (int) ((long) rows * b / bandCount), (int) ((long) rows * (b + 1) / bandCount)));
+    }
+
+    /**
+     * 计算 [firstRow, lastRow) 行的相邻地雷数
+     */
+    private void computeCounts(Topology topology, int firstRow, int lastRow) {
+        if (topology.getKind() != Topology.Kind.SQUARE) {
+            for (int i = firstRow; i < lastRow; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int cell = i * cols + j;
+                    int count = 0;
+                    if (!isMine(cell)) {
+                        for (int offset : topology.cellOffsets(i, j)) {
+                            count += (cells[cell + offset] >>> 4) & 1;
+                        }
+                    }
+                    cells[cell] = (byte) ((cells[cell] & ~COUNT_MASK) | count);
+                }
+            }
+            return;
+        }
+
+        // column[j + 1] 为第 j 列在当前行及上下两行中的地雷数，两端各留一个 0
+        int[] column = new int[cols + 2];
+        for (int i = firstRow; i < lastRow; i++) {
+            int base = i * cols;
+            for (int j = 0; j < cols; j++) {
+                int sum = (cells[base + j] >>> 4) & 1;
+                if (i > 0) {
+                    sum += (cells[base - cols + j] >>> 4) & 1;
+                }
+                if (i < rows - 1) {
+                    sum += (cells[base + cols + j] >>> 4) & 1;
+                }
+                column[j + 1] = sum;
+            }
+            for (int j = 0; j < cols; j++) {
+                int cell = base + j;
+                byte value = cells[cell];
+                int count = (value & MINE) != 0 ? 0 : column[j] + column[j + 1] + column[j + 2];
+                cells[cell] = (byte) ((value & ~COUNT_MASK) | count);
+            }
+        }
+    }
+
+    /**
+     * 复制出 boolean[][] 形式的揭示状态，供 MineProbability 等按二维数组工作的代码使用
+     */
+    public boolean[][] revealedArray() {
+        boolean[][] result = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = isRevealed(i * cols + j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 复制出 int[][] 形式的相邻地雷数
+     */
+    public int[][] adjacentMinesArray() {
+        int[][] result = new int[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = getAdjacentMines(i * cols + j);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 复制出 boolean[][] 形式的地雷位置
+     */
+    public boolean[][] minesArray() {
+        boolean[][] result = new boolean[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = isMine(i * cols + j);
+            }
+        }
+        return result;
+    }
+}
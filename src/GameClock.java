@@ -0,0 +1,214 @@
+/**
+ * 一局游戏的计时器，由共享的时间轮驱动
+ * <p>
+ * 已用时间由 System.nanoTime 计算（累计的运行时间加上本次开始以来的时间），而不是累加定时器的次数，
+ * 回调延迟或被合并都不会让时间变慢。计时器在时间轮上只占一个任务：
+ * 运行时在每个整秒到期，回调 secondElapsed 刷新显示；设置了空闲超时时，
+ * 在最后一次操作（touch）之后 idleTimeout 纳秒到期，回调 idle。
+ * touch 只记录时间，不重新安排任务，到期时发现有新的操作再顺延，因此每次操作的代价只是一次写入。
+ * </p>
+ * <p>
+ * 回调在时间轮线程上执行；start、stop、reset、touch 和读取时间可以在任何线程调用。
+ * start、stop 和 elapsedNanos 也可以传入调用方取得的 System.nanoTime 时间戳，
+ * 例如点击事件到达时的时间，这样成绩只由第一次点击和结束那次点击的时间决定，与事件线程何时处理它们无关。
+ * </p>
+ */
+public final class GameClock extends TimerWheel.Timeout {
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * 计时器回调
+     */
+    public interface Listener {
+        /**
+         * 运行中的计时器经过一个整秒
+         *
+         * @param clock 计时器
+         * @param elapsedSeconds 已用秒数
+         */
+        void secondElapsed(GameClock clock, long elapsedSeconds);
+
+        /**
+         * 自最后一次操作以来经过了空闲超时时间，每次空闲只回调一次
+         */
+        default void idle(GameClock clock) {
+        }
+    }
+
+    private final TimerWheel wheel;
+    private final Listener listener;
+
+    /**
+     * 空闲超时（纳秒），0 表示不检测空闲
+     */
+    private final long idleTimeout;
+
+    /**
+     * 以下字段由 this 保护
+     */
+    private boolean running;
+    private long startedAt;
+    private long accumulated;
+    private long reportedSeconds;
+    private long lastActivity;
+    private boolean idleReported;
+
+    /**
+     * 创建停止状态的计时器
+     *
+     * @param wheel 驱动计时器的时间轮
+     * @param listener 回调
+     * @param idleTimeout 空闲超时（纳秒），0 表示不检测空闲
+     */
+    public GameClock(TimerWheel wheel, Listener listener, long idleTimeout) {
+        this.wheel = wheel;
+        this.listener = listener;
+        this.idleTimeout = idleTimeout;
+        this.lastActivity = System.nanoTime();
+    }
+
+    /**
+     * 开始或继续计时，已在运行时不做任何事
+     */
+    public void start() {
+        start(System.nanoTime());
+    }
+
+    /**
+     * 从指定时刻开始或继续计时，已在运行时不做任何事
+     *
+     * @param now 开始时刻（System.nanoTime）
+     */
+    public synchronized void start(long now) {
+        if (running) {
+            return;
+        }
+        running = true;
+        startedAt = now;
+        lastActivity = now;
+        idleReported = false;
+        reschedule(now);
+    }
+
+    /**
+     * 暂停计时，保留已用时间
+     */
+    public void stop() {
+        stop(System.nanoTime());
+    }
+
+    /**
+     * 在指定时刻暂停计时，早于开始时刻时按开始时刻计算
+     *
+     * @param now 结束时刻（System.nanoTime）
+     */
+    public synchronized void stop(long now) {
+        if (!running) {
+            return;
+        }
+        now = Math.max(now, startedAt);
+        accumulated += now - startedAt;
+        running = false;
+        reschedule(now);
+    }
+
+    /**
+     * 停止计时并把已用时间清零
+     */
+    public synchronized void reset() {
+        running = false;
+        accumulated = 0;
+        reportedSeconds = 0;
+        reschedule(System.nanoTime());
+    }
+
+    /**
+     * 记录一次操作，推迟空闲超时
+     */
+    public synchronized void touch() {
+        lastActivity = System.nanoTime();
+        if (idleReported) {
+            idleReported = false;
+            reschedule(lastActivity);
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 已用时间（纳秒）
+     */
+    public synchronized long elapsedNanos() {
+        return elapsedNanos(System.nanoTime());
+    }
+
+    /**
+     * 指定时刻的已用时间（纳秒），早于开始时刻时按开始时刻计算；已停止时与时刻无关
+     *
+     * @param now 时刻（System.nanoTime）
+     */
+    public synchronized long elapsedNanos(long now) {
+        return running ? accumulated + Math.max(0, now - startedAt) : accumulated;
+    }
+
+    /**
+     * 已用毫秒数
+     */
+    public long elapsedMillis() {
+        return elapsedNanos() / 1_000_000;
+    }
+
+    /**
+     * 已用整秒数
+     */
+    public long elapsedSeconds() {
+        return elapsedNanos() / SECOND;
+    }
+
+    /**
+     * 按下一个整秒和空闲超时中较早的一个重新安排，两者都不需要时从时间轮中取消
+     */
+    private void reschedule(long now) {
+        long delay = Long.MAX_VALUE;
+        if (running) {
+            delay = SECOND - elapsedNanos(now) % SECOND;
+        }
+        if (idleTimeout > 0 && !idleReported) {
+            delay = Math.min(delay, lastActivity + idleTimeout - now);
+        }
+        if (delay == Long.MAX_VALUE) {
+            wheel.cancel(this);
+        } else {
+            wheel.schedule(this, delay);
+        }
+    }
+
+    @Override
+    protected void expired() {
+        long seconds = -1;
+        boolean idle = false;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (running) {
+                long elapsed = elapsedNanos(now) / SECOND;
+                if (elapsed > reportedSeconds) {
+                    reportedSeconds = elapsed;
+                    seconds = elapsed;
+                }
+            }
+            if (idleTimeout > 0 && !idleReported && now - lastActivity >= idleTimeout) {
+                idleReported = true;
+                idle = true;
+            }
+            reschedule(now);
+        }
+        if (seconds >= 0) {
+            listener.secondElapsed(this, seconds);
+        }
+        if (idle) {
+            listener.idle(this);
+        }
+    }
+}
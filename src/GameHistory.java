@@ -0,0 +1,922 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * 对局历史存储
+ * 保存每一局已结束的游戏：种子、棋盘尺寸、地雷数、棋盘类型、结果、用时、点击次数、3BV 和结束时间。
+ * <p>
+ * 数据以只追加的列式文件保存：
+ * - 每 BLOCK_ROWS 局组成一个块，块内每一列按帧参考法压缩为定宽的位序列：
+ *   每个值存为与块内最小值的差，位宽由块内最大值与最小值之差决定，
+ *   例如块内只有胜负两种取值的列每局只占 1 位，取值唯一的列不占空间
+ * - 块头记录行数、首行序号以及每一列的最小值、最大值、总和和压缩后长度
+ * - 尚未凑满一个块的对局以定宽行追加到尾部文件，凑满后封装成块写入主文件并清空尾部文件
+ * 查询时先读取所有块头（只有几百字节一个），块的最小值、最大值与查询条件不相交时直接跳过，
+ * 相交的块也只解码查询用到的列，并逐列过滤出满足条件的行；
+ * 完全落在条件范围内的块做计数、求和类统计时直接使用块头中的总和，不必解码。
+ * <p>
+ * 多个游戏窗口和进程可能同时使用同一目录中的历史文件：
+ * - 追加、封装块和截断都在锁文件的排他锁（LegendList.lock）下进行，锁内先从上次读到的位置继续加载块索引，
+ *   尾部行的序号总是基于最新的块总行数
+ * - 查询时在锁内刷新块索引并读取尾部文件，随后在锁外读取块；已经写完的块不会再改变，
+ *   锁外读取不会与其他进程的写入冲突
+ * - 锁放在单独的锁文件上，读写主文件和尾部文件时打开、关闭的文件句柄不会影响这把锁
+ * 可以在命令行运行：java GameHistory 目录 stats|median 行 列 地雷|bench 局数
+ * </p>
+ */
+public class GameHistory {
+    /**
+     * 列编号
+     */
+    public static final int SEED = 0;
+    public static final int ROWS = 1;
+    public static final int COLS = 2;
+    public static final int MINES = 3;
+    public static final int KIND = 4;
+    public static final int WON = 5;
+    public static final int DURATION = 6;
+    public static final int CLICKS = 7;
+    public static final int BBBV = 8;
+    public static final int TIMESTAMP = 9;
+
+    /**
+     * 尾部文件中每一列的字节宽度
+     */
+    private static final int[] WIDTHS = {8, 2, 2, 4, 1, 1, 4, 4, 4, 8};
+
+    private static final int COLUMNS = WIDTHS.length;
+
+    /**
+     * 一行的字节宽度（不含序号）
+     */
+    private static final int ROW_WIDTH = Arrays.stream(WIDTHS).sum();
+
+    /**
+     * 每个块的行数
+     */
+    private static final int BLOCK_ROWS = 4096;
+
+    /**
+     * 块头的魔数
+     */
+    private static final int BLOCK_MAGIC = 0x4D534748; // "MSGH"
+
+    /**
+     * 块头长度：魔数、行数、首行序号，以及每列的最小值、最大值、总和、编码后长度
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 + COLUMNS * (8 + 8 + 8 + 4);
+
+    private static final String DATA_FILE = "GameHistory.dat";
+    private static final String TAIL_FILE = "GameHistory.tail";
+    private static final String LOCK_FILE = "GameHistory.lock";
+
+    private final File dataFile;
+    private final File tailFile;
+    private final File lockFile;
+
+    /**
+     * 已加载的块索引，按文件顺序排列；为 null 表示尚未加载
+     */
+    private List<Block> blocks;
+
+    /**
+     * 主文件中所有块的总行数
+     */
+    private long blockRows;
+
+    /**
+     * 已加载的最后一个块在主文件中的结束位置，刷新索引时从这里继续读取块头
+     */
+    private long indexEnd;
+
+    /**
+     * 一局游戏的记录
+     */
+    public static final class Game {
+        final long seed;
+        final int rows;
+        final int cols;
+        final int mines;
+        final int kind;
+        final boolean won;
+        final int durationMillis;
+        final int clicks;
+        final int bbbv;
+        final long timestamp;
+
+        /**
+         * @param seed 生成棋盘使用的随机种子
+         * @param rows 行数
+         * @param cols 列数
+         * @param mines 地雷数
+         * @param kind 棋盘类型（Topology.Kind 的序号）
+         * @param won 是否获胜
+         * @param durationMillis 用时（毫秒）
+         * @param clicks 点击次数
+         * @param bbbv 棋盘 3BV
+         * @param timestamp 结束时间（毫秒时间戳）
+         */
+        public Game(long seed, int rows, int cols, int mines, int kind, boolean won,
+                    int durationMillis, int clicks, int bbbv, long timestamp) {
+            this.seed = seed;
+            this.rows = rows;
+            this.cols = cols;
+            this.mines = mines;
+            this.kind = kind;
+            this.won = won;
+            this.durationMillis = durationMillis;
+            this.clicks = clicks;
+            this.bbbv = bbbv;
+            this.timestamp = timestamp;
+        }
+
+        long get(int column) {
+            switch (column) {
+                case SEED: return seed;
+                case ROWS: return rows;
+                case COLS: return cols;
+                case MINES: return mines;
+                case KIND: return kind;
+                case WON: return won ? 1 : 0;
+                case DURATION: return durationMillis;
+                case CLICKS: return clicks;
+                case BBBV: return bbbv;
+                default: return timestamp;
+            }
+        }
+    }
+
+    /**
+     * 块索引：块在文件中的位置和每列的统计信息
+     */
+    private static final class Block {
+        long offset;
+        int rowCount;
+        long firstRow;
+        final long[] min = new long[COLUMNS];
+        final long[] max = new long[COLUMNS];
+        final long[] sum = new long[COLUMNS];
+        final int[] length = new int[COLUMNS];
+
+        long columnOffset(int column) {
+            long position = offset + HEADER_SIZE;
+            for (int c = 0; c < column; c++) {
+                position += length[c];
+            }
+            return position;
+        }
+    }
+
+    /**
+     * 查询条件：每一列的取值范围（闭区间），未设置的列不限制
+     */
+    public static final class Filter {
+        final long[] min = new long[COLUMNS];
+        final long[] max = new long[COLUMNS];
+
+        public Filter() {
+            Arrays.fill(min, Long.MIN_VALUE);
+            Arrays.fill(max, Long.MAX_VALUE);
+        }
+
+        /**
+         * 限制某一列的取值范围
+         *
+         * @return 当前条件，便于链式调用
+         */
+        public Filter range(int column, long from, long to) {
+            min[column] = Math.max(min[column], from);
+            max[column] = Math.min(max[column], to);
+            return this;
+        }
+
+        public Filter equal(int column, long value) {
+            return range(column, value, value);
+        }
+
+        boolean overlaps(long[] blockMin, long[] blockMax) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (blockMax[c] < min[c] || blockMin[c] > max[c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 块在某一列上的取值是否完全落在条件范围内
+         */
+        boolean contains(int column, long blockMin, long blockMax) {
+            return blockMin >= min[column] && blockMax <= max[column];
+        }
+
+        boolean constrains(int column) {
+            return min[column] != Long.MIN_VALUE || max[column] != Long.MAX_VALUE;
+        }
+
+        boolean matches(long[] values) {
+            for (int c = 0; c < COLUMNS; c++) {
+                if (values[c] < min[c] || values[c] > max[c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 逐行接收查询结果
+     */
+    public interface RowConsumer {
+        /**
+         * @param values 按列编号索引的取值，只有请求的列有效；数组会被复用
+         */
+        void accept(long[] values);
+    }
+
+    /**
+     * 某个难度的胜率统计
+     */
+    public static final class WinRate {
+        long games;
+        long wins;
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public double getRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+    }
+
+    /**
+     * 打开指定目录中的对局历史，文件在第一次写入时创建
+     *
+     * @param directory 存放历史文件的目录
+     */
+    public GameHistory(File directory) {
+        this.dataFile = new File(directory, DATA_FILE);
+        this.tailFile = new File(directory, TAIL_FILE);
+        this.lockFile = new File(directory, LOCK_FILE);
+    }
+
+    // ------------------------------------------------------------------
+    // 写入
+    // ------------------------------------------------------------------
+
+    /**
+     * 追加一局游戏，尾部文件凑满一个块时封装成块写入主文件
+     *
+     * @param game 对局记录
+     * @throws IOException 写入失败时抛出
+     */
+    public synchronized void append(Game game) throws IOException {
+        appendAll(Collections.singletonList(game));
+    }
+
+    /**
+     * 批量追加对局，用于导入模拟运行的结果
+     *
+     * @param games 对局记录
+     * @throws IOException 写入失败时抛出
+     */
+    public synchronized void appendAll(Iterable<Game> games) throws IOException {
+        File parent = dataFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("无法创建目录: " + parent);
+        }
+        LegendList.LockedFile lock = LegendList.lock(lockFile);
+        try {
+            loadIndex();
+            // pending 的前 persisted 行已经在尾部文件中
+            List<Game> pending = readTail();
+            int persisted = pending.size();
+            for (Game game : games) {
+                pending.add(game);
+                if (pending.size() == BLOCK_ROWS) {
+                    writeBlock(pending);
+                    pending.clear();
+                    persisted = 0;
+                    truncateTail();
+                }
+            }
+            if (pending.size() > persisted) {
+                try (DataOutputStream tail = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(tailFile, true)))) {
+                    for (int i = persisted; i < pending.size(); i++) {
+                        writeTailRow(tail, blockRows + i, pending.get(i));
+                    }
+                }
+            }
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * 尾部文件的一行：序号 + 定宽列
+     * 序号小于主文件总行数的行已经写入块中（封装后尚未清空尾部文件时崩溃），读取时会被跳过。
+     */
+    private void writeTailRow(DataOutputStream out, long row, Game game) throws IOException {
+        out.writeLong(row);
+        for (int c = 0; c < COLUMNS; c++) {
+            writeValue(out, WIDTHS[c], game.get(c));
+        }
+    }
+
+    private void truncateTail() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(tailFile, "rw")) {
+            file.setLength(0);
+        }
+    }
+
+    /**
+     * 把一组对局封装为列式块追加到主文件
+     */
+    private void writeBlock(List<Game> games) throws IOException {
+        Block block = new Block();
+        block.rowCount = games.size();
+        block.firstRow = blockRows;
+        byte[][] chunks = new byte[COLUMNS][];
+        for (int c = 0; c < COLUMNS; c++) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long sum = 0;
+            for (Game game : games) {
+                long value = game.get(c);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+            }
+            block.min[c] = min;
+            block.max[c] = max;
+            block.sum[c] = sum;
+            chunks[c] = pack(games, c, min, bitWidth(min, max));
+            block.length[c] = chunks[c].length;
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+            block.offset = file.length();
+            file.seek(block.offset);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(BLOCK_MAGIC);
+            out.writeInt(block.rowCount);
+            out.writeLong(block.firstRow);
+            for (int c = 0; c < COLUMNS; c++) {
+                out.writeLong(block.min[c]);
+                out.writeLong(block.max[c]);
+                out.writeLong(block.sum[c]);
+                out.writeInt(block.length[c]);
+            }
+            for (byte[] chunk : chunks) {
+                out.write(chunk);
+            }
+            file.write(bytes.toByteArray());
+            file.getFD().sync();
+            indexEnd = block.offset + bytes.size();
+        }
+        blocks.add(block);
+        blockRows += block.rowCount;
+    }
+
+    private static void writeValue(DataOutputStream out, int width, long value) throws IOException {
+        for (int shift = (width - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    /**
+     * 块内一列每个值占用的位数，取值唯一时为 0
+     */
+    private static int bitWidth(long min, long max) {
+        // 差值按无符号数处理，随机种子等跨越正负的列也不会溢出
+        return 64 - Long.numberOfLeadingZeros(max - min);
+    }
+
+    /**
+     * 把一列的值减去最小值后按固定位宽连续写入大端 long 序列
+     */
+    private static byte[] pack(List<Game> games, int column, long min, int bits) throws IOException {
+        long[] words = new long[(int) (((long) games.size() * bits + 63) / 64)];
+        long position = 0;
+        for (int i = 0; i < games.size() && bits > 0; i++) {
+            Game game = games.get(i);
+            long value = game.get(column) - min;
+            int word = (int) (position >>> 6);
+            int offset = (int) (position & 63);
+            words[word] |= value << offset;
+            if (offset + bits > 64) {
+                words[word + 1] |= value >>> (64 - offset);
+            }
+            position += bits;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(words.length * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        return bytes.toByteArray();
+    }
+
+    // ------------------------------------------------------------------
+    // 读取
+    // ------------------------------------------------------------------
+
+    /**
+     * 读取主文件中新增的块头，更新块索引；必须持有锁文件的排他锁
+     * 第一次调用时读取所有块头，之后只从上次读到的位置继续，读取其他进程追加的块。
+     * 末尾不完整的块（写入时崩溃）会被截掉：写入块时也持有同一把锁，此时不会有进程正在写入。
+     */
+    private void loadIndex() throws IOException {
+        if (blocks == null || dataFile.length() < indexEnd) {
+            blocks = new ArrayList<>();
+            blockRows = 0;
+            indexEnd = 0;
+        }
+        if (dataFile.isFile()) {
+            try (RandomAccessFile file = new RandomAccessFile(dataFile, "rw")) {
+                long position = indexEnd;
+                long length = file.length();
+                while (position + HEADER_SIZE <= length) {
+                    file.seek(position);
+                    if (file.readInt() != BLOCK_MAGIC) {
+                        break;
+                    }
+                    Block block = new Block();
+                    block.offset = position;
+                    block.rowCount = file.readInt();
+                    block.firstRow = file.readLong();
+                    long size = HEADER_SIZE;
+                    for (int c = 0; c < COLUMNS; c++) {
+                        block.min[c] = file.readLong();
+                        block.max[c] = file.readLong();
+                        block.sum[c] = file.readLong();
+                        block.length[c] = file.readInt();
+                        size += block.length[c];
+                    }
+                    if (position + size > length) {
+                        break;
+                    }
+                    blocks.add(block);
+                    blockRows += block.rowCount;
+                    position += size;
+                }
+                if (position < length) {
+                    file.setLength(position);
+                }
+                indexEnd = position;
+            }
+        }
+    }
+
+    /**
+     * 在锁内刷新块索引并读取尾部文件，作为一次查询的快照
+     * 目录不存在时没有任何历史，不创建目录。
+     *
+     * @return 尾部文件中尚未封装成块的对局
+     */
+    private List<Game> refresh() throws IOException {
+        if (!lockFile.getAbsoluteFile().getParentFile().isDirectory()) {
+            if (blocks == null) {
+                blocks = new ArrayList<>();
+            }
+            return new ArrayList<>();
+        }
+        LegendList.LockedFile lock = LegendList.lock(lockFile);
+        try {
+            loadIndex();
+            return readTail();
+        } finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * 读取尾部文件中尚未封装成块的对局
+     */
+    private List<Game> readTail() throws IOException {
+        List<Game> games = new ArrayList<>();
+        if (!tailFile.isFile()) {
+            return games;
+        }
+        long[] values = new long[COLUMNS];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tailFile)))) {
+            byte[] row = new byte[8 + ROW_WIDTH];
+            while (true) {
+                try {
+                    in.readFully(row);
+                } catch (EOFException e) {
+                    break; // 末尾不完整的行被忽略
+                }
+                long sequence = readValue(row, 0, 8);
+                int position = 8;
+                for (int c = 0; c < COLUMNS; c++) {
+                    values[c] = readValue(row, position, WIDTHS[c]);
+                    position += WIDTHS[c];
+                }
+                if (sequence < blockRows) {
+                    continue; // 已经封装进块
+                }
+                games.add(new Game(values[SEED], (int) values[ROWS], (int) values[COLS], (int) values[MINES],
+                        (int) values[KIND], values[WON] != 0, (int) values[DURATION], (int) values[CLICKS],
+                        (int) values[BBBV], values[TIMESTAMP]));
+            }
+        }
+        return games;
+    }
+
+    /**
+     * 读取大端定宽整数，2 字节和 4 字节的列按有符号数解释，1 字节按无符号解释
+     */
+    private static long readValue(byte[] data, int position, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            value = (value << 8) | (data[position + i] & 0xFF);
+        }
+        if (width > 1 && width < 8) {
+            int shift = 64 - width * 8;
+            value = (value << shift) >> shift;
+        }
+        return value;
+    }
+
+    /**
+     * 按块接收查询结果
+     */
+    public interface BlockConsumer {
+        /**
+         * @param columns 按列编号索引的列数据，只有请求的列有效；数组会被复用
+         * @param selected 满足条件的行号
+         * @param count 满足条件的行数
+         */
+        void accept(long[][] columns, int[] selected, int count);
+    }
+
+    /**
+     * 按条件扫描对局，逐行回调
+     *
+     * @param filter 查询条件
+     * @param columns 需要读取的列
+     * @param consumer 接收每一行满足条件的对局
+     * @throws IOException 读取失败时抛出
+     */
+    public void scan(Filter filter, int[] columns, RowConsumer consumer) throws IOException {
+        long[] values = new long[COLUMNS];
+        scanBlocks(filter, columns, (data, selected, count) -> {
+            for (int i = 0; i < count; i++) {
+                int row = selected[i];
+                for (int c : columns) {
+                    values[c] = data[c][row];
+                }
+                consumer.accept(values);
+            }
+        });
+    }
+
+    /**
+     * 按条件扫描对局，按块回调
+     * 块的最小值、最大值与条件不相交时整块跳过；相交时只解压条件和请求中用到的列，
+     * 并且只对取值范围没有完全落在条件内的列逐行过滤。
+     *
+     * @param filter 查询条件
+     * @param columns 需要读取的列
+     * @param consumer 接收每个块中满足条件的行
+     * @throws IOException 读取失败时抛出
+     */
+    public synchronized void scanBlocks(Filter filter, int[] columns, BlockConsumer consumer) throws IOException {
+        scanBlocks(filter, columns, consumer, null, refresh());
+    }
+
+    /**
+     * 扫描的实现，skip 不为 null 时跳过被它选中的块（调用方已经用块头统计过）；
+     * 块索引和 tail 由调用方用 refresh 刷新得到
+     */
+    private void scanBlocks(Filter filter, int[] columns, BlockConsumer consumer,
+                            Predicate<Block> skip, List<Game> tail) throws IOException {
+        long[][] data = new long[COLUMNS][];
+        boolean[] loaded = new boolean[COLUMNS];
+        int[] selected = new int[BLOCK_ROWS];
+        byte[] buffer = new byte[BLOCK_ROWS * 8];
+        if (!blocks.isEmpty()) {
+            try (RandomAccessFile file = new RandomAccessFile(dataFile, "r")) {
+                for (Block block : blocks) {
+                    if (!filter.overlaps(block.min, block.max) || (skip != null && skip.test(block))) {
+                        continue;
+                    }
+                    Arrays.fill(loaded, false);
+                    int count = block.rowCount;
+                    for (int row = 0; row < count; row++) {
+                        selected[row] = row;
+                    }
+                    for (int c = 0; c < COLUMNS && count > 0; c++) {
+                        if (!filter.constrains(c) || filter.contains(c, block.min[c], block.max[c])) {
+                            continue;
+                        }
+                        data[c] = loadColumn(file, block, c, data[c], buffer);
+                        loaded[c] = true;
+                        count = select(data[c], filter.min[c], filter.max[c], selected, count);
+                    }
+                    if (count == 0) {
+                        continue;
+                    }
+                    for (int c : columns) {
+                        if (!loaded[c]) {
+                            data[c] = loadColumn(file, block, c, data[c], buffer);
+                            loaded[c] = true;
+                        }
+                    }
+                    consumer.accept(data, selected, count);
+                }
+            }
+        }
+
+        // 尾部文件中尚未封装的对局
+        if (!tail.isEmpty()) {
+            long[][] tailData = new long[COLUMNS][tail.size()];
+            for (int row = 0; row < tail.size(); row++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    tailData[c][row] = tail.get(row).get(c);
+                }
+            }
+            int[] tailSelected = new int[tail.size()];
+            int count = tail.size();
+            for (int row = 0; row < count; row++) {
+                tailSelected[row] = row;
+            }
+            for (int c = 0; c < COLUMNS && count > 0; c++) {
+                if (filter.constrains(c)) {
+                    count = select(tailData[c], filter.min[c], filter.max[c], tailSelected, count);
+                }
+            }
+            if (count > 0) {
+                consumer.accept(tailData, tailSelected, count);
+            }
+        }
+    }
+
+    /**
+     * 保留 selected 中取值落在 [min, max] 内的行
+     *
+     * @return 保留的行数
+     */
+    private static int select(long[] values, long min, long max, int[] selected, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = selected[i];
+            long value = values[row];
+            // 无分支写法：胜负这类随机分布的条件下分支预测几乎总是失败
+            selected[kept] = row;
+            kept += value >= min & value <= max ? 1 : 0;
+        }
+        return kept;
+    }
+
+    /**
+     * 读取并解码块中的一列；块内取值唯一的列直接填充，不必读取文件
+     */
+    private static long[] loadColumn(RandomAccessFile file, Block block, int column, long[] reuse,
+                                     byte[] buffer) throws IOException {
+        long[] values = reuse != null ? reuse : new long[BLOCK_ROWS];
+        long min = block.min[column];
+        int bits = bitWidth(min, block.max[column]);
+        if (bits == 0) {
+            Arrays.fill(values, 0, block.rowCount, min);
+            return values;
+        }
+        int length = block.length[column];
+        file.seek(block.columnOffset(column));
+        file.readFully(buffer, 0, length);
+        unpack(buffer, length / 8, block.rowCount, bits, min, values);
+        return values;
+    }
+
+    /**
+     * pack 的逆过程
+     */
+    private static void unpack(byte[] data, int wordCount, int count, int bits, long min, long[] values) {
+        long mask = bits == 64 ? -1L : (1L << bits) - 1;
+        long current = wordAt(data, 0);
+        int word = 0;
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            long value = current >>> offset;
+            offset += bits;
+            if (offset >= 64) {
+                offset -= 64;
+                word++;
+                current = word < wordCount ? wordAt(data, word) : 0;
+                if (offset > 0) {
+                    value |= current << (bits - offset);
+                }
+            }
+            values[i] = min + (value & mask);
+        }
+    }
+
+    private static long wordAt(byte[] data, int word) {
+        int p = word * 8;
+        return ((long) data[p] << 56) | ((long) (data[p + 1] & 0xFF) << 48)
+                | ((long) (data[p + 2] & 0xFF) << 40) | ((long) (data[p + 3] & 0xFF) << 32)
+                | ((long) (data[p + 4] & 0xFF) << 24) | ((data[p + 5] & 0xFF) << 16)
+                | ((data[p + 6] & 0xFF) << 8) | (data[p + 7] & 0xFF);
+    }
+
+    // ------------------------------------------------------------------
+    // 常用查询
+    // ------------------------------------------------------------------
+
+    /**
+     * 统计某个时间之后各难度的胜率
+     *
+     * @param since 起始时间（毫秒时间戳）
+     * @return 以“行x列/地雷数”为键的胜率统计
+     * @throws IOException 读取失败时抛出
+     */
+    public synchronized Map<String, WinRate> winRateByDifficulty(long since) throws IOException {
+        List<Game> tail = refresh();
+        Map<String, WinRate> result = new TreeMap<>();
+        Filter filter = new Filter().range(TIMESTAMP, since, Long.MAX_VALUE);
+
+        // 难度唯一且完全落在时间范围内的块直接使用块头中的行数和胜局总和
+        Predicate<Block> summarized = block ->
+                block.min[ROWS] == block.max[ROWS] && block.min[COLS] == block.max[COLS]
+                        && block.min[MINES] == block.max[MINES]
+                        && filter.contains(TIMESTAMP, block.min[TIMESTAMP], block.max[TIMESTAMP]);
+        for (Block block : blocks) {
+            if (summarized.test(block)) {
+                WinRate rate = winRate(result, block.min[ROWS], block.min[COLS], block.min[MINES]);
+                rate.games += block.rowCount;
+                rate.wins += block.sum[WON];
+            }
+        }
+
+        // 相邻的对局通常难度相同，沿用上一行的统计对象，避免逐行拼接键
+        long[] last = {-1, -1, -1};
+        WinRate[] current = new WinRate[1];
+        scanBlocks(filter, new int[]{ROWS, COLS, MINES, WON}, (data, selected, count) -> {
+            for (int i = 0; i < count; i++) {
+                int row = selected[i];
+                long rows = data[ROWS][row];
+                long cols = data[COLS][row];
+                long mines = data[MINES][row];
+                if (rows != last[0] || cols != last[1] || mines != last[2]) {
+                    current[0] = winRate(result, rows, cols, mines);
+                    last[0] = rows;
+                    last[1] = cols;
+                    last[2] = mines;
+                }
+                current[0].games++;
+                current[0].wins += data[WON][row];
+            }
+        }, summarized, tail);
+        return result;
+    }
+
+    private static WinRate winRate(Map<String, WinRate> result, long rows, long cols, long mines) {
+        String key = rows + "x" + cols + "/" + mines;
+        WinRate rate = result.get(key);
+        if (rate == null) {
+            rate = new WinRate();
+            result.put(key, rate);
+        }
+        return rate;
+    }
+
+    /**
+     * 计算某个难度获胜对局的用时中位数
+     *
+     * @return 用时中位数（毫秒），没有获胜对局时返回 -1
+     * @throws IOException 读取失败时抛出
+     */
+    public long medianDuration(int rows, int cols, int mines) throws IOException {
+        Filter filter = new Filter().equal(ROWS, rows).equal(COLS, cols).equal(MINES, mines).equal(WON, 1);
+        int[][] durations = {new int[BLOCK_ROWS]};
+        int[] count = {0};
+        scanBlocks(filter, new int[]{DURATION}, (data, selected, selectedCount) -> {
+            if (count[0] + selectedCount > durations[0].length) {
+                durations[0] = Arrays.copyOf(durations[0], Math.max(durations[0].length * 2, count[0] + selectedCount));
+            }
+            long[] column = data[DURATION];
+            for (int i = 0; i < selectedCount; i++) {
+                durations[0][count[0]++] = (int) column[selected[i]];
+            }
+        });
+        if (count[0] == 0) {
+            return -1;
+        }
+        return select(durations[0], count[0], (count[0] - 1) / 2);
+    }
+
+    /**
+     * 求非负整数序列中第 rank 小的值（从 0 开始）
+     * 先按高 16 位计数找到所在的桶，再在桶内按低 16 位计数，两遍线性扫描，不需要排序。
+     */
+    private static int select(int[] values, int count, int rank) {
+        int[] histogram = new int[1 << 16];
+        for (int i = 0; i < count; i++) {
+            histogram[values[i] >>> 16]++;
+        }
+        int high = 0;
+        while (rank >= histogram[high]) {
+            rank -= histogram[high++];
+        }
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < count; i++) {
+            if (values[i] >>> 16 == high) {
+                histogram[values[i] & 0xFFFF]++;
+            }
+        }
+        int low = 0;
+        while (rank >= histogram[low]) {
+            rank -= histogram[low++];
+        }
+        return high << 16 | low;
+    }
+
+    /**
+     * 命令行入口
+     *
+     * @param args 目录，加上 stats、median 行 列 地雷 或 bench 局数
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: java GameHistory <目录> stats | median <行> <列> <地雷> | bench <局数>");
+            System.exit(1);
+        }
+        GameHistory history = new GameHistory(new File(args[0]));
+        long thirtyDays = 30L * 24 * 3600 * 1000;
+        switch (args[1]) {
+            case "stats":
+                for (Map.Entry<String, WinRate> entry
+                        : history.winRateByDifficulty(System.currentTimeMillis() - thirtyDays).entrySet()) {
+                    WinRate rate = entry.getValue();
+                    System.out.printf("%-14s %10d 局  胜率 %.2f%%%n", entry.getKey(), rate.games, rate.getRate() * 100);
+                }
+                break;
+            case "median":
+                System.out.println(history.medianDuration(Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        Integer.parseInt(args[4])) + " ms");
+                break;
+            case "bench":
+                bench(history, Long.parseLong(args[2]));
+                break;
+            default:
+                System.err.println("未知命令: " + args[1]);
+                System.exit(1);
+        }
+    }
+
+    /**
+     * 模拟一次按难度分批进行的模拟运行，批量写入后测量常用查询的耗时
+     */
+    private static void bench(GameHistory history, long games) throws IOException {
+        int[][] difficulties = {{9, 9, 10}, {16, 16, 40}, {16, 30, 99}, {30, 30, 150}};
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long start = now - 90L * 24 * 3600 * 1000;
+        long perBatch = 100_000;
+        long begin = System.nanoTime();
+        List<Game> batch = new ArrayList<>();
+        for (long written = 0; written < games; ) {
+            int[] d = difficulties[(int) ((written / perBatch) % difficulties.length)];
+            long count = Math.min(perBatch, games - written);
+            for (long i = 0; i < count; i++) {
+                long timestamp = start + (now - start) * (written + i) / games;
+                boolean won = random.nextInt(100) < 100 - d[2] / 2;
+                batch.add(new Game(random.nextLong(), d[0], d[1], d[2], 0, won,
+                        1000 + random.nextInt(d[2] * 1000), 20 + random.nextInt(200), 5 + random.nextInt(100), timestamp));
+                if (batch.size() == BLOCK_ROWS * 16) {
+                    history.appendAll(batch);
+                    batch.clear();
+                }
+            }
+            written += count;
+        }
+        history.appendAll(batch);
+        System.out.printf("写入 %d 局: %.0f ms, 文件 %.1f MB%n", games, (System.nanoTime() - begin) / 1e6,
+                history.dataFile.length() / 1048576.0);
+
+        for (int run = 0; run < 3; run++) {
+            long t0 = System.nanoTime();
+            Map<String, WinRate> rates = history.winRateByDifficulty(now - 30L * 24 * 3600 * 1000);
+            long t1 = System.nanoTime();
+            long median = history.medianDuration(16, 30, 99);
+            long t2 = System.nanoTime();
+            System.out.printf("最近 30 天各难度胜率: %.1f ms (%d 个难度)；16x30/99 用时中位数 %d ms: %.1f ms%n",
+                    (t1 - t0) / 1e6, rates.size(), median, (t2 - t1) / 1e6);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import javax.swing.*;
 /**
  * 图标管理器工具类，负责使用 Java Graphics2D 绘制和提供游戏所需的图标。
  * 图标包括笑脸、死亡、胜利（王冠）、旗帜和地雷。
+ * 每个图标在第一次获取时才绘制并缓存，启动时只需绘制首屏用到的笑脸图标。
  */
 public class IconManager {
     /**
@@ -17,34 +18,25 @@ public class IconManager {
     private static final int RESET_ICON_SIZE = 24;
 
     /**
-     * 缓存的笑脸图标实例。
+     * 缓存的笑脸图标实例，第一次获取时创建。
      */
-    private static final ImageIcon smileIcon;
+    private static ImageIcon smileIcon;
     /**
      * 缓存的死亡图标实例。
      */
-    private static final ImageIcon deadIcon;
+    private static ImageIcon deadIcon;
     /**
      * 缓存的胜利（王冠）图标实例。
      */
-    private static final ImageIcon winIcon;
+    private static ImageIcon winIcon;
     /**
      * 缓存的旗帜图标实例。
      */
-    private static final ImageIcon flagIcon;
+    private static ImageIcon flagIcon;
     /**
      * 缓存的地雷图标实例。
      */
-    private static final ImageIcon mineIcon;
-
-    static {
-        // 初始化所有图标，在类加载时创建并缓存。
-        smileIcon = createSmileIcon();
-        deadIcon = createDeadIcon();
-        winIcon = createCrownIcon(); // 王冠图标
-        flagIcon = createFlagIcon();
-        mineIcon = createMineIcon();
-    }
+    private static ImageIcon mineIcon;
 
     /**
      * 创建笑脸图标。
@@ -205,25 +197,40 @@ public class IconManager {
      * 获取笑脸图标。
      * @return 笑脸图标的 ImageIcon 实例。
      */
-    public static ImageIcon getSmileIcon() { return smileIcon; }
+    public static synchronized ImageIcon getSmileIcon() {
+        if (smileIcon == null) smileIcon = createSmileIcon();
+        return smileIcon;
+    }
     /**
      * 获取死亡图标。
      * @return 死亡图标的 ImageIcon 实例。
      */
-    public static ImageIcon getDeadIcon() { return deadIcon; }
+    public static synchronized ImageIcon getDeadIcon() {
+        if (deadIcon == null) deadIcon = createDeadIcon();
+        return deadIcon;
+    }
     /**
      * 获取胜利（王冠）图标。
      * @return 胜利（王冠）图标的 ImageIcon 实例。
      */
-    public static ImageIcon getWinIcon() { return winIcon; }
+    public static synchronized ImageIcon getWinIcon() {
+        if (winIcon == null) winIcon = createCrownIcon(); // 王冠图标
+        return winIcon;
+    }
     /**
      * 获取旗帜图标。
      * @return 旗帜图标的 ImageIcon 实例。
      */
-    public static ImageIcon getFlagIcon() { return flagIcon; }
+    public static synchronized ImageIcon getFlagIcon() {
+        if (flagIcon == null) flagIcon = createFlagIcon();
+        return flagIcon;
+    }
     /**
      * 获取地雷图标。
      * @return 地雷图标的 ImageIcon 实例。
      */
-    public static ImageIcon getMineIcon() { return mineIcon; }
+    public static synchronized ImageIcon getMineIcon() {
+        if (mineIcon == null) mineIcon = createMineIcon();
+        return mineIcon;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * 英雄榜表格的数据模型
+ * <p>
+ * 记录按列保存在基本类型数组中：用时、3BV、点击次数各一个数组，玩家名连续存放在一个字符数组中，
+ * 种子和操作记录这些表格不显示的大字段读取后立即丢弃，每条记录只占二十几个字节，不创建 Record 对象。
+ * 表格只对可见的行调用 getValueAt，数字的装箱和格式化只发生在正在显示的几十行上。
+ * </p>
+ * <p>
+ * 排序和筛选都在下标数组上进行：
+ * - 每种排名方式第一次使用时计算一次，结果缓存下来，切换排名方式不必重新排序。
+ *   排序把每条记录的排序键转换成 long，与记录下标一起做稳定的归并排序，两个数组都是顺序访问；
+ *   3BV/s 排名从时间排名出发只按 3BV/s 排序，效率排名从 3BV/s 排名出发只按效率排序，
+ *   稳定排序保证相同时的先后与 Record 中比较器的次级排序一致
+ * - 按玩家名筛选时先按文件顺序扫描名字得到匹配的位图，再按排名顺序收集匹配的排名位置，
+ *   排名列显示的仍是在全部记录中的名次
+ * 模型由 read 在后台线程构建，之后只在事件线程上使用。
+ * </p>
+ */
+public class LeaderboardModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"排名", "玩家", "时间(秒)", "3BV", "点击", "3BV/s", "效率"};
+
+    /**
+     * 排名方式，与 LegendList.Record 中同名的比较器顺序相同
+     */
+    public enum Ranking {
+        BY_TIME("按时间"),
+        BY_BBBV_PER_SECOND("按3BV/s"),
+        BY_EFFICIENCY("按效率");
+
+        private final String label;
+
+        Ranking(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * 列数据，第 i 条记录的玩家名是 names[nameStart[i]] 到 names[nameStart[i + 1]] 之前的字符
+     */
+    private int size;
+    private long[] times = new long[64];
+    private int[] bbbvs = new int[64];
+    private int[] clickCounts = new int[64];
+    private int[] nameStart = new int[65];
+    private char[] names = new char[512];
+
+    /**
+     * 每种排名方式下按名次排列的记录下标，第一次使用时计算
+     */
+    private final int[][] orders = new int[Ranking.values().length][];
+
+    /**
+     * 当前的排名方式和筛选结果：显示的第 k 行是第 positions[k] 名（从 0 开始），没有筛选时 positions 为 null
+     */
+    private Ranking ranking = Ranking.BY_TIME;
+    private int[] order;
+    private int[] positions;
+    private int rowCount;
+    private String filter = "";
+
+    /**
+     * 读取记录文件，构建模型；文件不存在时返回空模型
+     *
+     * @param file 记录文件
+     * @return 按时间排名、没有筛选的模型
+     * @throws IOException 读取失败时抛出
+     */
+    public static LeaderboardModel read(File file) throws IOException {
+        LeaderboardModel model = new LeaderboardModel();
+        if (file.exists()) {
+            LegendList.forEachRecord(file, model::add);
+        }
+        model.setRanking(Ranking.BY_TIME);
+        return model;
+    }
+
+    private void add(LegendList.Record record) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            bbbvs = Arrays.copyOf(bbbvs, capacity);
+            clickCounts = Arrays.copyOf(clickCounts, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity + 1);
+        }
+        String name = record.getPlayerName();
+        int start = nameStart[size];
+        if (start + name.length() > names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, start + name.length()));
+        }
+        name.getChars(0, name.length(), names, start);
+        times[size] = record.getTimeMillis();
+        bbbvs[size] = record.getBbbv();
+        clickCounts[size] = record.getClicks();
+        size++;
+        nameStart[size] = start + name.length();
+    }
+
+    /**
+     * 记录总数，不受筛选影响
+     */
+    public int getRecordCount() {
+        return size;
+    }
+
+    public Ranking getRanking() {
+        return ranking;
+    }
+
+    /**
+     * 切换排名方式，保留当前的筛选
+     *
+     * @param ranking 排名方式
+     */
+    public void setRanking(Ranking ranking) {
+        this.ranking = ranking;
+        order = order(ranking);
+        applyFilter();
+    }
+
+    /**
+     * 只显示玩家名包含指定文本（不区分大小写）的记录
+     *
+     * @param text 筛选文本，为空时显示全部记录
+     */
+    public void setFilter(String text) {
+        filter = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        applyFilter();
+    }
+
+    private void applyFilter() {
+        if (filter.isEmpty()) {
+            positions = null;
+            rowCount = size;
+        } else {
+            long[] bits = new long[(size + 63) >>> 6];
+            for (int index = 0; index < size; index++) {
+                if (nameContains(index, filter)) {
+                    bits[index >>> 6] |= 1L << index;
+                }
+            }
+            int[] matched = positions != null && positions.length == size ? positions : new int[size];
+            int count = 0;
+            for (int position = 0; position < size; position++) {
+                int index = order[position];
+                if ((bits[index >>> 6] & (1L << index)) != 0) {
+                    matched[count++] = position;
+                }
+            }
+            positions = matched;
+            rowCount = count;
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * 判断第 index 条记录的玩家名是否包含 text，text 已经转成小写
+     */
+    private boolean nameContains(int index, String text) {
+        int start = nameStart[index];
+        int last = nameStart[index + 1] - text.length();
+        for (int from = start; from <= last; from++) {
+            int k = 0;
+            while (k < text.length() && Character.toLowerCase(names[from + k]) == text.charAt(k)) {
+                k++;
+            }
+            if (k == text.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------
+    // 排序
+    // ------------------------------------------------------------------
+
+    /**
+     * 按名次排列的记录下标，第一次使用时由上一级排名再排序得到
+     */
+    private int[] order(Ranking ranking) {
+        int[] sorted = orders[ranking.ordinal()];
+        if (sorted != null) {
+            return sorted;
+        }
+        long[] keys = new long[size];
+        if (ranking == Ranking.BY_TIME) {
+            sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = i;
+                keys[i] = times[i];
+            }
+        } else {
+            sorted = order(ranking == Ranking.BY_EFFICIENCY ? Ranking.BY_BBBV_PER_SECOND : Ranking.BY_TIME).clone();
+            for (int i = 0; i < size; i++) {
+                int index = sorted[i];
+                double value = ranking == Ranking.BY_EFFICIENCY
+                        ? LegendList.Record.efficiency(bbbvs[index], clickCounts[index])
+                        : LegendList.Record.bbbvPerSecond(bbbvs[index], times[index]);
+                keys[i] = ~sortableBits(value); // 降序
+            }
+        }
+        sort(keys, sorted);
+        orders[ranking.ordinal()] = sorted;
+        return sorted;
+    }
+
+    /**
+     * 把 double 转换成大小顺序与 Double.compare 相同的 long
+     */
+    private static long sortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * 按 keys 升序对 keys 和 values 同时做稳定的归并排序，键相同的元素保持原来的先后顺序
+     */
+    private static void sort(long[] keys, int[] values) {
+        int length = keys.length;
+        long[] keyBuffer = new long[length];
+        int[] valueBuffer = new int[length];
+        long[] keysFrom = keys;
+        int[] valuesFrom = values;
+        long[] keysTo = keyBuffer;
+        int[] valuesTo = valueBuffer;
+        // 先对每 16 个元素插入排序，再逐轮归并相邻的两段
+        int run = 16;
+        for (int start = 0; start < length; start += run) {
+            int end = Math.min(start + run, length);
+            for (int i = start + 1; i < end; i++) {
+                long key = keys[i];
+                int value = values[i];
+                int j = i - 1;
+                while (j >= start && keys[j] > key) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                keys[j + 1] = key;
+                values[j + 1] = value;
+            }
+        }
+        for (; run < length; run *= 2) {
+            for (int start = 0; start < length; start += 2 * run) {
+                int middle = Math.min(start + run, length);
+                int end = Math.min(start + 2 * run, length);
+                int i = start;
+                int j = middle;
+                int k = start;
+                while (i < middle && j < end) {
+                    if (keysFrom[j] < keysFrom[i]) {
+                        keysTo[k] = keysFrom[j];
+                        valuesTo[k++] = valuesFrom[j++];
+                    } else {
+                        keysTo[k] = keysFrom[i];
+                        valuesTo[k++] = valuesFrom[i++];
+                    }
+                }
+                System.arraycopy(keysFrom, i, keysTo, k, middle - i);
+                System.arraycopy(valuesFrom, i, valuesTo, k, middle - i);
+                k += middle - i;
+                System.arraycopy(keysFrom, j, keysTo, k, end - j);
+                System.arraycopy(valuesFrom, j, valuesTo, k, end - j);
+            }
+            long[] keySwap = keysFrom;
+            keysFrom = keysTo;
+            keysTo = keySwap;
+            int[] valueSwap = valuesFrom;
+            valuesFrom = valuesTo;
+            valuesTo = valueSwap;
+        }
+        if (valuesFrom != values) {
+            System.arraycopy(valuesFrom, 0, values, 0, length);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // TableModel
+    // ------------------------------------------------------------------
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int position = positions == null ? row : positions[row];
+        int index = order[position];
+        // 旧记录没有 3BV 和点击次数，显示为“-”
+        boolean hasMetrics = bbbvs[index] > 0;
+        switch (column) {
+            case 0:
+                return position + 1;
+            case 1:
+                return new String(names, nameStart[index], nameStart[index + 1] - nameStart[index]);
+            case 2:
+                return LegendList.Record.formatTime(times[index]);
+            case 3:
+                return hasMetrics ? bbbvs[index] : "-";
+            case 4:
+                return hasMetrics ? clickCounts[index] : "-";
+            case 5:
+                return hasMetrics
+                        ? String.format("%.2f", LegendList.Record.bbbvPerSecond(bbbvs[index], times[index])) : "-";
+            default:
+                return hasMetrics
+                        ? String.format("%.0f%%", LegendList.Record.efficiency(bbbvs[index], clickCounts[index]) * 100)
+                        : "-";
+        }
+    }
+}
@@ -0,0 +1,423 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 英雄榜批量导入工具类
+ * 负责把任意数量的英雄榜文件或 LegendLists 目录合并成一份按难度划分、按时间排序、去除重复的英雄榜。
+ * <p>
+ * 合并过程是流式的外部排序：
+ * - 按文件名（LegendList_行数x列数_地雷数.txt）把输入文件按难度分组
+ * - 每次最多读入 RUN_SIZE 条记录，排序去重后写成一个临时有序段
+ * - 使用优先队列对有序段做 k 路归并，段数超过 MERGE_FAN_IN 时分多轮归并
+ * - 输入文件和目标文件都通过 LegendList 读取，不会读到正在写入的半行
+ * - 排序和多轮归并都在锁外完成：输入文件连同目标文件当时的记录先归并成一个有序文件；
+ *   之后才取得目标文件的排他锁，只把锁外读取之后追加的少量记录排序，与这个有序文件一次归并后就地改写，
+ *   同时运行的游戏追加的记录不会丢失
+ * 内存占用只取决于 RUN_SIZE 和 MERGE_FAN_IN，与输入记录总量无关。
+ * 可以在命令行运行：java LegendImporter 输出目录 输入文件或目录...
+ * </p>
+ */
+public class LegendImporter {
+    /**
+     * 每个有序段最多容纳的记录数
+     */
+    private static final int RUN_SIZE = 100_000;
+
+    /**
+     * 一轮归并最多同时打开的有序段数量
+     */
+    private static final int MERGE_FAN_IN = 64;
+
+    /**
+     * 读写文件使用的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 记录的全序：先按时间升序，时间相同时按记录内容排序，使重复记录相邻
+     */
+    private static final Comparator<LegendList.Record> ORDER =
+            LegendList.Record.BY_TIME.thenComparing(LegendList.Record::toLine);
+
+    private LegendImporter() {
+    }
+
+    /**
+     * 把输入的英雄榜文件和目录合并到输出目录
+     * 输出目录中已有的同难度文件也会作为输入参与合并，随后被合并结果替换。
+     *
+     * @param sources 英雄榜文件或包含英雄榜文件的目录（会递归查找）
+     * @param outputDir 输出目录，不存在时自动创建
+     * @return 每个难度文件名对应的合并后记录数
+     * @throws IOException 读写文件失败时抛出
+     */
+    public static Map<String, Long> merge(List<File> sources, File outputDir) throws IOException {
+        Map<String, List<File>> groups = new TreeMap<>();
+        for (File source : sources) {
+            collect(source, groups);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("无法创建目录: " + outputDir);
+        }
+
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, List<File>> group : groups.entrySet()) {
+            File target = new File(outputDir, group.getKey());
+            List<File> inputs = new ArrayList<>();
+            for (File input : group.getValue()) {
+                if (!input.getCanonicalFile().equals(target.getCanonicalFile())) {
+                    inputs.add(input);
+                }
+            }
+            counts.put(group.getKey(), mergeDifficulty(inputs, target));
+        }
+        return counts;
+    }
+
+    /**
+     * 递归收集英雄榜文件，按文件名分组
+     */
+    private static void collect(File source, Map<String, List<File>> groups) throws IOException {
+        if (source.isDirectory()) {
+            File[] children = source.listFiles();
+            if (children == null) {
+                throw new IOException("无法读取目录: " + source);
+            }
+            for (File child : children) {
+                collect(child, groups);
+            }
+        } else if (source.isFile() && LegendList.isLeaderboardFile(source.getName())) {
+            groups.computeIfAbsent(source.getName(), k -> new ArrayList<>()).add(source);
+        }
+    }
+
+    /**
+     * 合并同一难度的所有输入文件和目标文件中已有的记录，写入目标文件
+     * <p>
+     * 锁外把输入文件和目标文件当时的全部记录排序、归并成一个有序文件，并记下读到的目标记录数和校验和。
+     * 锁内按顺序读取目标文件：前面这些记录只核对校验和，之后追加的记录排成一个有序段，
+     * 与锁外的有序文件归并后改写目标文件。游戏只会在末尾追加，因此锁内的工作只有一次顺序读取和一次两路归并；
+     * 目标文件在锁外读取之后被整体改写过（例如另一个导入同时完成）时，校验和不一致，
+     * 锁内改为把它的全部记录重新排序参与归并——导入只会增加记录，这样得到的仍是两者的并集。
+     * </p>
+     *
+     * @param inputs 输入文件，不包括目标文件
+     * @return 合并后的记录数
+     */
+    private static long mergeDifficulty(List<File> inputs, File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        RunBuilder builder = new RunBuilder();
+        File merged = null;
+        try {
+            // 锁外：输入文件和目标文件当前的记录归并成一个有序文件
+            for (File input : inputs) {
+                builder.read(input, builder);
+            }
+            Snapshot snapshot = new Snapshot(builder);
+            if (target.isFile()) {
+                builder.read(target, snapshot);
+            }
+            builder.finish();
+            builder.reduce();
+            merged = File.createTempFile("legend-merge", ".tmp", directory);
+            mergeRuns(builder.runs, merged);
+            deleteAll(builder.runs);
+            builder.runs.clear();
+
+            // 锁内：只排序锁外读取之后追加的记录，与有序文件归并
+            File output = File.createTempFile("legend-merge", ".tmp", directory);
+            try (LegendList.LockedFile locked = LegendList.lock(target)) {
+                Appended appended = new Appended(snapshot, builder);
+                builder.read(locked, appended);
+                if (!appended.unchanged()) {
+                    deleteAll(builder.runs);
+                    builder.runs.clear();
+                    builder.discard();
+                    builder.read(locked, builder);
+                }
+                builder.finish();
+                builder.reduce();
+                builder.runs.add(merged);
+                merged = null; // 之后由 runs 负责删除
+                long count = mergeRuns(builder.runs, output);
+                locked.replaceWith(output);
+                return count;
+            } finally {
+                output.delete();
+            }
+        } finally {
+            deleteAll(builder.runs);
+            if (merged != null) {
+                merged.delete();
+            }
+        }
+    }
+
+    /**
+     * 校验一条记录：按记录行更新校验和
+     */
+    private static void update(CRC32 checksum, LegendList.Record record) {
+        checksum.update(record.toLine().getBytes(StandardCharsets.UTF_8));
+        checksum.update('\n');
+    }
+
+    /**
+     * 锁外读取目标文件时经过的记录，记下记录数和校验和后交给下一个处理
+     */
+    private static final class Snapshot implements Consumer<LegendList.Record> {
+        private final Consumer<LegendList.Record> next;
+        final CRC32 checksum = new CRC32();
+        long count;
+
+        Snapshot(Consumer<LegendList.Record> next) {
+            this.next = next;
+        }
+
+        @Override
+        public void accept(LegendList.Record record) {
+            update(checksum, record);
+            count++;
+            next.accept(record);
+        }
+    }
+
+    /**
+     * 锁内读取目标文件：前 count 条记录只核对校验和，之后追加的记录交给下一个处理
+     */
+    private static final class Appended implements Consumer<LegendList.Record> {
+        private final Snapshot snapshot;
+        private final Consumer<LegendList.Record> next;
+        private final CRC32 checksum = new CRC32();
+        private long index;
+
+        Appended(Snapshot snapshot, Consumer<LegendList.Record> next) {
+            this.snapshot = snapshot;
+            this.next = next;
+        }
+
+        @Override
+        public void accept(LegendList.Record record) {
+            if (index < snapshot.count) {
+                update(checksum, record);
+            } else {
+                next.accept(record);
+            }
+            index++;
+        }
+
+        /**
+         * 锁外读到的记录是否原样保留在文件开头
+         */
+        boolean unchanged() {
+            return index >= snapshot.count && checksum.getValue() == snapshot.checksum.getValue();
+        }
+    }
+
+    /**
+     * 把记录分批排序去重，写成临时有序段
+     */
+    private static final class RunBuilder implements Consumer<LegendList.Record> {
+        final List<File> runs = new ArrayList<>();
+        private final List<LegendList.Record> buffer = new ArrayList<>();
+
+        @Override
+        public void accept(LegendList.Record record) {
+            buffer.add(record);
+            if (buffer.size() == RUN_SIZE) {
+                try {
+                    finish();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * 读取输入文件中的完整记录，文件末尾正在写入的不完整行会被忽略
+         *
+         * @param consumer 记录的处理，最终应当交给本对象
+         */
+        void read(File input, Consumer<LegendList.Record> consumer) throws IOException {
+            try {
+                LegendList.forEachRecord(input, consumer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        void read(LegendList.LockedFile input, Consumer<LegendList.Record> consumer) throws IOException {
+            try {
+                input.forEachRecord(consumer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * 丢弃缓冲中尚未写成有序段的记录
+         */
+        void discard() {
+            buffer.clear();
+        }
+
+        /**
+         * 把缓冲的记录写成一个有序段
+         */
+        void finish() throws IOException {
+            if (!buffer.isEmpty()) {
+                runs.add(writeRun(buffer));
+                buffer.clear();
+            }
+        }
+
+        /**
+         * 段数过多时分轮归并，保证最后一轮同时打开的文件数有上限
+         */
+        void reduce() throws IOException {
+            while (runs.size() > MERGE_FAN_IN) {
+                List<File> next = new ArrayList<>();
+                try {
+                    for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+                        List<File> batch = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+                        File run = File.createTempFile("legend-run", ".txt");
+                        next.add(run);
+                        mergeRuns(batch, run);
+                    }
+                } catch (IOException e) {
+                    deleteAll(next);
+                    throw e;
+                }
+                deleteAll(runs);
+                runs.clear();
+                runs.addAll(next);
+            }
+        }
+    }
+
+    private static File writeRun(List<LegendList.Record> records) throws IOException {
+        records.sort(ORDER);
+        File run = File.createTempFile("legend-run", ".txt");
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(run), BUFFER_SIZE))) {
+            String previous = null;
+            for (LegendList.Record record : records) {
+                String line = record.toLine();
+                if (!line.equals(previous)) {
+                    out.println(line);
+                    previous = line;
+                }
+            }
+        }
+        return run;
+    }
+
+    /**
+     * k 路归并多个有序段，跳过相邻的重复记录
+     *
+     * @param runs 有序段文件
+     * @param output 输出文件
+     * @return 写出的记录数
+     */
+    private static long mergeRuns(List<File> runs, File output) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> ORDER.compare(a.current, b.current));
+        long count = 0;
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(output), BUFFER_SIZE))) {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            String previous = null;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                String line = reader.current.toLine();
+                if (!line.equals(previous)) {
+                    out.println(line);
+                    previous = line;
+                    count++;
+                }
+                if (reader.advance()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        return count;
+    }
+
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * 有序段的顺序读取器，保存当前读到的记录
+     */
+    private static final class RunReader implements Closeable {
+        private final BufferedReader reader;
+        private LegendList.Record current;
+
+        RunReader(File run) throws IOException {
+            reader = new BufferedReader(new FileReader(run), BUFFER_SIZE);
+        }
+
+        /**
+         * 读取下一条记录
+         *
+         * @return 是否还有记录
+         */
+        boolean advance() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                current = LegendList.Record.parse(line);
+                if (current != null) {
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * 命令行入口
+     *
+     * @param args 第一个参数为输出目录，其余参数为英雄榜文件或目录
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: java LegendImporter <输出目录> <英雄榜文件或目录>...");
+            System.exit(1);
+        }
+        List<File> sources = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sources.add(new File(args[i]));
+        }
+        Map<String, Long> counts = merge(sources, new File(args[0]));
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue() + " 条记录");
+        }
+    }
+}
@@ -1,13 +1,43 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * 英雄榜记录管理类
- * 负责管理和存储不同难度级别的游戏记录，包括玩家名称和完成时间。
- * 记录按照完成时间升序排序，存储在对应难度的文本文件中。
+ * 负责管理和存储不同难度级别的游戏记录，包括玩家名称、完成时间、棋盘 3BV 和点击次数。
+ * 记录默认按照完成时间升序排序，也可以按 3BV/s 或点击效率排序，存储在对应难度的文本文件中。
+ * 每行格式为：玩家名,时间,3BV,点击次数,种子,起始单元格,操作记录，后三列供 ReplayVerifier 重放校验；
+ * 时间以秒为单位，精确到毫秒（如 12.345），整秒时不写小数部分。
+ * 旧版本只有“玩家名,时间”两列或前四列，时间为整秒，读取时仍然兼容。
+ * <p>
+ * 多个游戏进程（或游戏与模拟程序）可能同时写同一个记录文件：
+ * - 追加记录时持有文件的排他锁（FileChannel.lock），锁内只做一次写入，持有时间尽量短
+ * - 同一进程内同时追加的记录合并为一批，由先拿到写入权的线程在一次加锁中一起写入
+ * - 读取时在共享锁下确定文件长度，只解析到最后一个完整行为止，不会读到写了一半的记录
+ * - 同一进程内的线程先取得该文件在进程内的锁再获取文件锁，JVM 内重叠的文件锁会抛出异常；
+ *   关闭通道也在这把锁下进行，有些系统上关闭任何一个通道都会释放本进程在该文件上的所有文件锁
+ * - 需要读取后整体改写时（导入合并）用 lock 取得排他锁，读取和改写都在锁内完成
+ * 可以在命令行运行压力测试：java LegendList stress 文件 进程数 每进程记录数
+ * </p>
  */
 public class LegendList {
     /**
@@ -20,26 +50,352 @@ public class LegendList {
      */
     private static final String LEADERBOARD_DIR = "LegendLists";
 
+    /**
+     * 记录目录是否已经确认存在，确认后不再重复访问文件系统
+     */
+    private static boolean directoryChecked;
+
     /**
      * 确保记录文件存储目录存在
-     * 如果目录不存在，则创建该目录
+     * 如果目录不存在，则创建该目录。只在第一次写入记录时检查，读取记录时不需要目录存在。
      */
     private static void ensureDirectoryExists() {
+        if (directoryChecked) {
+            return;
+        }
         File dir = new File(LEADERBOARD_DIR);
         if (!dir.exists()) {
             dir.mkdir(); // 创建目录
         }
+        directoryChecked = dir.isDirectory();
+    }
+
+    /**
+     * 记录文件使用的字符集，与原先 FileWriter、FileReader 的默认字符集一致
+     */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /**
+     * 每个记录文件在本进程内的追加队列，以规范路径为键
+     */
+    private static final Map<String, Appender> APPENDERS = new HashMap<>();
+
+    /**
+     * 一个记录文件在本进程内的追加队列
+     * 调用方先把记录放入队列并领取序号，再争夺写入权；拿到写入权的线程把队列中所有记录一起写入，
+     * 排在它后面等待的线程发现自己的记录已经写入后直接返回。
+     * 一批写入失败时记下这批的序号范围，范围内的每个调用方（包括执行写入的线程）都会收到异常。
+     */
+    private static final class Appender {
+        private final File file;
+
+        /**
+         * 写入权，同一时刻只有一个线程持有文件锁
+         */
+        private final Object writeLock = new Object();
+
+        /**
+         * 尚未写入的记录行，由 this 保护
+         */
+        private StringBuilder pending = new StringBuilder();
+
+        /**
+         * 已入队、已处理（写入或写入失败）的记录数
+         */
+        private long enqueued;
+        private long written;
+
+        /**
+         * 写入失败的批次，以批次的第一个序号为键，由 writeLock 保护；
+         * 批次内所有调用方都取走异常后删除
+         */
+        private final TreeMap<Long, Failure> failures = new TreeMap<>();
+
+        Appender(File file) {
+            this.file = file;
+        }
+
+        void append(String line) throws IOException {
+            long ticket;
+            synchronized (this) {
+                pending.append(line).append('\n');
+                ticket = ++enqueued;
+            }
+            synchronized (writeLock) {
+                if (written < ticket) {
+                    String batch;
+                    long upTo;
+                    synchronized (this) {
+                        batch = pending.toString();
+                        upTo = enqueued;
+                        pending = new StringBuilder();
+                    }
+                    try {
+                        writeLocked(file, batch.getBytes(CHARSET));
+                    } catch (IOException | RuntimeException e) {
+                        failures.put(written + 1, new Failure(upTo, upTo - written, e));
+                    }
+                    written = upTo;
+                }
+                Map.Entry<Long, Failure> entry = failures.floorEntry(ticket);
+                if (entry != null && ticket <= entry.getValue().upTo) {
+                    Failure failure = entry.getValue();
+                    if (--failure.waiting == 0) {
+                        failures.remove(entry.getKey());
+                    }
+                    throw new IOException("写入记录失败: " + file, failure.cause);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一批写入失败的记录：批次最后一个序号、失败原因和尚未收到异常的调用方数
+     */
+    private static final class Failure {
+        final long upTo;
+        final Exception cause;
+        long waiting;
+
+        Failure(long upTo, long waiting, Exception cause) {
+            this.upTo = upTo;
+            this.waiting = waiting;
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * 每个记录文件在本进程内的锁，以规范路径为键
+     * 同一个 JVM 中对同一文件的 FileLock 区间重叠时（即使都是共享锁）会抛出 OverlappingFileLockException，
+     * 因此本进程内的线程先持有这把锁，再获取操作系统的文件锁，文件锁只用于与其他进程互斥。
+     */
+    private static final ConcurrentHashMap<Path, ReentrantLock> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private static ReentrantLock fileLock(File file) throws IOException {
+        return FILE_LOCKS.computeIfAbsent(file.getCanonicalFile().toPath(), k -> new ReentrantLock());
+    }
+
+    /**
+     * 在文件排他锁下把一批完整的记录行追加到文件末尾
+     * 如果文件末尾是上次写入中断留下的不完整行，从它的开头覆盖写入：
+     * 这条记录从未写完，补上换行反而可能把截断的内容解析成一条时间错误的旧格式记录。
+     */
+    private static void writeLocked(File file, byte[] batch) throws IOException {
+        try (LockedFile locked = lock(file)) {
+            FileChannel channel = locked.channel;
+            long size = channel.size();
+            long position = lineEnd(channel, size);
+            if (position < size) {
+                channel.truncate(position);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * 在共享锁下确定文件中完整记录行的总长度，即最后一个换行符之后的位置
+     * 共享锁保证此时没有进程正在追加；之后追加的数据位于该长度之后，不影响读取。
+     */
+    private static long completeLength(File file, FileChannel channel) throws IOException {
+        ReentrantLock lock = fileLock(file);
+        long size;
+        lock.lock();
+        try {
+            FileLock shared = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                size = channel.size();
+            } finally {
+                shared.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lineEnd(channel, size);
+    }
+
+    /**
+     * 获取记录文件的排他锁，文件不存在时创建空文件
+     * 持有期间其他线程和进程都不能追加或读取该文件，应当尽快关闭。
+     * 对局历史也用它锁住自己的锁文件，与其他窗口和进程互斥。
+     *
+     * @param file 记录文件
+     * @return 持有锁的文件，关闭时释放锁
+     * @throws IOException 打开文件或加锁失败时抛出
+     */
+    public static LockedFile lock(File file) throws IOException {
+        ReentrantLock lock = fileLock(file);
+        lock.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.READ);
+            return new LockedFile(lock, channel, channel.lock());
+        } catch (IOException | RuntimeException | Error e) {
+            if (channel != null) {
+                channel.close();
+            }
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * 持有排他锁的记录文件，用于需要读取后整体改写的操作（如导入合并）
+     * 只能在获取它的线程中使用和关闭。
+     */
+    public static final class LockedFile implements Closeable {
+        private final ReentrantLock lock;
+        private final FileChannel channel;
+        private final FileLock fileLock;
+
+        private LockedFile(ReentrantLock lock, FileChannel channel, FileLock fileLock) {
+            this.lock = lock;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        /**
+         * 按文件中的顺序逐条读取完整记录，末尾写入中断的不完整行会被忽略
+         *
+         * @param consumer 每条记录的处理
+         * @throws IOException 读取失败时抛出
+         */
+        public void forEachRecord(Consumer<Record> consumer) throws IOException {
+            readRecords(channel, lineEnd(channel, channel.size()), consumer);
+        }
+
+        /**
+         * 用另一个文件的内容替换记录文件的全部内容
+         * 在原文件上就地改写而不是改名替换：其他进程可能已经打开原文件并在等待锁，
+         * 改名后它们会把记录写进已经被替换掉的文件而丢失。
+         *
+         * @param content 新的内容，应当由完整的记录行组成
+         * @throws IOException 读写失败时抛出
+         */
+        public void replaceWith(File content) throws IOException {
+            try (FileChannel source = FileChannel.open(content.toPath(), StandardOpenOption.READ)) {
+                long size = source.size();
+                channel.truncate(0);
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferFrom(source, position, size - position);
+                }
+                channel.force(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                try {
+                    fileLock.release();
+                } finally {
+                    channel.close();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 查找文件前 size 字节中最后一个换行符之后的位置，没有换行符时返回 0
+     */
+    private static long lineEnd(FileChannel channel, long size) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        long end = size;
+        while (end > 0) {
+            int length = (int) Math.min(chunk.capacity(), end);
+            chunk.clear().limit(length);
+            long from = end - length;
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, from + chunk.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            end = from;
+        }
+        return 0;
+    }
+
+    /**
+     * 获取存储记录文件的目录
+     *
+     * @return 记录目录
+     */
+    public static File getDirectory() {
+        return new File(LEADERBOARD_DIR);
+    }
+
+    /**
+     * 判断文件名是否为记录文件，即符合 LegendList_行数x列数_地雷数.txt 格式，
+     * 非经典棋盘的文件名在地雷数后带有棋盘类型后缀，如 LegendList_9x9_10_torus.txt
+     *
+     * @param fileName 文件名
+     * @return 是记录文件时返回 true
+     */
+    public static boolean isLeaderboardFile(String fileName) {
+        return fileName.matches(FILE_PREFIX + "\\d+x\\d+_\\d+(_[a-z]+)?\\.txt");
+    }
+
+    /**
+     * 从记录文件名解析难度
+     *
+     * @param fileName 记录文件名
+     * @return {行数, 列数, 地雷数, 棋盘类型序号}，不是记录文件时返回 null
+     */
+    public static int[] parseDifficulty(String fileName) {
+        if (!isLeaderboardFile(fileName)) {
+            return null;
+        }
+        String[] parts = fileName.substring(FILE_PREFIX.length(), fileName.length() - ".txt".length()).split("[x_]");
+        Topology.Kind kind = Topology.Kind.SQUARE;
+        if (parts.length > 3) {
+            kind = null;
+            for (Topology.Kind candidate : Topology.Kind.values()) {
+                if (candidate.getFileSuffix().equals(parts[3])) {
+                    kind = candidate;
+                }
+            }
+            if (kind == null) {
+                return null;
+            }
+        }
+        try {
+            return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                    kind.ordinal()};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 获取当前难度级别对应的记录文件
+     *
+     * @return 记录文件，可能不存在
+     */
+    public static File getFile() {
+        return new File(getFilePath());
     }
 
     /**
      * 获取当前难度级别对应的记录文件路径
-     * 文件名格式为：LegendList_行数x列数_地雷数.txt
+     * 文件名格式为：LegendList_行数x列数_地雷数.txt，非经典棋盘附加 _棋盘类型 后缀
      * 
      * @return 当前难度的记录文件完整路径
      */
     private static String getFilePath() {
-        ensureDirectoryExists();
-        return LEADERBOARD_DIR + File.separator + FILE_PREFIX + MineSweeper.ROWS + "x" + MineSweeper.COLS + "_" + MineSweeper.MINES + ".txt";
+        String suffix = MineSweeper.BOARD_KIND.getFileSuffix();
+        return LEADERBOARD_DIR + File.separator + FILE_PREFIX + MineSweeper.ROWS + "x" + MineSweeper.COLS + "_" + MineSweeper.MINES
+                + (suffix.isEmpty() ? "" : "_" + suffix) + ".txt";
     }
 
     /**
@@ -47,59 +403,344 @@ public class LegendList {
      * 
      * @param playerName 玩家名称
      * @param time 完成游戏所用的时间（秒）
+     * @param bbbv 棋盘的 3BV
+     * @param clicks 本局的点击次数
+     */
+    public static void addRecord(String playerName, int time, int bbbv, int clicks) {
+        addRecord(new Record(playerName, time, bbbv, clicks));
+    }
+
+    /**
+     * 添加新的游戏记录到当前难度的记录文件中
+     *
+     * @param record 记录
      */
-    public static void addRecord(String playerName, int time) {
+    public static void addRecord(Record record) {
         ensureDirectoryExists();
-        try (PrintWriter out = new PrintWriter(new FileWriter(getFilePath(), true))) {
-            out.println(playerName + "," + time);
+        try {
+            addRecord(new File(getFilePath()), record);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 把一条记录追加到指定的记录文件，可以被多个线程、多个进程同时调用
+     * 方法返回时记录已经写入文件。
+     *
+     * @param file 记录文件
+     * @param record 记录
+     * @throws IOException 写入失败时抛出
+     */
+    public static void addRecord(File file, Record record) throws IOException {
+        Appender appender;
+        synchronized (APPENDERS) {
+            appender = APPENDERS.computeIfAbsent(file.getCanonicalPath(), k -> new Appender(file));
+        }
+        appender.append(record.toLine());
+    }
+
     /**
      * 获取当前难度级别的所有记录并按时间升序排序
      * 
      * @return 排序后的记录列表，如果没有记录则返回空列表
      */
     public static List<Record> getRecords() {
-        ensureDirectoryExists();
+        return getRecords(Record.BY_TIME);
+    }
+
+    /**
+     * 获取当前难度级别的所有记录并按指定顺序排序
+     *
+     * @param order 排序方式，例如 Record.BY_TIME、Record.BY_BBBV_PER_SECOND 或 Record.BY_EFFICIENCY
+     * @return 排序后的记录列表，如果没有记录则返回空列表
+     */
+    public static List<Record> getRecords(Comparator<Record> order) {
         List<Record> records = new ArrayList<>();
         File file = new File(getFilePath());
 
         if (file.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length == 2) {
-                        records.add(new Record(parts[0], Integer.parseInt(parts[1])));
-                    }
-                }
+            try {
+                records = readRecords(file);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
 
-        // 按时间升序排序
-        Collections.sort(records, Comparator.comparingInt(Record::getTime));
+        Collections.sort(records, order);
+        return records;
+    }
+
+    /**
+     * 读取记录文件中的所有完整记录，按文件中的顺序返回
+     * 末尾正在写入或写入中断的不完整行会被忽略。
+     *
+     * @param file 记录文件
+     * @return 记录列表
+     * @throws IOException 读取失败时抛出
+     */
+    public static List<Record> readRecords(File file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        forEachRecord(file, records::add);
         return records;
     }
 
+    /**
+     * 按文件中的顺序逐条读取记录文件中的完整记录，不保留读过的记录
+     * 末尾正在写入或写入中断的不完整行会被忽略。
+     *
+     * @param file 记录文件
+     * @param consumer 每条记录的处理
+     * @throws IOException 读取失败时抛出
+     */
+    public static void forEachRecord(File file, Consumer<Record> consumer) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            readRecords(channel, completeLength(file, channel), consumer);
+        } finally {
+            // 有些系统上关闭文件的任何一个通道都会释放本进程在该文件上的所有文件锁，
+            // 因此在进程内的锁下关闭，不会释放其他线程正持有的锁
+            ReentrantLock lock = fileLock(file);
+            lock.lock();
+            try {
+                channel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 从文件开头读取前 length 字节中的记录
+     */
+    private static void readRecords(FileChannel channel, long length, Consumer<Record> consumer) throws IOException {
+        InputStream in = Channels.newInputStream(channel.position(0));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new BoundedInputStream(in, length), CHARSET));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Record record = Record.parse(line);
+            if (record != null) {
+                consumer.accept(record);
+            }
+        }
+    }
+
+    /**
+     * 最多读取指定字节数的输入流
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 多进程压力测试
+    // ------------------------------------------------------------------
+
+    /**
+     * 每个子进程中同时追加记录的线程数
+     */
+    private static final int STRESS_THREADS = 4;
+
+    /**
+     * 命令行入口
+     * stress 启动多个子进程，与主进程一起同时向同一文件追加记录，期间主进程中的多个线程不断读取，
+     * 检查读到的每一条记录都完整，结束后检查没有丢失或重复的记录。
+     * append 为子进程模式。
+     *
+     * @param args stress 文件 进程数 每进程记录数 | append 文件 进程编号 记录数
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("append")) {
+            appendFromThreads(new File(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        } else if (args.length == 4 && args[0].equals("stress")) {
+            stress(new File(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        } else {
+            System.err.println("用法: java LegendList stress <文件> <进程数> <每进程记录数>");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 子进程：多个线程同时追加记录，第 i 条记录的时间为 i，3BV 为进程编号，点击次数为线程编号
+     */
+    private static void appendFromThreads(File file, int process, int count) throws InterruptedException {
+        Thread[] threads = new Thread[STRESS_THREADS];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = thread; i < count; i += STRESS_THREADS) {
+                        addRecord(file, new Record("p" + process + "n" + i, i, process, thread));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void stress(File file, int processes, int count) throws Exception {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("无法删除: " + file);
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        long start = System.nanoTime();
+        // 最后一个写入者是主进程本身，与主进程内的读取线程同时进行
+        List<Process> children = new ArrayList<>();
+        for (int p = 0; p < processes - 1; p++) {
+            children.add(new ProcessBuilder(java, "-cp", classPath, "LegendList", "append",
+                    file.getPath(), String.valueOf(p), String.valueOf(count)).inheritIO().start());
+        }
+        Thread local = new Thread(() -> {
+            try {
+                appendFromThreads(file, processes - 1, count);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        local.start();
+
+        // 写入期间多个线程不断读取，每次读到的都必须是完整且合法的记录
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[STRESS_THREADS];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                try {
+                    while (local.isAlive() || children.stream().anyMatch(Process::isAlive)) {
+                        if (file.exists()) {
+                            for (Record record : readRecords(file)) {
+                                checkStressRecord(record, processes, count);
+                            }
+                            reads.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            readers[t].start();
+        }
+        local.join();
+        for (Process child : children) {
+            if (child.waitFor() != 0) {
+                throw new IllegalStateException("子进程失败，退出码 " + child.exitValue());
+            }
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("并发读取失败", failure.get());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Record> records = readRecords(file);
+        Set<String> names = new HashSet<>();
+        for (Record record : records) {
+            checkStressRecord(record, processes, count);
+            if (!names.add(record.getPlayerName())) {
+                throw new IllegalStateException("重复的记录: " + record.toLine());
+            }
+        }
+        long expected = (long) processes * count;
+        if (records.size() != expected) {
+            throw new IllegalStateException("记录数 " + records.size() + "，应为 " + expected);
+        }
+        System.out.printf("%d 个进程 × %d 个线程共写入 %d 条记录，无丢失、无损坏；并发读取 %d 次；%.2f s（%.0f 条/秒）%n",
+                processes, STRESS_THREADS, expected, reads.get(), seconds, expected / seconds);
+    }
+
+    private static void checkStressRecord(Record record, int processes, int count) {
+        String expected = "p" + record.getBbbv() + "n" + record.getTime();
+        if (!record.getPlayerName().equals(expected) || record.getBbbv() >= processes || record.getTime() >= count
+                || record.getClicks() != record.getTime() % STRESS_THREADS) {
+            throw new IllegalStateException("损坏的记录: " + record.toLine());
+        }
+    }
+
     /**
      * 记录类，表示一条游戏记录
-     * 包含玩家名称和完成时间两个属性
+     * 包含玩家名称、完成时间、棋盘 3BV 和点击次数，旧记录的 3BV 和点击次数为 0
      */
     public static class Record {
+        /**
+         * 按完成时间升序排序
+         */
+        public static final Comparator<Record> BY_TIME = Comparator.comparingLong(Record::getTimeMillis);
+
+        /**
+         * 按 3BV/s 降序排序，相同时用时短者优先
+         */
+        public static final Comparator<Record> BY_BBBV_PER_SECOND =
+                Comparator.comparingDouble(Record::getBbbvPerSecond).reversed().thenComparing(BY_TIME);
+
+        /**
+         * 按点击效率（3BV/点击次数）降序排序，相同时按 3BV/s 排序
+         */
+        public static final Comparator<Record> BY_EFFICIENCY =
+                Comparator.comparingDouble(Record::getEfficiency).reversed().thenComparing(BY_BBBV_PER_SECOND);
+
         /**
          * 玩家名称
          */
         private final String playerName;
         
         /**
-         * 完成游戏所用的时间（秒）
+         * 完成游戏所用的时间（毫秒），旧记录为整秒数乘以 1000
+         */
+        private final long timeMillis;
+
+        /**
+         * 棋盘的 3BV
+         */
+        private final int bbbv;
+
+        /**
+         * 本局的点击次数
          */
-        private final int time;
+        private final int clicks;
+
+        /**
+         * 棋盘种子、开局时自动揭示的单元格（没有时为 -1）和操作记录，旧记录的操作记录为 null
+         */
+        private final long seed;
+        private final int startCell;
+        private final String moves;
 
         /**
          * 创建一条游戏记录
@@ -108,8 +749,114 @@ public class LegendList {
          * @param time 完成时间（秒）
          */
         public Record(String playerName, int time) {
+            this(playerName, time, 0, 0);
+        }
+
+        /**
+         * 创建一条带有棋盘指标的游戏记录
+         *
+         * @param playerName 玩家名称
+         * @param time 完成时间（秒）
+         * @param bbbv 棋盘的 3BV
+         * @param clicks 点击次数
+         */
+        public Record(String playerName, int time, int bbbv, int clicks) {
+            this(playerName, time * 1000L, bbbv, clicks, 0, -1, null);
+        }
+
+        /**
+         * 创建一条可以重放校验的游戏记录
+         *
+         * @param playerName 玩家名称
+         * @param timeMillis 完成时间（毫秒）
+         * @param bbbv 棋盘的 3BV
+         * @param clicks 点击次数
+         * @param seed 棋盘种子
+         * @param startCell 开局时自动揭示的单元格，没有时为 -1
+         * @param moves 操作记录（MoveLog.encode 的结果），为 null 时按旧格式保存
+         */
+        public Record(String playerName, long timeMillis, int bbbv, int clicks, long seed, int startCell,
+                      String moves) {
             this.playerName = playerName;
-            this.time = time;
+            this.timeMillis = timeMillis;
+            this.bbbv = bbbv;
+            this.clicks = clicks;
+            this.seed = seed;
+            this.startCell = startCell;
+            this.moves = moves;
+        }
+
+        /**
+         * 解析记录文件中的一行
+         *
+         * @param line 记录行，格式为“玩家名,时间”、“玩家名,时间,3BV,点击次数”
+         *             或“玩家名,时间,3BV,点击次数,种子,起始单元格,操作记录”
+         * @return 解析出的记录，格式不正确时返回 null
+         */
+        public static Record parse(String line) {
+            String[] parts = line.split(",", -1);
+            try {
+                if (parts.length == 2) {
+                    return new Record(parts[0], parseTime(parts[1]), 0, 0, 0, -1, null);
+                }
+                if (parts.length == 4) {
+                    return new Record(parts[0], parseTime(parts[1]),
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3]), 0, -1, null);
+                }
+                if (parts.length == 7) {
+                    return new Record(parts[0], parseTime(parts[1]),
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3]),
+                            Long.parseLong(parts[4]), Integer.parseInt(parts[5]), parts[6]);
+                }
+            } catch (NumberFormatException | ArithmeticException e) {
+                // 忽略损坏的记录行
+            }
+            return null;
+        }
+
+        /**
+         * 转换为记录文件中的一行
+         *
+         * @return 格式为“玩家名,时间,3BV,点击次数”的字符串，有操作记录时再加上“,种子,起始单元格,操作记录”
+         */
+        public String toLine() {
+            String time = timeMillis % 1000 == 0 ? String.valueOf(timeMillis / 1000) : formatTime(timeMillis);
+            String line = playerName + "," + time + "," + bbbv + "," + clicks;
+            return moves == null ? line : line + "," + seed + "," + startCell + "," + moves;
+        }
+
+        /**
+         * 解析记录行中的时间列
+         *
+         * @param text 整秒数，或带 1 到 3 位小数的秒数
+         * @return 毫秒数
+         * @throws NumberFormatException 格式不正确时抛出
+         * @throws ArithmeticException 超出范围时抛出
+         */
+        private static long parseTime(String text) {
+            int dot = text.indexOf('.');
+            if (dot < 0) {
+                return Math.multiplyExact(Long.parseLong(text), 1000L);
+            }
+            String fraction = text.substring(dot + 1);
+            if (text.startsWith("-") || fraction.isEmpty() || fraction.length() > 3
+                    || !fraction.chars().allMatch(Character::isDigit)) {
+                throw new NumberFormatException(text);
+            }
+            long seconds = Long.parseLong(text.substring(0, dot));
+            int millis = Integer.parseInt((fraction + "00").substring(0, 3));
+            return Math.addExact(Math.multiplyExact(seconds, 1000L), millis);
+        }
+
+        /**
+         * 把毫秒数格式化为带 3 位小数的秒数，如 12.345
+         *
+         * @param millis 毫秒数
+         * @return 格式化后的秒数
+         */
+        public static String formatTime(long millis) {
+            long fraction = millis % 1000;
+            return millis / 1000 + (fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".") + fraction;
         }
 
         /**
@@ -124,10 +871,86 @@ public class LegendList {
         /**
          * 获取完成时间
          * 
-         * @return 完成时间（秒）
+         * @return 完成时间的整秒数（向下取整）
          */
         public int getTime() {
-            return time;
+            return (int) Math.min(Integer.MAX_VALUE, timeMillis / 1000);
+        }
+
+        /**
+         * 获取完成时间
+         *
+         * @return 完成时间（毫秒）
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        /**
+         * 获取棋盘的 3BV
+         *
+         * @return 3BV，旧记录为 0
+         */
+        public int getBbbv() {
+            return bbbv;
+        }
+
+        /**
+         * 获取点击次数
+         *
+         * @return 点击次数，旧记录为 0
+         */
+        public int getClicks() {
+            return clicks;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getStartCell() {
+            return startCell;
+        }
+
+        /**
+         * 获取操作记录
+         *
+         * @return MoveLog.encode 的结果，旧记录为 null
+         */
+        public String getMoves() {
+            return moves;
+        }
+
+        /**
+         * 获取每秒完成的 3BV
+         *
+         * @return 3BV/s，缺少数据时为 0
+         */
+        public double getBbbvPerSecond() {
+            return bbbvPerSecond(bbbv, timeMillis);
+        }
+
+        /**
+         * 获取点击效率，即 3BV 与点击次数之比
+         *
+         * @return 点击效率，缺少数据时为 0
+         */
+        public double getEfficiency() {
+            return efficiency(bbbv, clicks);
+        }
+
+        /**
+         * 由 3BV 和用时计算 3BV/s，供不保留 Record 对象的排行榜表格使用
+         */
+        static double bbbvPerSecond(int bbbv, long timeMillis) {
+            return timeMillis > 0 ? bbbv * 1000.0 / timeMillis : 0.0;
+        }
+
+        /**
+         * 由 3BV 和点击次数计算点击效率
+         */
+        static double efficiency(int bbbv, int clicks) {
+            return clicks > 0 ? (double) bbbv / clicks : 0.0;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,1027 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+/**
+ * 地雷概率计算器
+ * 根据已揭示的数字和地雷总数，精确计算每个未揭示单元格是地雷的概率。
+ * <p>
+ * 计算过程：
+ * - 把与数字相邻的未揭示单元格（边界）按约束关系拆分成互不相关的连通分量
+ * - 分量内约束集合完全相同的单元格合并为一个“格组”，按格组枚举地雷数而不是逐格枚举，
+ *   每个分量独立枚举所有合法方案，分量之间以及大分量内部的分支在多核上并行枚举
+ * - 远离边界的单元格不单独枚举，使用缓存的组合数（对数形式）作为权重合并各分量结果
+ * 玩家的旗帜标记不参与计算，因为它们可能是错误的。
+ * </p>
+ * <p>
+ * 计算是增量的：计算器保存揭示状态和数字的副本、边界单元格列表、每个单元格的边界编号和当前的分量，
+ * 在两次计算之间只记下揭示状态变化的单元格。下一次计算时只更新这些单元格及其邻居的边界归属，
+ * 只重建两步以内有单元格的分量（合并、拆分或约束改变），其余分量连同枚举结果原样保留；
+ * 重建出的分量约束签名与原有分量相同时也直接复用。之后合并各分量的代价与边界大小成正比，与棋盘大小无关，
+ * 不在边界上的单元格共用一个概率，不逐格写入。
+ * </p>
+ * <p>
+ * 游戏中的概率提示不复制棋盘：计算器作为异步监听者注册到 BoardEvents，在自己的线程上按顺序收到每一步
+ * 改变的单元格（track 开始、untrack 结束），compute() 返回边界单元格的概率和其余单元格共用的概率。
+ * 监听和计算都应当在同一个单线程执行器上进行，事件线程只调用不加锁的 cancel()。
+ * 其他调用方（机器人、无猜判定）每次传入完整的揭示状态，计算器与上一次的状态比较，同样只处理变化的单元格。
+ * </p>
+ */
+public class MineProbability implements BoardEvents.Listener {
+    /**
+     * 分量格组数超过该值时，先展开前若干个格组生成分支，再并行枚举各分支
+     */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    /**
+     * 大分量预先展开的格组数
+     */
+    private static final int SPLIT_DEPTH = 4;
+
+    /**
+     * 阶乘的自然对数缓存，用于计算组合数权重，按需扩容
+     */
+    private static double[] logFactorial = {0.0};
+
+    /**
+     * 计算代数，调用 cancel() 时递增，使正在进行的计算尽快退出
+     */
+    private volatile int generation;
+
+    /**
+     * 是否在跟踪游戏中的对局（由 BoardEvents 的通知维护揭示状态）
+     */
+    private boolean tracking;
+
+    /**
+     * 当前棋盘：邻居关系、地雷总数，以及每个单元格的数字（未揭示为 -1）；尚未有棋盘时 numbers 为 null
+     */
+    private Topology topology;
+    private int totalMines;
+    private byte[] numbers;
+
+    /**
+     * 未揭示的单元格数
+     */
+    private int hidden;
+
+    /**
+     * 每个单元格在边界列表中的下标，不在边界上时为 -1
+     */
+    private int[] frontierId;
+
+    /**
+     * 边界单元格（与已揭示单元格相邻的未揭示单元格）、所属的分量和上一次计算的概率，三者按下标对应
+     */
+    private int[] frontier = new int[64];
+    private Component[] frontierComponent = new Component[64];
+    private double[] frontierProbability = new double[64];
+    private int frontierSize;
+
+    /**
+     * 当前所有分量，以及以约束签名为键的同一组分量
+     */
+    private final List<Component> components = new ArrayList<>();
+    private final Map<String, Component> cache = new HashMap<>();
+
+    /**
+     * 上一次计算之后揭示状态或数字改变过的单元格，可能重复
+     */
+    private int[] changed = new int[64];
+    private int changedSize;
+
+    /**
+     * 上一次跟踪计算的结果，之后没有单元格变化时直接返回
+     */
+    private Result lastResult;
+
+    /**
+     * 跟踪计算的结果：边界单元格的概率，以及其余未揭示单元格共用的概率
+     * 数组在交给调用方之后不再修改，可以交给其他线程使用。
+     */
+    public static final class Result {
+        /**
+         * 边界单元格的编号（行 * 列数 + 列）
+         */
+        final int[] cells;
+
+        /**
+         * 对应单元格是地雷的概率，局面矛盾时为 NaN
+         */
+        final float[] values;
+
+        /**
+         * 不在边界上的未揭示单元格是地雷的概率，没有这样的单元格或局面矛盾时为 NaN
+         */
+        final float outside;
+
+        Result(int[] cells, float[] values, float outside) {
+            this.cells = cells;
+            this.values = values;
+            this.outside = outside;
+        }
+    }
+
+    /**
+     * 取消正在进行的计算。
+     * 正在执行的 compute() 会抛出 CancellationException，已经记录的变化和分量保持可用。
+     */
+    public void cancel() {
+        generation++;
+    }
+
+    /**
+     * 清空棋盘副本和所有分量
+     */
+    public synchronized void clear() {
+        numbers = null;
+        frontierId = null;
+        frontierSize = 0;
+        components.clear();
+        cache.clear();
+        changedSize = 0;
+        lastResult = null;
+    }
+
+    /**
+     * 换成新的棋盘，所有单元格为未揭示
+     */
+    private void reset(Topology topology, int totalMines) {
+        int size = topology.getRows() * topology.getCols();
+        this.topology = topology;
+        this.totalMines = totalMines;
+        if (numbers == null || numbers.length != size) {
+            numbers = new byte[size];
+            frontierId = new int[size];
+        }
+        Arrays.fill(numbers, (byte) -1);
+        Arrays.fill(frontierId, -1);
+        Arrays.fill(frontierComponent, 0, frontierSize, null);
+        frontierSize = 0;
+        hidden = size;
+        components.clear();
+        cache.clear();
+        changedSize = 0;
+        lastResult = null;
+    }
+
+    /**
+     * 设置单元格的数字（未揭示为 -1），与原来不同时记为变化
+     */
+    private void setNumber(int cell, byte number) {
+        byte old = numbers[cell];
+        if (old == number) {
+            return;
+        }
+        if (old < 0) {
+            hidden--;
+        } else if (number < 0) {
+            hidden++;
+        }
+        numbers[cell] = number;
+        if (changedSize == changed.length) {
+            changed = Arrays.copyOf(changed, changedSize * 2);
+        }
+        changed[changedSize++] = cell;
+    }
+
+    // ------------------------------------------------------------------
+    // 跟踪对局
+    // ------------------------------------------------------------------
+
+    /**
+     * 开始跟踪对局，之后由 BoardEvents 的通知维护揭示状态
+     *
+     * @param topology 棋盘的邻居关系
+     * @param totalMines 地雷总数
+     * @param looks 当前每个单元格的外观（BoardView 的外观代码），为 null 时从下一局开始跟踪
+     */
+    public synchronized void track(Topology topology, int totalMines, byte[] looks) {
+        tracking = true;
+        reset(topology, totalMines);
+        if (looks != null) {
+            for (int cell = 0; cell < looks.length; cell++) {
+                setNumber(cell, number(looks[cell]));
+            }
+        }
+    }
+
+    /**
+     * 停止跟踪对局，释放揭示状态的副本
+     */
+    public synchronized void untrack() {
+        tracking = false;
+        clear();
+    }
+
+    @Override
+    public synchronized void gameStarted(Topology.Kind kind, int rows, int cols, int mines) {
+        if (tracking) {
+            reset(Topology.of(kind, rows, cols), mines);
+        }
+    }
+
+    @Override
+    public synchronized void cellsChanged(BoardEvents.Batch batch) {
+        if (!tracking || numbers == null) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            setNumber(batch.cell(i), number(batch.look(i)));
+        }
+    }
+
+    /**
+     * 外观对应的数字，未揭示（包括旗帜和游戏结束时显示的地雷）为 -1
+     */
+    private static byte number(byte look) {
+        return look >= BoardView.REVEALED ? (byte) (look - BoardView.REVEALED) : -1;
+    }
+
+    /**
+     * 按跟踪的揭示状态计算概率
+     * 只有边界单元格逐个给出概率，返回的数组长度与边界大小相同；上一次计算之后没有变化时返回同一个结果。
+     *
+     * @return 计算结果，没有跟踪对局时返回 null
+     * @throws CancellationException 计算被 cancel() 取消时抛出
+     */
+    public synchronized Result compute() {
+        if (!tracking || numbers == null) {
+            return null;
+        }
+        if (lastResult != null && changedSize == 0) {
+            return lastResult;
+        }
+        lastResult = null;
+        double outside = update(generation);
+        int[] cells = Arrays.copyOf(frontier, frontierSize);
+        float[] values = new float[frontierSize];
+        for (int f = 0; f < frontierSize; f++) {
+            values[f] = (float) frontierProbability[f];
+        }
+        lastResult = new Result(cells, values, (float) outside);
+        return lastResult;
+    }
+
+    // ------------------------------------------------------------------
+    // 按完整揭示状态计算
+    // ------------------------------------------------------------------
+
+    /**
+     * 计算时读取的棋盘状态
+     */
+    private interface BoardState {
+        boolean isRevealed(int row, int col);
+
+        int getAdjacentMines(int row, int col);
+    }
+
+    /**
+     * 计算每个单元格是地雷的概率
+     *
+     * @param revealed 单元格是否已揭示
+     * @param adjacentMines 每个单元格周围的地雷数
+     * @param totalMines 地雷总数
+     * @param topology 棋盘的邻居关系
+     * @return 与面板同尺寸的概率数组，已揭示的单元格以及局面矛盾时为 NaN
+     * @throws CancellationException 计算被 cancel() 取消时抛出
+     */
+    public double[][] compute(boolean[][] revealed, int[][] adjacentMines, int totalMines, Topology topology) {
+        return compute(new BoardState() {
+            @Override
+            public boolean isRevealed(int row, int col) {
+                return revealed[row][col];
+            }
+
+            @Override
+            public int getAdjacentMines(int row, int col) {
+                return adjacentMines[row][col];
+            }
+        }, totalMines, topology);
+    }
+
+    /**
+     * 计算每个单元格是地雷的概率，揭示状态和相邻地雷数直接从棋盘读取
+     * 计算期间棋盘不能改变，只能在修改棋盘的线程上调用（如无猜判定）。
+     *
+     * @param cells 棋盘
+     * @param totalMines 地雷总数
+     * @param topology 棋盘的邻居关系
+     * @return 与面板同尺寸的概率数组，已揭示的单元格以及局面矛盾时为 NaN
+     * @throws CancellationException 计算被 cancel() 取消时抛出
+     */
+    public double[][] compute(CellGrid cells, int totalMines, Topology topology) {
+        int cols = cells.getCols();
+        return compute(new BoardState() {
+            @Override
+            public boolean isRevealed(int row, int col) {
+                return cells.isRevealed(row * cols + col);
+            }
+
+            @Override
+            public int getAdjacentMines(int row, int col) {
+                return cells.getAdjacentMines(row * cols + col);
+            }
+        }, totalMines, topology);
+    }
+
+    /**
+     * 与上一次的状态比较，只把变化的单元格交给增量计算，再展开为二维数组
+     */
+    private synchronized double[][] compute(BoardState board, int totalMines, Topology topology) {
+        int gen = generation;
+        int rows = topology.getRows();
+        int cols = topology.getCols();
+        if (tracking) {
+            throw new IllegalStateException("跟踪对局时不能按完整揭示状态计算");
+        }
+        if (numbers == null || this.topology.getKind() != topology.getKind()
+                || this.topology.getRows() != rows || this.topology.getCols() != cols) {
+            reset(topology, totalMines);
+        }
+        this.topology = topology;
+        this.totalMines = totalMines;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                setNumber(i * cols + j, board.isRevealed(i, j) ? (byte) board.getAdjacentMines(i, j) : -1);
+            }
+        }
+        double outside = update(gen);
+
+        double[][] result = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                result[i][j] = numbers[i * cols + j] >= 0 ? Double.NaN : outside;
+            }
+        }
+        for (int f = 0; f < frontierSize; f++) {
+            int cell = frontier[f];
+            result[cell / cols][cell % cols] = frontierProbability[f];
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------
+    // 增量计算
+    // ------------------------------------------------------------------
+
+    /**
+     * 处理变化的单元格，枚举新的分量并合并，写入每个边界单元格的概率
+     *
+     * @return 不在边界上的未揭示单元格共用的概率
+     */
+    private double update(int gen) {
+        rebuild();
+        List<Component> pending = new ArrayList<>();
+        for (Component component : components) {
+            if (component.weights == null) {
+                pending.add(component);
+            }
+        }
+        enumerate(pending, gen);
+        return combine(hidden - frontierSize, gen);
+    }
+
+    /**
+     * 根据变化的单元格更新边界，并重建受影响的分量
+     * 单元格 c 的揭示状态改变时，只有 c 自身和它的已揭示邻居的约束会改变，这些约束涉及的单元格都在 c 的两步以内，
+     * 因此两步以内没有单元格的分量不受影响。受影响的分量连同新加入边界的单元格一起重新按约束连通关系划分。
+     */
+    private void rebuild() {
+        if (changedSize == 0) {
+            return;
+        }
+        // 两步以内有单元格的分量需要重建
+        Set<Component> stale = new HashSet<>();
+        for (int i = 0; i < changedSize; i++) {
+            int cell = changed[i];
+            markStale(cell, stale);
+            forEachNeighbour(cell, neighbour -> {
+                markStale(neighbour, stale);
+                forEachNeighbour(neighbour, second -> markStale(second, stale));
+            });
+        }
+
+        // 更新变化的单元格及其邻居是否在边界上
+        List<Integer> seeds = new ArrayList<>();
+        for (int i = 0; i < changedSize; i++) {
+            int cell = changed[i];
+            updateFrontier(cell, seeds);
+            forEachNeighbour(cell, neighbour -> updateFrontier(neighbour, seeds));
+        }
+        changedSize = 0;
+
+        for (Component component : stale) {
+            for (int cell : component.cells) {
+                int f = frontierId[cell];
+                if (f >= 0 && frontierComponent[f] == component) {
+                    frontierComponent[f] = null;
+                    seeds.add(cell);
+                }
+            }
+        }
+
+        // 从没有分量的边界单元格出发，沿约束重新划分分量；签名不变的分量连同枚举结果一起复用
+        Set<Component> kept = new HashSet<>();
+        for (int seed : seeds) {
+            int f = frontierId[seed];
+            if (f < 0 || frontierComponent[f] != null) {
+                continue;
+            }
+            List<int[]> group = collect(seed, stale);
+            String signature = signature(group);
+            Component component = cache.get(signature);
+            if (component == null) {
+                component = new Component(group, signature);
+                cache.put(signature, component);
+                components.add(component);
+            } else {
+                kept.add(component);
+            }
+            for (int cell : component.cells) {
+                frontierComponent[frontierId[cell]] = component;
+            }
+        }
+        for (Component component : stale) {
+            if (!kept.contains(component)) {
+                cache.remove(component.signature);
+                components.remove(component);
+            }
+        }
+    }
+
+    private void markStale(int cell, Set<Component> stale) {
+        int f = frontierId[cell];
+        if (f >= 0 && frontierComponent[f] != null) {
+            stale.add(frontierComponent[f]);
+        }
+    }
+
+    /**
+     * 按当前揭示状态把单元格加入或移出边界，新加入的单元格记入 seeds
+     */
+    private void updateFrontier(int cell, List<Integer> seeds) {
+        boolean onFrontier = numbers[cell] < 0 && hasRevealedNeighbour(cell);
+        int f = frontierId[cell];
+        if (onFrontier && f < 0) {
+            if (frontierSize == frontier.length) {
+                int capacity = frontierSize * 2;
+                frontier = Arrays.copyOf(frontier, capacity);
+                frontierComponent = Arrays.copyOf(frontierComponent, capacity);
+                frontierProbability = Arrays.copyOf(frontierProbability, capacity);
+            }
+            frontier[frontierSize] = cell;
+            frontierComponent[frontierSize] = null;
+            frontierId[cell] = frontierSize++;
+            seeds.add(cell);
+        } else if (!onFrontier && f >= 0) {
+            // 用最后一个边界单元格填补空位
+            int last = --frontierSize;
+            frontier[f] = frontier[last];
+            frontierComponent[f] = frontierComponent[last];
+            frontierProbability[f] = frontierProbability[last];
+            frontierId[frontier[f]] = f;
+            frontierComponent[last] = null;
+            frontierId[cell] = -1;
+        }
+    }
+
+    private boolean hasRevealedNeighbour(int cell) {
+        int cols = topology.getCols();
+        int row = cell / cols;
+        int col = cell % cols;
+        int[] dr = topology.rowOffsets(row, col);
+        int[] dc = topology.colOffsets(row, col);
+        for (int k = 0; k < dr.length; k++) {
+            if (numbers[(row + dr[k]) * cols + col + dc[k]] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forEachNeighbour(int cell, IntConsumer action) {
+        int cols = topology.getCols();
+        int row = cell / cols;
+        int col = cell % cols;
+        int[] dr = topology.rowOffsets(row, col);
+        int[] dc = topology.colOffsets(row, col);
+        for (int k = 0; k < dr.length; k++) {
+            action.accept((row + dr[k]) * cols + col + dc[k]);
+        }
+    }
+
+    /**
+     * 从一个边界单元格出发，沿“单元格—相邻数字—数字的其他未揭示邻居”收集一个连通分量的全部约束
+     * 约束格式：{数字, 相邻未揭示单元格的编号...}。遇到仍属于未过期分量的单元格时，把该分量也标记为过期一并重建。
+     */
+    private List<int[]> collect(int seed, Set<Component> stale) {
+        List<int[]> group = new ArrayList<>();
+        Set<Integer> seenConstraints = new HashSet<>();
+        Set<Integer> seenCells = new HashSet<>();
+        List<Integer> queue = new ArrayList<>();
+        queue.add(seed);
+        seenCells.add(seed);
+        int cols = topology.getCols();
+        for (int head = 0; head < queue.size(); head++) {
+            int cell = queue.get(head);
+            Component owner = frontierComponent[frontierId[cell]];
+            if (owner != null && stale.add(owner)) {
+                for (int member : owner.cells) {
+                    int f = frontierId[member];
+                    if (f >= 0 && frontierComponent[f] == owner) {
+                        frontierComponent[f] = null;
+                    }
+                }
+            }
+            int row = cell / cols;
+            int col = cell % cols;
+            int[] dr = topology.rowOffsets(row, col);
+            int[] dc = topology.colOffsets(row, col);
+            for (int k = 0; k < dr.length; k++) {
+                int number = (row + dr[k]) * cols + col + dc[k];
+                if (numbers[number] < 0 || !seenConstraints.add(number)) {
+                    continue;
+                }
+                int[] constraint = constraintOf(number);
+                group.add(constraint);
+                for (int n = 1; n < constraint.length; n++) {
+                    if (seenCells.add(constraint[n])) {
+                        queue.add(constraint[n]);
+                    }
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * 已揭示单元格的约束：{数字, 相邻未揭示单元格的编号...}
+     */
+    private int[] constraintOf(int cell) {
+        int cols = topology.getCols();
+        int row = cell / cols;
+        int col = cell % cols;
+        int[] dr = topology.rowOffsets(row, col);
+        int[] dc = topology.colOffsets(row, col);
+        int[] constraint = new int[dr.length + 1];
+        int count = 0;
+        for (int k = 0; k < dr.length; k++) {
+            int neighbour = (row + dr[k]) * cols + col + dc[k];
+            if (numbers[neighbour] < 0) {
+                constraint[++count] = neighbour;
+            }
+        }
+        constraint[0] = numbers[cell];
+        return Arrays.copyOf(constraint, count + 1);
+    }
+
+    /**
+     * 并行枚举尚未计算的分量。
+     * 小分量各自作为一个任务，大分量先展开前几个单元格，把每个合法分支作为一个任务。
+     * 取消时分量保持未枚举状态，下一次计算时重新枚举。
+     */
+    private void enumerate(List<Component> pending, int gen) {
+        List<Search> tasks = new ArrayList<>();
+        for (Component component : pending) {
+            Search root = new Search(component);
+            int depth = component.boxSize.length > SPLIT_THRESHOLD ? SPLIT_DEPTH : 0;
+            root.expand(depth, tasks);
+        }
+        tasks.parallelStream().forEach(task -> task.run(gen));
+        checkCancelled(gen);
+        for (Component component : pending) {
+            component.boxMines = new double[component.cells.length + 1][];
+            component.weights = new double[component.cells.length + 1];
+        }
+        for (Search task : tasks) {
+            task.mergeInto(task.component);
+        }
+        for (Component component : pending) {
+            component.normalize();
+        }
+    }
+
+    /**
+     * 使用组合数权重合并各分量的枚举结果，写入每个边界单元格的概率
+     *
+     * @param unconstrained 不在边界上的未揭示单元格数量
+     * @param gen 本次计算的代数
+     * @return 不在边界上的未揭示单元格共用的概率，没有这样的单元格或局面矛盾时为 NaN
+     */
+    private double combine(int unconstrained, int gen) {
+        int m = components.size();
+
+        // 前缀卷积与后缀卷积，用于求“除某个分量外其余分量”的地雷数分布
+        double[][] prefix = new double[m + 1][];
+        double[][] suffix = new double[m + 1][];
+        prefix[0] = new double[]{1.0};
+        suffix[m] = new double[]{1.0};
+        for (int c = 0; c < m; c++) {
+            prefix[c + 1] = convolve(prefix[c], components.get(c).weights);
+        }
+        for (int c = m - 1; c >= 0; c--) {
+            suffix[c] = convolve(components.get(c).weights, suffix[c + 1]);
+        }
+        double[] all = prefix[m];
+
+        // 远离边界单元格的权重：C(unconstrained, totalMines - 边界地雷数)，按最大值归一化
+        double[] outside = outsideWeights(unconstrained, totalMines, all.length - 1);
+
+        for (int c = 0; c < m; c++) {
+            checkCancelled(gen);
+            Component component = components.get(c);
+            double[] rest = convolve(prefix[c], suffix[c + 1]);
+            int n = component.cells.length;
+            // g[k]：本分量放 k 个雷时，其余部分的总权重
+            double[] g = new double[n + 1];
+            double total = 0.0;
+            for (int k = 0; k <= n; k++) {
+                double sum = 0.0;
+                for (int j = 0; j < rest.length && k + j < outside.length; j++) {
+                    sum += rest[j] * outside[k + j];
+                }
+                g[k] = sum;
+                total += component.weights[k] * sum;
+            }
+            for (int local = 0; local < n; local++) {
+                double mine = 0.0;
+                int box = component.boxOf[local];
+                for (int k = 0; k <= n; k++) {
+                    if (component.boxMines[k] != null) {
+                        mine += component.boxMines[k][box] * g[k];
+                    }
+                }
+                mine /= component.boxSize[box];
+                frontierProbability[frontierId[component.cells[local]]] = total > 0 ? mine / total : Double.NaN;
+            }
+        }
+
+        // 不在边界上的单元格共享同一个概率
+        if (unconstrained <= 0) {
+            return Double.NaN;
+        }
+        double mine = 0.0;
+        double total = 0.0;
+        for (int k = 0; k < all.length && k < outside.length; k++) {
+            double weight = all[k] * outside[k];
+            total += weight;
+            mine += weight * (totalMines - k) / unconstrained;
+        }
+        return total > 0 ? mine / total : Double.NaN;
+    }
+
+    /**
+     * 计算边界上放置 k 个地雷时，其余未揭示单元格的组合数权重
+     *
+     * @param unconstrained 不在边界上的未揭示单元格数量
+     * @param totalMines 地雷总数
+     * @param maxFrontierMines 边界上最多可能的地雷数
+     * @return 下标为边界地雷数的权重数组，按最大值归一化
+     */
+    private static double[] outsideWeights(int unconstrained, int totalMines, int maxFrontierMines) {
+        double[] logFact = logFactorials(unconstrained);
+        double[] logWeights = new double[maxFrontierMines + 1];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k <= maxFrontierMines; k++) {
+            int rest = totalMines - k;
+            if (rest < 0 || rest > unconstrained) {
+                logWeights[k] = Double.NEGATIVE_INFINITY;
+            } else {
+                logWeights[k] = logFact[unconstrained] - logFact[rest] - logFact[unconstrained - rest];
+                max = Math.max(max, logWeights[k]);
+            }
+        }
+        double[] weights = new double[maxFrontierMines + 1];
+        for (int k = 0; k <= maxFrontierMines; k++) {
+            weights[k] = logWeights[k] == Double.NEGATIVE_INFINITY ? 0.0 : Math.exp(logWeights[k] - max);
+        }
+        return weights;
+    }
+
+    /**
+     * 获取至少包含 0..n 的阶乘对数表，不足时扩容并缓存
+     */
+    private static synchronized double[] logFactorials(int n) {
+        if (logFactorial.length <= n) {
+            double[] table = Arrays.copyOf(logFactorial, Math.max(n + 1, logFactorial.length * 2));
+            for (int i = logFactorial.length; i < table.length; i++) {
+                table[i] = table[i - 1] + Math.log(i);
+            }
+            logFactorial = table;
+        }
+        return logFactorial;
+    }
+
+    /**
+     * 多项式卷积，结果按最大值归一化以避免溢出
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        double[] out = new double[a.length + b.length - 1];
+        double max = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0.0) continue;
+            for (int j = 0; j < b.length; j++) {
+                out[i + j] += a[i] * b[j];
+            }
+        }
+        for (double v : out) {
+            max = Math.max(max, v);
+        }
+        if (max > 0) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] /= max;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * 生成分量的约束签名，相同签名的分量有完全相同的枚举结果
+     */
+    private static String signature(List<int[]> group) {
+        String[] parts = new String[group.size()];
+        for (int c = 0; c < parts.length; c++) {
+            parts[c] = Arrays.toString(group.get(c));
+        }
+        Arrays.sort(parts);
+        return String.join(";", parts);
+    }
+
+    private void checkCancelled(int gen) {
+        if (generation != gen) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * 一个边界连通分量及其枚举结果
+     */
+    private static final class Component {
+        /**
+         * 分量内单元格的全局编号，同一格组的单元格相邻排列
+         */
+        final int[] cells;
+
+        /**
+         * 每个单元格所属的格组编号
+         */
+        final int[] boxOf;
+
+        /**
+         * 每个格组包含的单元格数，格组按广度优先顺序排列以便尽早剪枝
+         */
+        final int[] boxSize;
+
+        /**
+         * 每个格组所属约束的编号
+         */
+        final int[][] boxConstraints;
+
+        /**
+         * 每个约束要求的地雷数
+         */
+        final int[] need;
+
+        /**
+         * 每个约束涉及的单元格数
+         */
+        final int[] size;
+
+        final String signature;
+
+        /**
+         * weights[k]：分量内恰好 k 个地雷的方案数（归一化后）
+         */
+        double[] weights;
+
+        /**
+         * boxMines[k][b]：分量内恰好 k 个地雷的所有方案中，格组 b 内地雷数之和（归一化后），
+         * 没有任何方案的 k 对应的行为 null
+         */
+        double[][] boxMines;
+
+        Component(List<int[]> group, String signature) {
+            this.signature = signature;
+            Map<Integer, List<Integer>> byCell = new HashMap<>();
+            for (int c = 0; c < group.size(); c++) {
+                int[] constraint = group.get(c);
+                for (int n = 1; n < constraint.length; n++) {
+                    byCell.computeIfAbsent(constraint[n], k -> new ArrayList<>()).add(c);
+                }
+            }
+            // 约束集合相同的单元格归入同一格组，格组按广度优先顺序编号
+            Map<List<Integer>, Integer> boxIds = new HashMap<>();
+            List<List<Integer>> boxCells = new ArrayList<>();
+            List<Integer> order = new ArrayList<>();
+            Map<Integer, Boolean> visited = new HashMap<>();
+            boolean[] constraintSeen = new boolean[group.size()];
+            order.add(group.get(0)[1]);
+            visited.put(group.get(0)[1], true);
+            for (int head = 0; head < order.size(); head++) {
+                int cell = order.get(head);
+                List<Integer> owned = byCell.get(cell);
+                Integer box = boxIds.get(owned);
+                if (box == null) {
+                    box = boxCells.size();
+                    boxIds.put(owned, box);
+                    boxCells.add(new ArrayList<>());
+                }
+                boxCells.get(box).add(cell);
+                for (int c : owned) {
+                    if (constraintSeen[c]) continue;
+                    constraintSeen[c] = true;
+                    int[] constraint = group.get(c);
+                    for (int n = 1; n < constraint.length; n++) {
+                        if (visited.putIfAbsent(constraint[n], true) == null) {
+                            order.add(constraint[n]);
+                        }
+                    }
+                }
+            }
+            cells = new int[order.size()];
+            boxOf = new int[order.size()];
+            boxSize = new int[boxCells.size()];
+            boxConstraints = new int[boxCells.size()][];
+            int local = 0;
+            for (int b = 0; b < boxCells.size(); b++) {
+                List<Integer> members = boxCells.get(b);
+                boxSize[b] = members.size();
+                List<Integer> owned = byCell.get(members.get(0));
+                boxConstraints[b] = new int[owned.size()];
+                for (int c = 0; c < owned.size(); c++) {
+                    boxConstraints[b][c] = owned.get(c);
+                }
+                for (int cell : members) {
+                    cells[local] = cell;
+                    boxOf[local] = b;
+                    local++;
+                }
+            }
+            need = new int[group.size()];
+            size = new int[group.size()];
+            for (int c = 0; c < group.size(); c++) {
+                need[c] = group.get(c)[0];
+                size[c] = group.get(c).length - 1;
+            }
+        }
+
+        /**
+         * 按最大权重归一化，避免后续卷积时溢出
+         */
+        void normalize() {
+            double max = 0.0;
+            for (double w : weights) {
+                max = Math.max(max, w);
+            }
+            if (max == 0.0) return;
+            for (int k = 0; k < weights.length; k++) {
+                weights[k] /= max;
+                if (boxMines[k] == null) continue;
+                for (int b = 0; b < boxMines[k].length; b++) {
+                    boxMines[k][b] /= max;
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个分量（或其某个分支）的回溯枚举任务，每个任务拥有独立的状态和累加器。
+     * 每个格组取值为组内的地雷数，一个取值对应 C(格组大小, 地雷数) 种具体布局。
+     */
+    private final class Search {
+        final Component component;
+        final int[] need;
+        final int[] unknown;
+        final int[] assignment;
+        int start;
+        int mines;
+        double ways = 1.0;
+        double[] weights;
+        double[][] boxMines;
+
+        Search(Component component) {
+            this.component = component;
+            this.need = component.need.clone();
+            this.unknown = component.size.clone();
+            this.assignment = new int[component.boxSize.length];
+        }
+
+        private Search(Search other) {
+            this.component = other.component;
+            this.need = other.need.clone();
+            this.unknown = other.unknown.clone();
+            this.assignment = other.assignment.clone();
+            this.start = other.start;
+            this.mines = other.mines;
+            this.ways = other.ways;
+        }
+
+        /**
+         * 顺序展开前 depth 个格组，把每个合法分支作为独立任务加入列表
+         */
+        void expand(int depth, List<Search> tasks) {
+            if (depth == 0 || start == assignment.length) {
+                tasks.add(this);
+                return;
+            }
+            int boxSize = component.boxSize[start];
+            for (int value = 0; value <= boxSize; value++) {
+                Search branch = new Search(this);
+                if (branch.assign(start, value)) {
+                    branch.ways *= binomial(boxSize, value);
+                    branch.start++;
+                    branch.expand(depth - 1, tasks);
+                }
+            }
+        }
+
+        void run(int gen) {
+            weights = new double[component.cells.length + 1];
+            boxMines = new double[component.cells.length + 1][];
+            search(start, ways, gen);
+        }
+
+        private void search(int box, double ways, int gen) {
+            if (box == assignment.length) {
+                weights[mines] += ways;
+                if (boxMines[mines] == null) {
+                    boxMines[mines] = new double[assignment.length];
+                }
+                double[] counts = boxMines[mines];
+                for (int b = 0; b < assignment.length; b++) {
+                    counts[b] += ways * assignment[b];
+                }
+                return;
+            }
+            if ((box & 0x7) == 0) {
+                checkCancelled(gen);
+            }
+            int boxSize = component.boxSize[box];
+            for (int value = 0; value <= boxSize; value++) {
+                if (assign(box, value)) {
+                    search(box + 1, ways * binomial(boxSize, value), gen);
+                }
+                unassign(box, value);
+            }
+        }
+
+        /**
+         * 给格组赋予地雷数并更新相关约束，返回赋值后是否仍可能满足所有约束
+         */
+        private boolean assign(int box, int value) {
+            int boxSize = component.boxSize[box];
+            assignment[box] = value;
+            mines += value;
+            boolean feasible = true;
+            for (int c : component.boxConstraints[box]) {
+                unknown[c] -= boxSize;
+                need[c] -= value;
+                if (need[c] < 0 || need[c] > unknown[c]) {
+                    feasible = false;
+                }
+            }
+            return feasible;
+        }
+
+        private void unassign(int box, int value) {
+            int boxSize = component.boxSize[box];
+            assignment[box] = 0;
+            mines -= value;
+            for (int c : component.boxConstraints[box]) {
+                unknown[c] += boxSize;
+                need[c] += value;
+            }
+        }
+
+        void mergeInto(Component target) {
+            for (int k = 0; k < weights.length; k++) {
+                if (boxMines[k] == null) continue;
+                target.weights[k] += weights[k];
+                if (target.boxMines[k] == null) {
+                    target.boxMines[k] = new double[boxMines[k].length];
+                }
+                for (int b = 0; b < boxMines[k].length; b++) {
+                    target.boxMines[k][b] += boxMines[k][b];
+                }
+            }
+        }
+    }
+
+    /**
+     * 小组合数 C(n, k)，格组大小不超过 8
+     */
+    private static double binomial(int n, int k) {
+        double result = 1.0;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+}
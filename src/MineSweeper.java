@@ -1,8 +1,25 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 
 
 /**
@@ -28,12 +45,45 @@ public class MineSweeper extends JFrame {
      * 默认为初级难度的6个地雷。
      */
     public static int MINES = 6;
+
+    /**
+     * 棋盘类型（邻居关系）。
+     * 默认为经典方格。
+     */
+    public static Topology.Kind BOARD_KIND = Topology.Kind.SQUARE;
+
+    /**
+     * 开局方式（随机、安全开局、无猜）。
+     * 默认为随机。
+     */
+    public static BoardGenerator.Mode BOARD_MODE = BoardGenerator.Mode.RANDOM;
     
     /**
      * 每个单元格的像素大小。
      * 固定为25像素。
      */
     private static final int CELL_SIZE = 25;
+
+    /**
+     * 自定义难度允许的最大行数和列数
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * 计数器文字缓存，见 counterText
+     */
+    private static final String[] COUNTER_TEXT = new String[1000];
+
+    /**
+     * 大于 999 的计数器文字缓存，按数值的低位直接映射，同时记录缓存的数值
+     */
+    private static final String[] LARGE_COUNTER_TEXT = new String[1024];
+    private static final int[] LARGE_COUNTER_VALUE = new int[1024];
+
+    /**
+     * 预生成棋盘池的内存预算（字节）
+     */
+    private static final long BOARD_POOL_BUDGET = 64L << 20;
     
     /**
      * 主面板，包含顶部面板和游戏面板
@@ -41,34 +91,34 @@ public class MineSweeper extends JFrame {
     private JPanel mainPanel;
     
     /**
-     * 游戏面板，包含所有单元格按钮
+     * 游戏面板，包含可滚动、可缩放的棋盘视图
      */
-    private JPanel gamePanel;
+    private JComponent gamePanel;
     
     /**
-     * 游戏单元格按钮二维数组
+     * 自绘的棋盘视图，只绘制可见的单元格
      */
-    private JButton[][] buttons;
+    private BoardView boardView;
     
     /**
-     * 地雷位置布尔二维数组，true表示有地雷
+     * 单元格状态：地雷位置、相邻地雷数、是否已揭示、是否已标记，每格一个字节
      */
-    private boolean[][] mines;
-    
+    private CellGrid cells;
+
     /**
-     * 单元格是否已揭示的布尔二维数组，true表示已揭示
+     * 揭示和标记单元格，在多局之间复用；点击空白单元格时按棋盘的空白区标注直接揭示整个空白区
      */
-    private boolean[][] revealed;
-    
+    private final Revealer revealer = new Revealer();
+
     /**
-     * 单元格是否已标记的布尔二维数组，true表示已标记为地雷
+     * 每揭示一个单元格的回调，只创建一次，揭示时不分配对象
      */
-    private boolean[][] flagged;
-    
+    private final IntConsumer revealListener = this::cellRevealed;
+
     /**
-     * 每个单元格周围地雷数量的二维数组
+     * 当前棋盘的邻居表，在生成棋盘时按 BOARD_KIND 构建
      */
-    private int[][] adjacentMines;
+    private Topology topology;
     
     /**
      * 显示剩余地雷数量的标签
@@ -86,14 +136,10 @@ public class MineSweeper extends JFrame {
     private JButton resetButton;
     
     /**
-     * 游戏计时器
+     * 游戏计时器，由所有窗口共用的时间轮驱动，每个整秒在事件线程上刷新计时显示
      */
-    private Timer gameTimer;
-    
-    /**
-     * 游戏已进行的时间（秒）
-     */
-    private int timeElapsed;
+    private final GameClock clock = new GameClock(TimerWheel.shared(),
+            (c, seconds) -> SwingUtilities.invokeLater(this::updateTimerLabel), 0);
     
     /**
      * 游戏是否结束的标志
@@ -109,22 +155,140 @@ public class MineSweeper extends JFrame {
      * 剩余未标记的地雷数量
      */
     private int remainingMines;
+
+    /**
+     * 当前棋盘的 3BV，在生成棋盘时计算
+     */
+    private int bbbv;
+
+    /**
+     * 本局的点击次数（左键和右键）
+     */
+    private int clicks;
+
+    /**
+     * 本局计入点击次数的每一次点击，随成绩保存供重放校验；以及开局时自动揭示的单元格（没有时为 -1）
+     */
+    private final MoveLog moveLog = new MoveLog();
+    private int startCell = -1;
+
+    /**
+     * 本局生成棋盘使用的随机种子，记入对局历史，用于复现棋盘
+     */
+    private long seed;
+
+    /**
+     * 对局历史，每局结束时追加一条记录；窗口显示之后由 startServices() 创建
+     */
+    private GameHistory gameHistory;
+
+    /**
+     * 后台预生成的棋盘，重置游戏时直接取用；窗口显示之后由 startServices() 创建并启动后台线程
+     */
+    private BoardPool boardPool;
+
+    /**
+     * 是否正在等待新棋盘；等待期间不响应棋盘上的操作
+     */
+    private boolean generating;
+
+    /**
+     * 在工作线程上等待棋盘池的任务，同一时刻最多一个
+     */
+    private SwingWorker<BoardGenerator.Board, Void> boardWorker;
+
+    /**
+     * 第一个棋盘开始时执行一次的回调，供启动流程计时和显示窗口，执行后置为 null
+     */
+    private Runnable firstBoardListener;
+
+    /**
+     * 地雷概率计算器，保存各边界分量的枚举缓存；开启概率提示时跟踪对局的揭示状态
+     */
+    private final MineProbability mineProbability = new MineProbability();
+
+    /**
+     * 概率计算线程：按顺序接收单元格变化通知并计算概率，事件线程不等待它
+     */
+    private final ExecutorService probabilityExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mine-probability");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 是否显示地雷概率提示
+     */
+    private boolean showProbability;
+
+    /**
+     * 概率提示的版本号，每次请求重新计算时递增，用于跳过和丢弃过期的计算；由计算线程读取
+     */
+    private volatile int probabilityVersion;
+
+    /**
+     * 单元格按钮和棋盘是否已经生成。
+     * 快速启动时窗口先以占位面板显示，随后才生成棋盘。
+     */
+    private boolean boardReady;
+
+    /**
+     * 单元格变化通知，每步操作改变的单元格在操作结束时作为一批通知棋盘视图、操作日志和对局直播
+     */
+    private final BoardEvents boardEvents = new BoardEvents();
+
+    /**
+     * 对局直播，每步操作改变的单元格编码一次后转发给所有观战窗口；窗口显示之后由 startServices() 创建
+     */
+    private SpectatorHub spectators;
+
+    /**
+     * 练习模式的操作日志，记录每一步改变的单元格，用于撤销和重做
+     */
+    private final MoveJournal journal = new MoveJournal();
+
+    /**
+     * 是否处于练习模式，练习模式下可以用 Ctrl+Z 撤销、Ctrl+Y 重做
+     */
+    private boolean practiceMode;
+
+    /**
+     * 本局是否开启过练习模式，开启过的对局不计入英雄榜
+     */
+    private boolean practiceUsed;
+
+    /**
+     * 是否在标准输出打印启动耗时，通过 -Dminesweeper.startupTiming=true 开启
+     */
+    private static final boolean STARTUP_TIMING = Boolean.getBoolean("minesweeper.startupTiming");
     
     /**
      * 构造方法，初始化游戏数据并设置 MineSweeper。
-     * 创建游戏界面并准备开始新游戏。
+     * 创建游戏窗口框架，棋盘由 resetGame(true) 生成，以便窗口可以先于棋盘显示。
+     * 对局历史、棋盘池和对局直播不在这里创建，第一次 resetGame 时才由 startServices() 创建。
      */
     public MineSweeper() {
+        boardEvents.addListener(journal);
+        boardEvents.addListener(mineProbability, probabilityExecutor);
         initializeGame();
         setupUI();
-        placeMines();
-        calculateAdjacentMines();
         addKeyListener();
     }
 
+    /**
+     * 创建对局历史、棋盘池（启动其后台线程）和对局直播
+     * 这些都不是显示窗口所必需的，快速启动时在窗口显示之后、生成第一个棋盘之前才创建，不占用第一帧之前的时间。
+     */
+    private void startServices() {
+        gameHistory = new GameHistory(LegendList.getDirectory());
+        boardPool = new BoardPool(BOARD_POOL_BUDGET);
+        spectators = new SpectatorHub();
+        boardEvents.addListener(spectators);
+    }
+
     /**
      * 添加键盘快捷键监听器
-     * 设置Ctrl+B为测试模式快捷键，直接获得胜利
+     * 设置Ctrl+B为测试模式快捷键，直接获得胜利；Ctrl+Z、Ctrl+Y 为练习模式的撤销和重做
      */
     private void addKeyListener() {
         // 设置键盘快捷键监听
@@ -140,6 +304,22 @@ public class MineSweeper extends JFrame {
                 instantWin();
             }
         });
+
+        // 练习模式下的撤销（Ctrl+Z）和重做（Ctrl+Y）
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        actionMap.put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undoMove();
+            }
+        });
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        actionMap.put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redoMove();
+            }
+        });
     }
 
     /**
@@ -147,23 +327,20 @@ public class MineSweeper extends JFrame {
      * 揭示所有非地雷格子并标记所有地雷，使游戏直接进入胜利状态
      */
     private void instantWin() {
-        if (gameOver) return;
+        if (gameOver || !boardReady || generating) return;
 
         // 停止计时器
-        if (gameTimer.isRunning()) {
-            gameTimer.stop();
-        }
+        clock.stop();
 
         // 揭示所有非地雷格子
         for (int i = 0; i < ROWS; i++) {
             for (int j = 0; j < COLS; j++) {
-                if (!mines[i][j]) {
+                if (!cells.isMine(i, j)) {
                     revealCell(i, j);
                 } else {
                     // 标记所有地雷
-                    flagged[i][j] = true;
-                    buttons[i][j].setIcon(IconManager.getFlagIcon());
-                    buttons[i][j].setBackground(Color.YELLOW);
+                    cells.setFlagged(i, j, true);
+                    setLook(i, j, BoardView.FLAG);
                 }
             }
         }
@@ -174,10 +351,11 @@ public class MineSweeper extends JFrame {
         remainingMines = 0;
         mineCountLabel.setText("000");
         resetButton.setIcon(IconManager.getWinIcon());
+        broadcastMove();
 
         // 显示胜利消息
         JOptionPane.showMessageDialog(this,
-                "测试模式激活！游戏直接胜利！\n用时: " + timeElapsed + " 秒",
+                "测试模式激活！游戏直接胜利！\n用时: " + LegendList.Record.formatTime(clock.elapsedMillis()) + " 秒",
                 "测试胜利", JOptionPane.INFORMATION_MESSAGE);
 
         // 询问是否记录成绩
@@ -185,16 +363,13 @@ public class MineSweeper extends JFrame {
     }
 
     /**
-     * 初始化游戏数据结构，包括按钮数组、地雷位置、揭示状态、标记状态和相邻地雷数。
+     * 初始化游戏数据结构；单元格状态（地雷位置、相邻地雷数、揭示和标记状态）由预生成的棋盘提供。
      * 重置游戏状态变量。
      */
     private void initializeGame() {
-        buttons = new JButton[ROWS][COLS];
-        mines = new boolean[ROWS][COLS];
-        revealed = new boolean[ROWS][COLS];
-        flagged = new boolean[ROWS][COLS];
-        adjacentMines = new int[ROWS][COLS];
-        timeElapsed = 0;
+        topology = Topology.of(BOARD_KIND, ROWS, COLS);
+        clock.reset();
+        clicks = 0;
         gameOver = false;
         gameWon = false;
         remainingMines = MINES;
@@ -221,10 +396,15 @@ public class MineSweeper extends JFrame {
             // 较大范围: 主刻度20，次刻度5
             slider.setMajorTickSpacing(20);
             slider.setMinorTickSpacing(5);
-        } else {
+        } else if (maxMines <= 500) {
             // 大范围: 主刻度50，次刻度10
             slider.setMajorTickSpacing(50);
             slider.setMinorTickSpacing(10);
+        } else {
+            // 超大棋盘: 大约 5 个主刻度，避免生成过多刻度标签
+            int major = (int) Math.pow(10, Math.floor(Math.log10(maxMines / 5.0)));
+            slider.setMajorTickSpacing(major);
+            slider.setMinorTickSpacing(Math.max(1, major / 5));
         }
 
         // 确保当前值不超过最大值
@@ -238,25 +418,18 @@ public class MineSweeper extends JFrame {
 
     /**
      * 显示难度自定义对话框
-     * 允许用户通过滑块调整行数、列数和地雷数
+     * 允许用户通过输入框调整行数、列数，通过滑块调整地雷数
      */
     private void showDifficultyDialog() {
         // 创建对话框面板
         JPanel panel = new JPanel(new GridLayout(4, 2));
 
-        // 创建滑块和标签
-        JSlider rowsSlider = new JSlider(5, 30, ROWS);
-        JSlider colsSlider = new JSlider(5, 30, COLS);
+        // 创建输入框、滑块和标签
+        // 行列数使用数字输入框，支持最大 MAX_SIZE × MAX_SIZE 的大棋盘
+        JSpinner rowsSpinner = new JSpinner(new SpinnerNumberModel(ROWS, 5, MAX_SIZE, 1));
+        JSpinner colsSpinner = new JSpinner(new SpinnerNumberModel(COLS, 5, MAX_SIZE, 1));
         JSlider minesSlider = new JSlider(1, (ROWS * COLS) / 2, MINES);
         int maxMines = (ROWS * COLS) / 2;
-        rowsSlider.setMajorTickSpacing(5);
-        rowsSlider.setMinorTickSpacing(1);
-        rowsSlider.setPaintTicks(true);
-        rowsSlider.setPaintLabels(true);
-        colsSlider.setMajorTickSpacing(5);
-        colsSlider.setMinorTickSpacing(1);
-        colsSlider.setPaintTicks(true);
-        colsSlider.setPaintLabels(true);
         // 动态设置地雷数滑块刻度
         updateMinesSliderTicks(minesSlider, maxMines);
 
@@ -266,24 +439,24 @@ public class MineSweeper extends JFrame {
 
         // 添加组件到面板
         panel.add(new JLabel("行数:"));
-        panel.add(rowsSlider);
+        panel.add(rowsSpinner);
         panel.add(rowsLabel);
         panel.add(new JLabel("列数:"));
-        panel.add(colsSlider);
+        panel.add(colsSpinner);
         panel.add(colsLabel);
         panel.add(new JLabel("地雷数:"));
         panel.add(minesSlider);
         panel.add(minesLabel);
 
         // 滑块变化监听器
-        rowsSlider.addChangeListener(e -> {
-            ROWS = rowsSlider.getValue();
+        rowsSpinner.addChangeListener(e -> {
+            ROWS = (Integer) rowsSpinner.getValue();
             rowsLabel.setText("行数: " + ROWS);
             minesSlider.setMaximum((ROWS * COLS) / 2); // 更新地雷数最大值
         });
 
-        colsSlider.addChangeListener(e -> {
-            COLS = colsSlider.getValue();
+        colsSpinner.addChangeListener(e -> {
+            COLS = (Integer) colsSpinner.getValue();
             colsLabel.setText("列数: " + COLS);
             minesSlider.setMaximum((ROWS * COLS) / 2); // 更新地雷数最大值
         });
@@ -304,8 +477,8 @@ public class MineSweeper extends JFrame {
 
         // 只有当用户点击确定时才重置游戏
         if (result == JOptionPane.OK_OPTION) {
-            ROWS = rowsSlider.getValue();
-            COLS = colsSlider.getValue();
+            ROWS = (Integer) rowsSpinner.getValue();
+            COLS = (Integer) colsSpinner.getValue();
             MINES = Math.min(minesSlider.getValue(), (ROWS * COLS) - 1); // 至少留一个安全格子
             resetGame(true); // 强制完全重建
         }
@@ -315,14 +488,14 @@ public class MineSweeper extends JFrame {
     /**
      * 询问玩家是否记录游戏成绩并处理记录过程
      * <p>
-     * 当游戏胜利且游戏时间大于0秒时，弹出对话框询问玩家是否记录成绩。
+     * 当游戏胜利且游戏时间大于0时（第一次点击就获胜的不算），弹出对话框询问玩家是否记录成绩。
      * 如果玩家同意，则进一步询问玩家姓名，并将姓名和游戏时间记录到对应难度的排行榜文件中。
      * 如果是通过测试模式（Ctrl+B快捷键）获胜，会在玩家名前添加[TEST]标记。
      * </p>
      */
     private void askAndRecordScore() {
-        if (timeElapsed == 0 || !gameWon) {
-            return; // 不记录未完成或0秒的游戏
+        if (clock.elapsedMillis() == 0 || !gameWon || practiceUsed) {
+            return; // 不记录未完成、用时为0或练习模式的游戏
         }
 
         int response = JOptionPane.showConfirmDialog(
@@ -346,7 +519,8 @@ public class MineSweeper extends JFrame {
                 if (gameWon) {
                     nameToSave = "[TEST]" + nameToSave;
                 }
-                LegendList.addRecord(nameToSave, timeElapsed);
+                LegendList.addRecord(new LegendList.Record(nameToSave, clock.elapsedMillis(), bbbv, clicks, seed,
+                        startCell, moveLog.encode()));
             }
         }
     }
@@ -354,15 +528,16 @@ public class MineSweeper extends JFrame {
     /**
      * 显示当前难度的游戏排行榜
      * <p>
-     * 从对应难度的排行榜文件中读取所有记录，并以表格形式展示。
-     * 表格包含排名、玩家名和完成时间三列。
+     * 表格包含排名、玩家名、完成时间、3BV、点击次数、3BV/s 和点击效率，
+     * 可以在对话框顶部切换按时间、3BV/s 或点击效率排名，并按玩家名筛选。
+     * 对话框立即打开，记录在后台读入 LeaderboardModel 后再显示；表格只格式化可见的行，
+     * 排序和筛选在下标数组上进行，记录再多也不会复制成整张表。
      * 如果当前难度没有任何记录，则显示提示信息。
      * </p>
      */
     private void showLeaderboard() {
-        List<LegendList.Record> records = LegendList.getRecords();
-
-        if (records.isEmpty()) {
+        File file = LegendList.getFile();
+        if (!file.isFile() || file.length() == 0) {
             JOptionPane.showMessageDialog(
                     this,
                     "当前难度暂无记录！",
@@ -372,49 +547,195 @@ public class MineSweeper extends JFrame {
             return;
         }
 
-        // 创建表格模型
-        String[] columnNames = {"排名", "玩家", "时间(秒)"};
-        Object[][] data = new Object[records.size()][3];
-
-        for (int i = 0; i < records.size(); i++) {
-            LegendList.Record record = records.get(i);
-            data[i][0] = i + 1;
-            data[i][1] = record.getPlayerName();
-            data[i][2] = record.getTime();
-        }
+        // 排名方式和玩家筛选，记录读入之前不可用
+        JComboBox<LeaderboardModel.Ranking> rankingBox = new JComboBox<>(LeaderboardModel.Ranking.values());
+        JTextField filterField = new JTextField(10);
+        rankingBox.setEnabled(false);
+        filterField.setEnabled(false);
+        JLabel statusLabel = new JLabel("正在读取记录…");
 
         // 创建表格
-        JTable table = new JTable(data, columnNames);
+        JTable table = new JTable();
         table.setEnabled(false); // 禁止编辑
         table.setFillsViewportHeight(true);
 
-        // 设置列宽
-        table.getColumnModel().getColumn(0).setPreferredWidth(50);
-        table.getColumnModel().getColumn(1).setPreferredWidth(150);
-        table.getColumnModel().getColumn(2).setPreferredWidth(80);
+        new SwingWorker<LeaderboardModel, Void>() {
+            @Override
+            protected LeaderboardModel doInBackground() throws IOException {
+                return LeaderboardModel.read(file);
+            }
+
+            @Override
+            protected void done() {
+                LeaderboardModel model;
+                try {
+                    model = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    statusLabel.setText("读取记录失败：" + e.getCause());
+                    return;
+                }
+                table.setModel(model);
+                // 设置列宽
+                table.getColumnModel().getColumn(0).setPreferredWidth(40);
+                table.getColumnModel().getColumn(1).setPreferredWidth(120);
+                for (int c = 2; c < model.getColumnCount(); c++) {
+                    table.getColumnModel().getColumn(c).setPreferredWidth(60);
+                }
+                Runnable updateStatus = () -> statusLabel.setText(model.getRowCount() == model.getRecordCount()
+                        ? "共 " + model.getRecordCount() + " 条记录"
+                        : "筛选出 " + model.getRowCount() + " / " + model.getRecordCount() + " 条记录");
+                rankingBox.addActionListener(e ->
+                        model.setRanking((LeaderboardModel.Ranking) rankingBox.getSelectedItem()));
+                filterField.getDocument().addDocumentListener(new DocumentListener() {
+                    @Override
+                    public void insertUpdate(DocumentEvent e) {
+                        changedUpdate(e);
+                    }
+
+                    @Override
+                    public void removeUpdate(DocumentEvent e) {
+                        changedUpdate(e);
+                    }
+
+                    @Override
+                    public void changedUpdate(DocumentEvent e) {
+                        model.setFilter(filterField.getText());
+                        updateStatus.run();
+                    }
+                });
+                rankingBox.setEnabled(true);
+                filterField.setEnabled(true);
+                updateStatus.run();
+            }
+        }.execute();
 
         // 创建滚动面板
         JScrollPane scrollPane = new JScrollPane(table);
-        scrollPane.setPreferredSize(new Dimension(300, 400));
+        scrollPane.setPreferredSize(new Dimension(460, 400));
+
+        JPanel controls = new JPanel(new BorderLayout(5, 0));
+        controls.add(rankingBox, BorderLayout.WEST);
+        controls.add(new JLabel("玩家:", SwingConstants.RIGHT), BorderLayout.CENTER);
+        controls.add(filterField, BorderLayout.EAST);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 5));
+        panel.add(controls, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(statusLabel, BorderLayout.SOUTH);
 
         // 显示对话框
         JOptionPane.showMessageDialog(
                 this,
-                scrollPane,
-                "英雄榜 - " + ROWS + "x" + COLS + " 地雷数:" + MINES,
+                panel,
+                "英雄榜 - " + BOARD_KIND.getLabel() + " " + ROWS + "x" + COLS + " 地雷数:" + MINES,
                 JOptionPane.PLAIN_MESSAGE
         );
     }
 
+    /**
+     * 选择英雄榜文件或目录，合并到本机的英雄榜
+     * <p>
+     * 合并在后台线程中进行，会去除重复记录并按时间排序，完成后显示每个难度合并后的记录数。
+     * </p>
+     */
+    private void importLeaderboards() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setDialogTitle("选择英雄榜文件或 LegendLists 目录");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<File> sources = Arrays.asList(chooser.getSelectedFiles());
+
+        new SwingWorker<Map<String, Long>, Void>() {
+            @Override
+            protected Map<String, Long> doInBackground() throws IOException {
+                return LegendImporter.merge(sources, LegendList.getDirectory());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Map<String, Long> counts = get();
+                    StringBuilder message = new StringBuilder(counts.isEmpty() ? "没有找到英雄榜文件" : "导入完成：\n");
+                    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                        message.append(entry.getKey()).append("：").append(entry.getValue()).append(" 条记录\n");
+                    }
+                    JOptionPane.showMessageDialog(MineSweeper.this, message.toString(),
+                            "导入排行", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(MineSweeper.this, "导入失败：" + e.getCause(),
+                            "导入排行", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * 把当前棋盘或当前种子的答案导出为 PNG 图片
+     * <p>
+     * 导出在后台线程中进行：当前棋盘先复制一份单元格外观，答案则由种子重新生成地雷布局，对局可以继续。
+     * 单元格间距按棋盘尺寸自动选择，大棋盘缩小到每格几个像素。
+     * </p>
+     *
+     * @param solved true 导出答案，false 导出当前显示的棋盘
+     */
+    private void exportImage(boolean solved) {
+        if (generating) {
+            return; // 新棋盘尚未生成，种子和显示的内容不属于同一局
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(solved ? "导出答案" : "导出图片");
+        chooser.setSelectedFile(new File("minesweeper-" + seed + (solved ? "-solved" : "") + ".png"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        int rows = ROWS;
+        int cols = COLS;
+        boolean hex = BOARD_KIND == Topology.Kind.HEX;
+        int pitch = BoardImage.fitPitch(rows, cols, hex);
+        Topology exportTopology = topology;
+        int mines = MINES;
+        long exportSeed = seed;
+        byte[] looks = solved ? null : boardView.copyCells();
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                    if (solved) {
+                        CellGrid cells = BoardImage.solvedBoard(exportTopology, mines, exportSeed);
+                        BoardImage.writeSolved(cells, hex, pitch, out);
+                    } else {
+                        BoardImage.write((row, col) -> looks[row * cols + col], rows, cols, hex, pitch, out);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(MineSweeper.this, "导出失败：" + e.getCause(),
+                            "导出图片", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
     /**
      * 设置游戏窗口和面板的布局及组件
      * <p>
      * 初始化并配置游戏界面的所有UI组件，包括：
      * - 设置窗口标题、关闭行为和大小调整策略
      * - 创建主面板和顶部面板
-     * - 配置菜单栏和菜单项（难度选择、排行榜、关于）
+     * - 配置菜单栏（设置菜单的菜单项在第一次展开时创建）和关于菜单项
      * - 设置地雷计数器、重置按钮和计时器
-     * - 初始化游戏面板和计时器
+     * - 放置与棋盘同样大小的占位面板并初始化计时器
      * </p>
      */
     private void setupUI() {
@@ -435,18 +756,25 @@ public class MineSweeper extends JFrame {
         // 创建菜单栏
         JMenuBar menuBar = new JMenuBar();
 
-        // 创建设置菜单
+        // 创建设置菜单，菜单项在第一次展开时才创建
         JMenu setting = new JMenu("设置");
-        JMenu difficulty = new JMenu("难度");
-        JMenuItem junior = new JMenuItem("初级");
-        JMenuItem middle = new JMenuItem("中级");
-        JMenuItem senior = new JMenuItem("高级");
-        JMenuItem customize = new JMenuItem("自定义");
-        JMenuItem legendList = new JMenuItem("排行");
-        JMenuItem about = new JMenuItem("关于");
+        setting.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                if (setting.getItemCount() == 0) {
+                    buildSettingMenu(setting);
+                }
+            }
 
-        // 创建英雄榜窗口
-        legendList.addActionListener(e -> showLeaderboard());
+            @Override
+            public void menuDeselected(MenuEvent e) {
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+            }
+        });
+        JMenuItem about = new JMenuItem("关于");
 
         // 创建关于事件
         about.addActionListener(e -> JOptionPane.showMessageDialog(mainPanel,
@@ -455,45 +783,6 @@ public class MineSweeper extends JFrame {
                 "关于",
                 JOptionPane.INFORMATION_MESSAGE));
 
-        // 创建难度选择事件
-        junior.addActionListener(e -> {
-            ROWS = 5;
-            COLS = 5;
-            MINES = 6;
-            resetGame(true);
-        });
-        middle.addActionListener(e -> {
-            ROWS = 9;
-            COLS = 9;
-            MINES = 25;
-            resetGame(true);
-        });
-        senior.addActionListener(e -> {
-            ROWS = 15;
-            COLS = 15;
-            MINES = 50;
-            resetGame(true);
-        });
-        // 创建难度自定义窗口
-        customize.addActionListener(e -> showDifficultyDialog());
-
-        // 设置菜单项的边距
-        junior.setMargin(new Insets(5, 10, 5, 10));
-        middle.setMargin(new Insets(5, 10, 5, 10));
-        senior.setMargin(new Insets(5, 10, 5, 10));
-        customize.setMargin(new Insets(5, 10, 5, 10));
-        difficulty.setMargin(new Insets(5, -10, 5, -2));
-        legendList.setMargin(new Insets(5, -10, 5, -2));
-
-        // 添加菜单项到设置菜单
-        setting.add(difficulty);
-        setting.add(legendList);
-        difficulty.add(junior);
-        difficulty.add(middle);
-        difficulty.add(senior);
-        difficulty.addSeparator();
-        difficulty.add(customize);
-
         // 添加菜单到菜单栏
         menuBar.add(setting);
 
@@ -502,11 +791,6 @@ public class MineSweeper extends JFrame {
 
         // 设置菜单项的大小
         about.setPreferredSize(new Dimension(40, 20));
-        difficulty.setPreferredSize(new Dimension(40, 20));
-        legendList.setPreferredSize(new Dimension(40, 20));
-
-
-
 
         // 地雷计数器
         mineCountLabel = new JLabel(String.format("%03d", remainingMines));
@@ -538,8 +822,11 @@ public class MineSweeper extends JFrame {
         topPanel.add(timerLabel, BorderLayout.EAST);
         topPanel.add(menuBar, BorderLayout.NORTH);
 
-        // 创建游戏面板
-        this.gamePanel = initGamePanel();
+        // 创建与棋盘同样大小的占位面板，棋盘在窗口显示后生成
+        this.gamePanel = new JPanel();
+        gamePanel.setBorder(BorderFactory.createLoweredBevelBorder());
+        gamePanel.setBackground(Color.GRAY);
+        gamePanel.setPreferredSize(new Dimension(COLS * (CELL_SIZE + 1) + 3, ROWS * (CELL_SIZE + 1) + 3));
         
         mainPanel.add(topPanel, BorderLayout.NORTH);
         mainPanel.add(gamePanel, BorderLayout.CENTER);
@@ -547,66 +834,162 @@ public class MineSweeper extends JFrame {
         add(mainPanel);
         pack();
         setLocationRelativeTo(null);
-        
-        // 初始化计时器
-        gameTimer = new Timer(1000, e -> {
-            timeElapsed++;
-            timerLabel.setText(String.format("%03d", Math.min(timeElapsed, 999)));
-        });
 
         mainPanel.setFocusable(true);
         mainPanel.requestFocusInWindow();
     }
 
     /**
-     * 在游戏面板上随机放置地雷
-     * <p>
-     * 使用随机数生成器在游戏网格中放置指定数量的地雷。
-     * 确保放置的地雷数量等于MINES常量，且不会在同一位置重复放置地雷。
-     * </p>
+     * 创建设置菜单中的菜单项（难度选择、排行榜、概率提示）
+     * 在设置菜单第一次展开时调用，避免启动时创建用不到的组件
+     *
+     * @param setting 设置菜单
      */
-    private void placeMines() {
-        Random random = new Random();
-        int minesPlaced = 0;
-    
-        while (minesPlaced < MINES) {
-            int row = random.nextInt(ROWS);
-            int col = random.nextInt(COLS);
-    
-            if (!mines[row][col]) {
-                mines[row][col] = true;
-                minesPlaced++;
-            }
+    private void buildSettingMenu(JMenu setting) {
+        JMenu difficulty = new JMenu("难度");
+        JMenuItem junior = new JMenuItem("初级");
+        JMenuItem middle = new JMenuItem("中级");
+        JMenuItem senior = new JMenuItem("高级");
+        JMenuItem customize = new JMenuItem("自定义");
+        JMenuItem legendList = new JMenuItem("排行");
+        JMenuItem importItem = new JMenuItem("导入排行");
+        JCheckBoxMenuItem probabilityItem = new JCheckBoxMenuItem("概率提示");
+        JCheckBoxMenuItem practiceItem = new JCheckBoxMenuItem("练习模式", practiceMode);
+        JMenuItem spectateItem = new JMenuItem("观战窗口");
+        JMenuItem exportItem = new JMenuItem("导出图片");
+        JMenuItem exportSolvedItem = new JMenuItem("导出答案");
+        JMenu boardKind = new JMenu("棋盘类型");
+        JMenu boardMode = new JMenu("开局方式");
+
+        // 切换棋盘类型（经典、环面、六边形、马步），重新生成棋盘
+        ButtonGroup kindGroup = new ButtonGroup();
+        for (Topology.Kind kind : Topology.Kind.values()) {
+            JRadioButtonMenuItem kindItem = new JRadioButtonMenuItem(kind.getLabel(), kind == BOARD_KIND);
+            kindItem.setMargin(new Insets(5, 10, 5, 10));
+            kindItem.addActionListener(e -> {
+                BOARD_KIND = kind;
+                resetGame(true);
+            });
+            kindGroup.add(kindItem);
+            boardKind.add(kindItem);
         }
-    }
-    
-    /**
-     * 计算每个非地雷单元格周围相邻的地雷数量
-     * <p>
-     * 遍历游戏网格中的每个非地雷单元格，计算其周围8个相邻单元格中的地雷数量。
-     * 计算结果存储在adjacentMines数组中，用于显示数字提示。
-     * </p>
-     */
-    private void calculateAdjacentMines() {
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLS; j++) {
-                if (!mines[i][j]) {
-                    int count = 0;
-                    for (int di = -1; di <= 1; di++) {
-                        for (int dj = -1; dj <= 1; dj++) {
-                            int ni = i + di;
-                            int nj = j + dj;
-                            if (ni >= 0 && ni < ROWS && nj >= 0 && nj < COLS && mines[ni][nj]) {
-                                count++;
-                            }
-                        }
-                    }
-                    adjacentMines[i][j] = count;
-                }
-            }
+
+        // 切换开局方式（随机、安全开局、无猜），后台按新方式重新预生成棋盘
+        ButtonGroup modeGroup = new ButtonGroup();
+        for (BoardGenerator.Mode mode : BoardGenerator.Mode.values()) {
+            JRadioButtonMenuItem modeItem = new JRadioButtonMenuItem(mode.getLabel(), mode == BOARD_MODE);
+            modeItem.setMargin(new Insets(5, 10, 5, 10));
+            modeItem.addActionListener(e -> {
+                BOARD_MODE = mode;
+                resetGame(false);
+            });
+            modeGroup.add(modeItem);
+            boardMode.add(modeItem);
         }
+
+        // 创建英雄榜窗口
+        legendList.addActionListener(e -> showLeaderboard());
+
+        // 批量导入其他机器上的英雄榜
+        importItem.addActionListener(e -> importLeaderboards());
+
+        // 切换练习模式，退出时丢弃操作日志
+        practiceItem.addActionListener(e -> {
+            practiceMode = practiceItem.isSelected();
+            if (practiceMode) {
+                practiceUsed = true;
+            } else {
+                journal.clear();
+            }
+        });
+
+        // 打开一个观战窗口，可以打开多个
+        spectateItem.addActionListener(e -> {
+            if (spectators != null) {
+                new SpectatorWindow(spectators, this);
+            }
+        });
+
+        // 把当前棋盘或答案导出为 PNG 图片
+        exportItem.addActionListener(e -> exportImage(false));
+        exportSolvedItem.addActionListener(e -> exportImage(true));
+
+        // 切换地雷概率提示
+        probabilityItem.addActionListener(e -> {
+            showProbability = probabilityItem.isSelected();
+            if (showProbability) {
+                // 从当前显示的外观开始跟踪，之后的变化由通知在计算线程上按顺序送达
+                Topology trackedTopology = topology;
+                int trackedMines = MINES;
+                byte[] looks = boardView != null && !generating ? boardView.copyCells() : null;
+                probabilityExecutor.execute(() -> mineProbability.track(trackedTopology, trackedMines, looks));
+                updateProbabilityOverlay();
+            } else {
+                clearProbabilityOverlay();
+                probabilityExecutor.execute(mineProbability::untrack);
+            }
+        });
+
+        // 创建难度选择事件
+        junior.addActionListener(e -> {
+            ROWS = 5;
+            COLS = 5;
+            MINES = 6;
+            resetGame(true);
+        });
+        middle.addActionListener(e -> {
+            ROWS = 9;
+            COLS = 9;
+            MINES = 25;
+            resetGame(true);
+        });
+        senior.addActionListener(e -> {
+            ROWS = 15;
+            COLS = 15;
+            MINES = 50;
+            resetGame(true);
+        });
+        // 创建难度自定义窗口
+        customize.addActionListener(e -> showDifficultyDialog());
+
+        // 设置菜单项的边距
+        junior.setMargin(new Insets(5, 10, 5, 10));
+        middle.setMargin(new Insets(5, 10, 5, 10));
+        senior.setMargin(new Insets(5, 10, 5, 10));
+        customize.setMargin(new Insets(5, 10, 5, 10));
+        difficulty.setMargin(new Insets(5, -10, 5, -2));
+        boardKind.setMargin(new Insets(5, -10, 5, -2));
+        boardMode.setMargin(new Insets(5, -10, 5, -2));
+        legendList.setMargin(new Insets(5, -10, 5, -2));
+        importItem.setMargin(new Insets(5, -10, 5, -2));
+        probabilityItem.setMargin(new Insets(5, -10, 5, -2));
+        practiceItem.setMargin(new Insets(5, -10, 5, -2));
+        spectateItem.setMargin(new Insets(5, -10, 5, -2));
+        exportItem.setMargin(new Insets(5, -10, 5, -2));
+        exportSolvedItem.setMargin(new Insets(5, -10, 5, -2));
+
+        // 添加菜单项到设置菜单
+        setting.add(difficulty);
+        setting.add(boardKind);
+        setting.add(boardMode);
+        setting.add(legendList);
+        setting.add(importItem);
+        setting.add(probabilityItem);
+        setting.add(practiceItem);
+        setting.add(spectateItem);
+        setting.add(exportItem);
+        setting.add(exportSolvedItem);
+        difficulty.add(junior);
+        difficulty.add(middle);
+        difficulty.add(senior);
+        difficulty.addSeparator();
+        difficulty.add(customize);
+
+        // 设置菜单项的大小
+        difficulty.setPreferredSize(new Dimension(40, 20));
+        legendList.setPreferredSize(new Dimension(40, 20));
     }
-    
+
     /**
      * 处理鼠标左键点击事件
      * <p>
@@ -618,28 +1001,45 @@ public class MineSweeper extends JFrame {
      * </p>
      *  @param row 点击的行索引
      * @param col 点击的列索引
+     * @param now 点击到达时的时间戳（System.nanoTime）
     */
-    private void leftClick(int row, int col) {
-        if (gameOver || flagged[row][col] || revealed[row][col]) {
+    private void leftClick(int row, int col, long now) {
+        if (gameOver || generating) {
+            return;
+        }
+        clicks++;
+        moveLog.add(row * COLS + col, false, clock.elapsedNanos(now) / 1_000_000);
+        if (!cells.isCovered(row * COLS + col)) {
             return;
         }
         
         // 第一次点击启动计时器
-        if (!gameTimer.isRunning()) {
-            gameTimer.start();
+        clock.start(now);
+        if (practiceMode) {
+            journal.beginMove();
         }
         
-        if (mines[row][col]) {
+        if (cells.isMine(row, col)) {
             // 踩到地雷
             gameOver = true;
-            gameTimer.stop();
+            clock.stop(now);
             resetButton.setIcon(IconManager.getDeadIcon());
             revealAllMines();
-            buttons[row][col].setBackground(Color.RED);
+            setLook(row, col, BoardView.EXPLODED);
+            broadcastMove();
+            if (practiceMode) {
+                journal.commitMove(row * COLS + col, false);
+            }
+            recordGame();
         } else {
             // 安全区域
             revealCell(row, col);
-            checkWinCondition();
+            checkWinCondition(now);
+            broadcastMove();
+            if (practiceMode) {
+                journal.commitMove(-1, gameWon);
+            }
+            updateProbabilityOverlay();
         }
     }
     
@@ -653,72 +1053,137 @@ public class MineSweeper extends JFrame {
      * </p>
      * @param row 点击的行索引
      * @param col 点击的列索引
+     * @param now 点击到达时的时间戳（System.nanoTime）
      */
 
-    private void rightClick(int row, int col) {
-        if (gameOver || revealed[row][col]) {
+    private void rightClick(int row, int col, long now) {
+        if (gameOver || generating) {
             return;
         }
-        
-        if (flagged[row][col]) {
-            // 取消标记
-            flagged[row][col] = false;
-            buttons[row][col].setIcon(null);
-            buttons[row][col].setBackground(null);
-            remainingMines++;
-        } else {
+        clicks++;
+        moveLog.add(row * COLS + col, true, clock.elapsedNanos(now) / 1_000_000);
+        if (cells.isRevealed(row, col)) {
+            return;
+        }
+        if (practiceMode) {
+            journal.beginMove();
+        }
+
+        setFlag(row, col, !cells.isFlagged(row, col));
+        broadcastMove();
+
+        if (practiceMode) {
+            journal.commitMove(-1, false);
+        }
+        mineCountLabel.setText(counterText(remainingMines));
+        updateProbabilityOverlay();
+    }
+
+    /**
+     * 设置单元格的标记状态并更新按钮外观和剩余地雷计数
+     * 练习模式下的状态切换由操作日志从本步的变化通知中记录。
+     *
+     * @param row 单元格行索引
+     * @param col 单元格列索引
+     * @param flag true 表示标记为地雷，false 表示取消标记
+     */
+    private void setFlag(int row, int col, boolean flag) {
+        if (cells.isFlagged(row, col) == flag) {
+            return;
+        }
+        revealer.setFlagged(row * COLS + col, flag);
+        if (flag) {
             // 标记为地雷
-            flagged[row][col] = true;
-            buttons[row][col].setIcon(IconManager.getFlagIcon());
-            buttons[row][col].setBackground(Color.YELLOW);
+            setLook(row, col, BoardView.FLAG);
             remainingMines--;
+        } else {
+            // 取消标记
+            setLook(row, col, BoardView.HIDDEN);
+            remainingMines++;
         }
-        
-        mineCountLabel.setText(String.format("%03d", Math.max(0, remainingMines)));
     }
 
     /**
      * 揭示指定位置的单元格
      * <p>
      * 当单元格被揭示时，会根据相邻地雷数量显示不同颜色的数字。
-     * 如果单元格周围没有地雷（相邻地雷数为0），则会递归揭示周围的单元格。
+     * 如果单元格周围没有地雷（相邻地雷数为0），则会继续揭示周围的单元格。
      * 已经被揭示或标记为旗帜的单元格不会被再次揭示。
+     * 空白区内没有旗帜时，直接按生成棋盘时标注的空白区列表揭示，代价只与空白区大小有关；
+     * 否则使用显式栈逐格展开，大棋盘上的大片空白区也不会栈溢出（见 Revealer）。
      * </p>
      * 
      * @param row 要揭示的单元格行索引
      * @param col 要揭示的单元格列索引
      */
     private void revealCell(int row, int col) {
-        if (revealed[row][col] || flagged[row][col]) return;
+        revealer.reveal(row * COLS + col, revealListener);
+    }
 
-        revealed[row][col] = true;
-        buttons[row][col].setEnabled(false);
-        buttons[row][col].setBackground(Color.LIGHT_GRAY);
+    /**
+     * 单元格被揭示：更新外观，练习模式的操作日志从本步的变化通知中记录
+     *
+     * @param cell 单元格编号（行 * 列数 + 列）
+     */
+    private void cellRevealed(int cell) {
+        showRevealedCell(cell / COLS, cell % COLS);
+    }
 
-        if (adjacentMines[row][col] > 0) {
-            Color[] colors = {
-                    Color.BLUE, Color.GREEN, Color.RED,
-                    Color.MAGENTA, Color.ORANGE, Color.CYAN,
-                    Color.BLACK, Color.GRAY
-            };
-            buttons[row][col].setForeground(colors[adjacentMines[row][col] - 1]);
-            buttons[row][col].setText(String.valueOf(adjacentMines[row][col]));
-        }
-        if (adjacentMines[row][col] == 0) {
-            buttons[row][col].setText("");
-            // Recursively reveal adjacent cells
-            for (int di = -1; di <= 1; di++) {
-                for (int dj = -1; dj <= 1; dj++) {
-                    int ni = row + di;
-                    int nj = col + dj;
-                    if (ni >= 0 && ni < ROWS && nj >= 0 && nj < COLS) {
-                        revealCell(ni, nj);
-                    }
-                }
+    /**
+     * 把单元格显示为已揭示的样子：浅灰背景，有相邻地雷时显示对应颜色的数字
+     *
+     * @param row 单元格行索引
+     * @param col 单元格列索引
+     */
+    private void showRevealedCell(int row, int col) {
+        setLook(row, col, BoardView.revealed(cells.getAdjacentMines(row, col)));
+    }
+
+    /**
+     * 计数器显示的文字，补零到三位，负数显示为 000
+     * 0~999 的文字按数值缓存，每秒的计时和每次标记都不再格式化新的字符串；
+     * 更大的数值（大棋盘的地雷数）放入按低位映射的小缓存，一局中剩余地雷数只在不大的范围内变化，不会反复转换。
+     *
+     * @param value 数值
+     * @return 计数器文字
+     */
+    static String counterText(int value) {
+        if (value >= COUNTER_TEXT.length) {
+            int slot = value & (LARGE_COUNTER_TEXT.length - 1);
+            if (LARGE_COUNTER_TEXT[slot] == null || LARGE_COUNTER_VALUE[slot] != value) {
+                LARGE_COUNTER_TEXT[slot] = String.valueOf(value);
+                LARGE_COUNTER_VALUE[slot] = value;
             }
+            return LARGE_COUNTER_TEXT[slot];
         }
+        int index = Math.max(0, value);
+        String text = COUNTER_TEXT[index];
+        if (text == null) {
+            text = String.format("%03d", index);
+            COUNTER_TEXT[index] = text;
+        }
+        return text;
     }
-    
+
+    /**
+     * 设置单元格的外观，记入本步的变化，在 broadcastMove 时一起通知棋盘视图、操作日志和观战者
+     *
+     * @param row 单元格行索引
+     * @param col 单元格列索引
+     * @param look BoardView 的外观代码
+     */
+    private void setLook(int row, int col, byte look) {
+        boardEvents.cellChanged(row * COLS + col, look);
+    }
+
+    /**
+     * 一步操作结束，把本步改变的单元格和当前状态作为一批通知所有监听者
+     */
+    private void broadcastMove() {
+        int state = !gameOver ? BoardEvents.PLAYING : gameWon ? BoardEvents.WON : BoardEvents.LOST;
+        boardEvents.endMove(remainingMines, state);
+    }
+
     /**
      * 揭示游戏中所有地雷的位置
      * <p>
@@ -730,61 +1195,184 @@ public class MineSweeper extends JFrame {
     private void revealAllMines() {
         for (int i = 0; i < ROWS; i++) {
             for (int j = 0; j < COLS; j++) {
-                if (mines[i][j] && !flagged[i][j]) {
-                    buttons[i][j].setIcon(IconManager.getMineIcon());
-                    buttons[i][j].setBackground(Color.LIGHT_GRAY);
-                } else if (!mines[i][j] && flagged[i][j]) {
-                    buttons[i][j].setText("❌");
-                    buttons[i][j].setBackground(Color.LIGHT_GRAY);
+                boolean mine = cells.isMine(i, j);
+                boolean flag = cells.isFlagged(i, j);
+                if (mine && !flag) {
+                    setLook(i, j, BoardView.MINE);
+                } else if (!mine && flag) {
+                    setLook(i, j, BoardView.WRONG_FLAG);
                 }
             }
         }
     }
     
     /**
-     * 检查游戏是否达成胜利条件
-     * <p>
-     * 胜利条件：除地雷外的所有单元格都已被揭示。
-     * 当玩家获胜时，会自动标记所有未标记的地雷，停止计时器，
-     * 更新剩余地雷计数为0，显示胜利消息，并记录玩家成绩。
-     * </p>
+     * 撤销 revealAllMines() 的显示效果
+     * 未标记的地雷恢复为未揭示的样子，错误标记的位置恢复为旗帜
      */
-    private void checkWinCondition() {
-        int revealedCount = 0;
+    private void hideAllMines() {
         for (int i = 0; i < ROWS; i++) {
             for (int j = 0; j < COLS; j++) {
-                if (revealed[i][j]) {
-                    revealedCount++;
+                boolean mine = cells.isMine(i, j);
+                boolean flag = cells.isFlagged(i, j);
+                if (mine && !flag) {
+                    setLook(i, j, BoardView.HIDDEN);
+                } else if (!mine && flag) {
+                    setLook(i, j, BoardView.FLAG);
                 }
             }
         }
-        
-        if (revealedCount == ROWS * COLS - MINES) {
+    }
+
+    /**
+     * 撤销练习模式中的上一步操作
+     * <p>
+     * 只处理这一步改变过的单元格：取消揭示、恢复标记状态。
+     * 如果这一步结束了游戏，则恢复为进行中的状态并继续计时。
+     * </p>
+     */
+    private void undoMove() {
+        if (!practiceMode || !journal.canUndo()) {
+            return;
+        }
+        MoveJournal.Delta delta = journal.undo();
+        boolean wasPractice = practiceMode;
+        practiceMode = false; // 撤销本身不记入日志
+
+        if (delta.explodedCell >= 0) {
+            hideAllMines();
+        }
+        if (delta.explodedCell >= 0 || delta.won) {
+            gameOver = false;
+            gameWon = false;
+            resetButton.setIcon(IconManager.getSmileIcon());
+            clock.start();
+        }
+        MoveJournal.forEachCell(delta.flagged, cell -> setFlag(cell / COLS, cell % COLS, !cells.isFlagged(cell)));
+        MoveJournal.forEachCell(delta.revealed, cell -> {
+            cells.setRevealed(cell, false);
+            setLook(cell / COLS, cell % COLS, BoardView.HIDDEN);
+        });
+
+        practiceMode = wasPractice;
+        recountRemainingMines();
+        broadcastMove();
+        updateProbabilityOverlay();
+    }
+
+    /**
+     * 按棋盘上的旗帜重新计算剩余地雷数并更新计数器
+     * 撤销和重做后调用：胜利时剩余地雷数被直接置为 0，与旗帜数不一定一致（可能有错误的标记），
+     * 逐步加减会累积偏差，因此总是从当前状态重新计算，胜利状态下仍为 0。
+     */
+    private void recountRemainingMines() {
+        remainingMines = gameWon ? 0 : MINES - cells.getFlaggedCount();
+        mineCountLabel.setText(counterText(remainingMines));
+    }
+
+    /**
+     * 重做练习模式中最近撤销的操作
+     * 重新揭示和标记这一步改变过的单元格，如果这一步结束了游戏则再次结束游戏（不弹出对话框）。
+     */
+    private void redoMove() {
+        if (!practiceMode || !journal.canRedo()) {
+            return;
+        }
+        MoveJournal.Delta delta = journal.redo();
+        boolean wasPractice = practiceMode;
+        practiceMode = false; // 重做本身不记入日志
+
+        MoveJournal.forEachCell(delta.revealed, cell -> {
+            cells.setRevealed(cell, true);
+            showRevealedCell(cell / COLS, cell % COLS);
+        });
+        MoveJournal.forEachCell(delta.flagged, cell -> setFlag(cell / COLS, cell % COLS, !cells.isFlagged(cell)));
+        if (delta.explodedCell >= 0) {
+            gameOver = true;
+            clock.stop();
+            resetButton.setIcon(IconManager.getDeadIcon());
+            revealAllMines();
+            setLook(delta.explodedCell / COLS, delta.explodedCell % COLS, BoardView.EXPLODED);
+        } else if (delta.won) {
+            gameWon = true;
+            gameOver = true;
+            clock.stop();
+            resetButton.setIcon(IconManager.getWinIcon());
+        }
+
+        practiceMode = wasPractice;
+        recountRemainingMines();
+        broadcastMove();
+        updateProbabilityOverlay();
+    }
+
+    /**
+     * 检查游戏是否达成胜利条件
+     * <p>
+     * 胜利条件：除地雷外的所有单元格都已被揭示。
+     * 当玩家获胜时，会自动标记所有未标记的地雷，在最后一次点击到达的时刻停止计时器，
+     * 更新剩余地雷计数为0，显示胜利消息，并记录玩家成绩。
+     * </p>
+     *
+     * @param now 最后一次点击到达时的时间戳（System.nanoTime）
+     */
+    private void checkWinCondition(long now) {
+        if (cells.getRevealedCount() == ROWS * COLS - MINES) {
             gameWon = true;
             gameOver = true;
-            gameTimer.stop();
+            clock.stop(now);
             resetButton.setIcon(IconManager.getWinIcon());
             
             // 自动标记所有剩余的地雷
             for (int i = 0; i < ROWS; i++) {
                 for (int j = 0; j < COLS; j++) {
-                    if (mines[i][j] && !flagged[i][j]) {
-                        flagged[i][j] = true;
-                        buttons[i][j].setIcon(IconManager.getFlagIcon());
-                        buttons[i][j].setBackground(Color.YELLOW);
+                    if (cells.isMine(i, j) && !cells.isFlagged(i, j)) {
+                        setFlag(i, j, true);
                     }
                 }
             }
             
             remainingMines = 0;
             mineCountLabel.setText("000");
-            
-            JOptionPane.showMessageDialog(this, "恭喜你获胜了！\n用时: " + timeElapsed + " 秒", 
+            broadcastMove();
+            recordGame();
+
+            JOptionPane.showMessageDialog(this, "恭喜你获胜了！\n用时: " + LegendList.Record.formatTime(clock.elapsedMillis()) + " 秒", 
                                         "游戏胜利", JOptionPane.INFORMATION_MESSAGE);
             SwingUtilities.invokeLater(this::askAndRecordScore);
         }
     }
 
+    /**
+     * 游戏已进行的整秒数
+     */
+    private int timeElapsed() {
+        return (int) Math.min(Integer.MAX_VALUE, clock.elapsedSeconds());
+    }
+
+    /**
+     * 刷新计时显示；读取计时器的当前时间，重置之后才执行的刷新也会显示 000
+     */
+    private void updateTimerLabel() {
+        timerLabel.setText(counterText(Math.min(timeElapsed(), 999)));
+    }
+
+    /**
+     * 把刚结束的一局追加到对局历史
+     * 开启过练习模式的对局不记录，与英雄榜的规则一致；测试模式（Ctrl+B）直接胜利的对局也不会经过这里。
+     */
+    private void recordGame() {
+        if (practiceUsed) {
+            return;
+        }
+        try {
+            gameHistory.append(new GameHistory.Game(seed, ROWS, COLS, MINES, BOARD_KIND.ordinal(), gameWon,
+                    (int) Math.min(Integer.MAX_VALUE, clock.elapsedMillis()), clicks, bbbv, System.currentTimeMillis()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * 重置游戏状态
      * <p>
@@ -792,22 +1380,32 @@ public class MineSweeper extends JFrame {
      * 根据是否改变难度，执行不同的重置逻辑：
      * - 改变难度时：完全重建游戏界面和数据
      * - 普通重置：仅重置现有游戏数据和按钮样式
-     * 重置后重新放置地雷并计算相邻地雷数量
+     * 重置后从预生成池中取出新棋盘，安全开局和无猜模式会自动揭示起始空白区；
+     * 池中没有现成的棋盘时显示“正在生成”状态，在工作线程上等待，不阻塞事件分发线程
      * </p>
      * 
      * @param changeDifficulty 是否改变难度设置
      */
     private void resetGame(boolean changeDifficulty) {
+        if (!boardReady) {
+            changeDifficulty = true; // 棋盘尚未生成，需要完整构建
+            boardReady = true;
+            startServices();
+        }
+
         // 停止计时器
-        gameTimer.stop();
-        timeElapsed = 0;
+        clock.reset();
+        clicks = 0;
+        moveLog.clear();
+        journal.clear();
+        practiceUsed = practiceMode;
         timerLabel.setText("000");
 
         // 重置游戏状态
         gameOver = false;
         gameWon = false;
         remainingMines = MINES;
-        mineCountLabel.setText(String.format("%03d", remainingMines));
+        mineCountLabel.setText(counterText(remainingMines));
         resetButton.setIcon(IconManager.getSmileIcon());
 
         if (changeDifficulty) {
@@ -826,81 +1424,262 @@ public class MineSweeper extends JFrame {
             // 调整窗口大小并居中
             pack();
             setLocationRelativeTo(null);
+        }
+
+        // 从预生成池中取出新棋盘（地雷位置、相邻地雷数和 3BV 已在后台计算好）
+        boardPool.configure(topology, MINES, BOARD_MODE);
+        BoardGenerator.Board board = boardPool.poll();
+        if (board != null) {
+            startBoard(board);
         } else {
-            // 普通重置逻辑
-            for (int i = 0; i < ROWS; i++) {
-                for (int j = 0; j < COLS; j++) {
-                    mines[i][j] = false;
-                    revealed[i][j] = false;
-                    flagged[i][j] = false;
-                    adjacentMines[i][j] = 0;
+            requestBoard();
+        }
+    }
+
+    /**
+     * 显示“正在生成”状态，并在工作线程上等待棋盘池生成当前配置的棋盘
+     * 已有等待中的任务时不再启动新的任务：它完成后会检查配置，过期的棋盘被丢弃并重新请求。
+     */
+    private void requestBoard() {
+        mineProbability.cancel();
+        probabilityVersion++;
+        generating = true;
+        setTitle("扫雷 - 正在生成棋盘…");
+        boardView.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        if (boardWorker != null) {
+            return;
+        }
+        Topology.Kind kind = BOARD_KIND;
+        int rows = ROWS;
+        int cols = COLS;
+        int mines = MINES;
+        BoardGenerator.Mode mode = BOARD_MODE;
+        boardWorker = new SwingWorker<BoardGenerator.Board, Void>() {
+            @Override
+            protected BoardGenerator.Board doInBackground() {
+                return boardPool.take();
+            }
 
-                    // 使用统一的样式重置
-                    initButtonStyle(buttons[i][j]);
+            @Override
+            protected void done() {
+                boardWorker = null;
+                if (!generating) {
+                    return;
+                }
+                BoardGenerator.Board board = null;
+                try {
+                    board = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // 生成失败，重新请求
+                }
+                if (board != null && kind == BOARD_KIND && rows == ROWS && cols == COLS && mines == MINES
+                        && mode == BOARD_MODE) {
+                    startBoard(board);
+                } else {
+                    requestBoard(); // 等待期间切换了难度或开局方式
                 }
             }
+        };
+        boardWorker.execute();
+    }
+
+    /**
+     * 用生成好的棋盘开始新的一局
+     *
+     * @param board 当前配置的棋盘
+     */
+    private void startBoard(BoardGenerator.Board board) {
+        if (generating) {
+            generating = false;
+            setTitle("扫雷");
+            boardView.setCursor(null);
+        }
+        seed = board.seed;
+        startCell = board.startRow >= 0 ? board.startRow * COLS + board.startCol : -1;
+        cells = board.cells;
+        revealer.reset(cells, topology, board.openings);
+        bbbv = board.bbbv;
+        // 棋盘视图、操作日志和观战者收到开局通知后恢复为未揭示状态
+        boardEvents.beginGame(BOARD_KIND, ROWS, COLS, MINES);
+        if (board.startRow >= 0) {
+            // 安全开局和无猜模式自动揭示起始空白区，不计入练习模式的操作日志
+            boolean wasPractice = practiceMode;
+            practiceMode = false;
+            revealCell(board.startRow, board.startCol);
+            practiceMode = wasPractice;
+            broadcastMove();
         }
+        updateProbabilityOverlay();
+        if (firstBoardListener != null) {
+            Runnable listener = firstBoardListener;
+            firstBoardListener = null;
+            listener.run();
+        }
+    }
+
+    /**
+     * 在后台重新计算地雷概率并刷新提示
+     * <p>
+     * 先取消尚未完成的计算，再向计算线程提交一次计算。计算线程已经按顺序收到了本步之前的所有单元格变化，
+     * 因此应当在本步的 broadcastMove() 之后调用，事件线程不复制棋盘。
+     * 排队期间已有更新请求的计算直接跳过；计算完成后回到事件分发线程，只有最新一次请求的结果会被显示。
+     * 游戏结束后不再刷新，保留最后一次的提示。
+     * </p>
+     */
+    private void updateProbabilityOverlay() {
+        mineProbability.cancel();
+        int version = ++probabilityVersion;
+        if (!showProbability || gameOver || generating) {
+            return;
+        }
+        probabilityExecutor.execute(() -> {
+            if (version != probabilityVersion) {
+                return; // 已有更新的请求，由它计算
+            }
+            MineProbability.Result probabilities;
+            try {
+                probabilities = mineProbability.compute();
+            } catch (CancellationException e) {
+                return; // 计算被取消，等待下一次请求
+            }
+            if (probabilities != null) {
+                SwingUtilities.invokeLater(() -> {
+                    if (version == probabilityVersion) {
+                        applyProbabilityOverlay(probabilities);
+                    }
+                });
+            }
+        });
+    }
 
-        // 重新放置地雷
-        placeMines();
-        calculateAdjacentMines();
+    /**
+     * 根据概率为未揭示、未标记的单元格着色，并在提示文字中显示具体数值
+     * 概率越低越接近绿色，越高越接近红色
+     *
+     * @param probabilities 边界单元格和其余单元格是地雷的概率
+     */
+    private void applyProbabilityOverlay(MineProbability.Result probabilities) {
+        boardView.setProbabilities(probabilities.cells, probabilities.values, probabilities.outside);
     }
 
-    private JPanel initGamePanel() {
-        JPanel panel = new JPanel(new GridLayout(ROWS, COLS, 1, 1));
-        panel.setBorder(BorderFactory.createLoweredBevelBorder());
-        panel.setBackground(Color.GRAY);
+    /**
+     * 清除概率提示，恢复未揭示、未标记单元格的默认背景
+     */
+    private void clearProbabilityOverlay() {
+        mineProbability.cancel();
+        probabilityVersion++;
+        boardView.clearProbabilities();
+    }
 
-        // 创建按钮
-        for (int i = 0; i < ROWS; i++) {
-            for (int j = 0; j < COLS; j++) {
-                buttons[i][j] = createCellButton(i, j);
-                panel.add(buttons[i][j]);
+    /**
+     * 创建棋盘视图，放入滚动面板中；大棋盘可以滚动、拖动平移和缩放，并在右侧显示小地图
+     *
+     * @return 包含棋盘视图的面板
+     */
+    private JComponent initGamePanel() {
+        if (boardView != null) {
+            boardEvents.removeListener(boardView);
+        }
+        boardView = new BoardView(ROWS, COLS, BOARD_KIND == Topology.Kind.HEX);
+        boardEvents.addListener(boardView);
+        boardView.setCellClickListener((row, col, rightButton) -> {
+            // 点击到达时的时间戳，计时和操作记录都以它为准
+            long now = System.nanoTime();
+            if (rightButton) {
+                rightClick(row, col, now);
+            } else {
+                leftClick(row, col, now);
             }
+        });
+        JScrollPane scrollPane = new JScrollPane(boardView);
+        scrollPane.setBorder(BorderFactory.createLoweredBevelBorder());
+        scrollPane.getViewport().setBackground(Color.GRAY);
+
+        // 棋盘超出默认视口时在右侧显示小地图
+        Dimension boardSize = boardView.getPreferredSize();
+        Dimension viewSize = boardView.getPreferredScrollableViewportSize();
+        if (boardSize.width <= viewSize.width && boardSize.height <= viewSize.height) {
+            return scrollPane;
         }
+        JPanel minimapPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 4, 4));
+        minimapPanel.add(new Minimap(boardView));
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(minimapPanel, BorderLayout.EAST);
         return panel;
     }
 
-    private JButton createCellButton(int row, int col) {
-        JButton button = new JButton();
-        initButtonStyle(button);  // 使用统一的样式初始化
-        // 添加事件监听器
-        button.addActionListener(e -> leftClick(row, col));
-        button.addMouseListener(new MouseAdapter() {
-            @Override
-            public void mousePressed(MouseEvent e) {
-                if (SwingUtilities.isRightMouseButton(e)) {
-                    rightClick(row, col);
+    /**
+     * 程序入口
+     * <p>
+     * 默认使用快速启动：先以默认外观显示窗口框架，再切换到 Nimbus 外观并生成棋盘，
+     * 图标在第一次使用时才绘制，排行榜目录在第一次写入时才检查，对局历史、棋盘池和对局直播在窗口显示之后才创建。
+     * 使用 -Dminesweeper.fastStart=false 可以恢复原先“全部准备好再显示”的启动方式，用于对比耗时。
+     * 使用 -Dminesweeper.startupTiming=true 打印从 JVM 启动到第一帧、到棋盘可用的毫秒数；
+     * 再加上 -Dminesweeper.exitAfterStartup=true 会在棋盘可用后立即退出，便于重复测量和生成 CDS 归档。
+     * </p>
+     *
+     * @param args 命令行参数（未使用）
+     */
+    public static void main(String[] args) {
+        boolean fastStart = !"false".equals(System.getProperty("minesweeper.fastStart"));
+        if (!fastStart) {
+            applyLookAndFeel();
+        }
+        SwingUtilities.invokeLater(() -> {
+            MineSweeper game = new MineSweeper();
+            game.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    logStartup("first-frame");
+                }
+            });
+            // 棋盘在工作线程上生成，可能在 resetGame 返回之后才可用
+            game.firstBoardListener = () -> {
+                if (!fastStart) {
+                    game.setVisible(true);
                 }
+                logStartup("board-ready");
+                if (Boolean.getBoolean("minesweeper.exitAfterStartup")) {
+                    // 排在窗口打开事件之后退出，第一帧的耗时也能打印出来
+                    SwingUtilities.invokeLater(() -> System.exit(0));
+                }
+            };
+            if (!fastStart) {
+                game.resetGame(true);
+                return; // 棋盘可用后才显示窗口
             }
+            game.setVisible(true);
+            // 窗口显示之后再加载外观和生成棋盘
+            SwingUtilities.invokeLater(() -> {
+                applyLookAndFeel();
+                SwingUtilities.updateComponentTreeUI(game);
+                game.resetGame(true);
+            });
         });
-        return button;
-    }
-
-    private void initButtonStyle(JButton button) {
-        button.setEnabled(true);
-        button.setText("");
-        button.setIcon(null);
-        button.setBackground(null);
-        button.setForeground(Color.BLACK);  // 设置默认前景色
-        button.setBorder(BorderFactory.createRaisedBevelBorder());
-        button.setContentAreaFilled(true);
-        button.setOpaque(true);
-        button.setPreferredSize(new Dimension(CELL_SIZE, CELL_SIZE));
-        button.setFont(new Font("Arial", Font.BOLD, 12));
-        button.setMargin(new Insets(0, 0, 0, 0));
-        button.setFocusPainted(false);
     }
 
-    public static void main(String[] args) {
-        System.setProperty("java.awt.headless", "true");
+    /**
+     * 设置 Nimbus 外观
+     */
+    private static void applyLookAndFeel() {
         try {
             UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
         } catch (ClassNotFoundException | UnsupportedLookAndFeelException | IllegalAccessException |
                  InstantiationException e) {
             throw new RuntimeException(e);
         }
-        SwingUtilities.invokeLater(() -> new MineSweeper().setVisible(true));
+    }
 
+    /**
+     * 开启启动计时时，打印某个启动阶段距离 JVM 启动的毫秒数
+     *
+     * @param phase 启动阶段名称
+     */
+    private static void logStartup(String phase) {
+        if (STARTUP_TIMING) {
+            long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            System.out.println("[startup] " + phase + ": " + elapsed + " ms");
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import javax.swing.*;
+
+/**
+ * 大棋盘的小地图
+ * <p>
+ * 小地图由一张 BufferedImage 支撑：棋盘较小时每个单元格占一个像素块，
+ * 棋盘较大时每个像素代表 k × k 个单元格，颜色按其中已揭示、已标记单元格的比例混合。
+ * 图像从不整体重绘，BoardView 每改变一个单元格的外观就通知小地图，
+ * 小地图只更新该单元格所在的像素（并维护该像素的计数），更新代价与一步操作改变的单元格数成正比；
+ * 改变的像素先合并成外接矩形，BoardView 应用完一步的变化后调用 flush 只请求一次重绘。
+ * 当前可见区域以矩形框标出，点击或拖动小地图会把主视图滚动到对应位置。
+ * </p>
+ */
+public class Minimap extends JComponent {
+    /**
+     * 小地图的最大边长（像素）
+     */
+    private static final int MAX_SIZE = 200;
+
+    /**
+     * 可见区域框的颜色
+     */
+    private static final Color VIEW_COLOR = Color.RED;
+
+    private final BoardView board;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * 每个像素代表的单元格边长（k × k 个单元格）
+     */
+    private final int cellsPerPixel;
+
+    /**
+     * 每个单元格占用的像素边长，cellsPerPixel 大于 1 时为 1
+     */
+    private final int pixelsPerCell;
+
+    private final BufferedImage image;
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    /**
+     * 每个像素内已揭示、已标记的单元格数，cellsPerPixel 为 1 时不使用
+     */
+    private final int[] opened;
+    private final int[] marked;
+
+    /**
+     * 尚未请求重绘的像素范围，dirtyRight 小于 dirtyLeft 时为空
+     */
+    private int dirtyLeft = Integer.MAX_VALUE;
+    private int dirtyTop = Integer.MAX_VALUE;
+    private int dirtyRight = -1;
+    private int dirtyBottom = -1;
+
+    /**
+     * 创建跟随棋盘视图的小地图，并注册到该视图
+     *
+     * @param board 主棋盘视图
+     */
+    public Minimap(BoardView board) {
+        this.board = board;
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        int longest = Math.max(rows, cols);
+        cellsPerPixel = Math.max(1, (longest + MAX_SIZE - 1) / MAX_SIZE);
+        pixelsPerCell = cellsPerPixel == 1 ? Math.max(1, MAX_SIZE / longest) : 1;
+        width = (cols + cellsPerPixel - 1) / cellsPerPixel * pixelsPerCell;
+        height = (rows + cellsPerPixel - 1) / cellsPerPixel * pixelsPerCell;
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        if (cellsPerPixel > 1) {
+            opened = new int[pixels.length];
+            marked = new int[pixels.length];
+        } else {
+            opened = null;
+            marked = null;
+        }
+        reset();
+
+        setPreferredSize(new Dimension(width, height));
+        setToolTipText("点击跳转到对应位置");
+        MouseAdapter jump = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                jumpTo(e.getPoint());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                jumpTo(e.getPoint());
+            }
+        };
+        addMouseListener(jump);
+        addMouseMotionListener(jump);
+
+        // 主视图滚动或缩放时重绘可见区域框
+        Container parent = board.getParent();
+        if (parent instanceof JViewport) {
+            ((JViewport) parent).addChangeListener(e -> repaint());
+        }
+        board.setMinimap(this);
+    }
+
+    /**
+     * 把所有像素恢复为未揭示的颜色
+     */
+    void reset() {
+        Arrays.fill(pixels, BoardView.lookColor(BoardView.HIDDEN));
+        if (opened != null) {
+            Arrays.fill(opened, 0);
+            Arrays.fill(marked, 0);
+        }
+        repaint();
+    }
+
+    /**
+     * 单元格外观改变时由 BoardView 调用，只更新该单元格对应的像素，重绘推迟到 flush
+     *
+     * @param row 行索引
+     * @param col 列索引
+     * @param oldLook 原外观代码
+     * @param newLook 新外观代码
+     */
+    void cellChanged(int row, int col, byte oldLook, byte newLook) {
+        if (cellsPerPixel == 1) {
+            int color = BoardView.lookColor(newLook);
+            int x = col * pixelsPerCell;
+            int y = row * pixelsPerCell;
+            for (int dy = 0; dy < pixelsPerCell; dy++) {
+                int offset = (y + dy) * width + x;
+                Arrays.fill(pixels, offset, offset + pixelsPerCell, color);
+            }
+            markDirty(x, y, x + pixelsPerCell - 1, y + pixelsPerCell - 1);
+            return;
+        }
+
+        int px = col / cellsPerPixel;
+        int py = row / cellsPerPixel;
+        int index = py * width + px;
+        opened[index] += (BoardView.isOpen(newLook) ? 1 : 0) - (BoardView.isOpen(oldLook) ? 1 : 0);
+        marked[index] += (BoardView.isMarked(newLook) ? 1 : 0) - (BoardView.isMarked(oldLook) ? 1 : 0);
+        int h = Math.min(cellsPerPixel, rows - py * cellsPerPixel);
+        int w = Math.min(cellsPerPixel, cols - px * cellsPerPixel);
+        int color = BoardView.mixColor(h * w, opened[index], marked[index]);
+        if (pixels[index] != color) {
+            pixels[index] = color;
+            markDirty(px, py, px, py);
+        }
+    }
+
+    private void markDirty(int left, int top, int right, int bottom) {
+        dirtyLeft = Math.min(dirtyLeft, left);
+        dirtyTop = Math.min(dirtyTop, top);
+        dirtyRight = Math.max(dirtyRight, right);
+        dirtyBottom = Math.max(dirtyBottom, bottom);
+    }
+
+    /**
+     * 重绘自上次 flush 以来改变的像素的外接矩形
+     */
+    void flush() {
+        if (dirtyRight < dirtyLeft) {
+            return;
+        }
+        repaint(dirtyLeft, dirtyTop, dirtyRight - dirtyLeft + 1, dirtyBottom - dirtyTop + 1);
+        dirtyLeft = Integer.MAX_VALUE;
+        dirtyTop = Integer.MAX_VALUE;
+        dirtyRight = -1;
+        dirtyBottom = -1;
+    }
+
+    /**
+     * 把主视图滚动到小地图上某点对应的单元格
+     */
+    private void jumpTo(Point p) {
+        int row = Math.max(0, Math.min(rows - 1, p.y / pixelsPerCell * cellsPerPixel));
+        int col = Math.max(0, Math.min(cols - 1, p.x / pixelsPerCell * cellsPerPixel));
+        board.centerOn(row, col);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.drawImage(image, 0, 0, null);
+
+        // 标出主视图当前的可见区域
+        Rectangle visible = board.getVisibleRect();
+        if (visible.isEmpty()) {
+            return;
+        }
+        double scale = pixelsPerCell / (board.getPitch() * cellsPerPixel);
+        int x = (int) (visible.x * scale);
+        int y = (int) (visible.y * scale);
+        int w = Math.max(2, (int) Math.ceil(visible.width * scale));
+        int h = Math.max(2, (int) Math.ceil(visible.height * scale));
+        g.setColor(VIEW_COLOR);
+        g.drawRect(x, y, Math.min(w, width - 1 - x), Math.min(h, height - 1 - y));
+    }
+}
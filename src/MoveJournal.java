@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * 练习模式的操作日志，支持无限次撤销和重做
+ * <p>
+ * 每一步操作只保存它改变了揭示或标记状态的单元格，而不是整个棋盘的副本。
+ * 单元格以 行 * 列数 + 列 的一维编号表示，按连续区间编码为 {起点, 长度} 对，
+ * 一次大面积展开通常只占用很少的区间，日志占用的内存只与变化的单元格数量成正比。
+ * </p>
+ * <p>
+ * 日志作为同步监听者注册到对局的 BoardEvents，在 beginMove 和 commitMove 之间收到的一批变化中：
+ * 从未揭示变为已揭示的单元格记为揭示，在未揭示和旗帜之间切换的单元格记为切换标记；
+ * 游戏结束时显示地雷、错误标记的变化不记录。不在记录中的操作（撤销、重做、开局揭示）不会进入日志。
+ * </p>
+ */
+public class MoveJournal implements BoardEvents.Listener {
+    /**
+     * 已执行、可以撤销的操作
+     */
+    private final List<Delta> undoStack = new ArrayList<>();
+
+    /**
+     * 已撤销、可以重做的操作
+     */
+    private final List<Delta> redoStack = new ArrayList<>();
+
+    /**
+     * 当前操作中被揭示的单元格，操作结束时编码为区间
+     */
+    private int[] revealedBuffer = new int[64];
+    private int revealedCount;
+
+    /**
+     * 当前操作中标记状态被切换的单元格
+     */
+    private int[] flaggedBuffer = new int[8];
+    private int flaggedCount;
+
+    /**
+     * 是否在 beginMove 和 commitMove 之间
+     */
+    private boolean recording;
+
+    /**
+     * 开始记录一步新的操作
+     */
+    public void beginMove() {
+        revealedCount = 0;
+        flaggedCount = 0;
+        recording = true;
+    }
+
+    /**
+     * 记录一批变化中的揭示和标记切换，不在记录中时忽略
+     */
+    @Override
+    public void cellsChanged(BoardEvents.Batch batch) {
+        if (!recording) {
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            byte old = batch.oldLook(i);
+            byte look = batch.look(i);
+            if (old == BoardView.HIDDEN && BoardView.isOpen(look)) {
+                cellRevealed(batch.cell(i));
+            } else if (old == BoardView.HIDDEN && look == BoardView.FLAG
+                    || old == BoardView.FLAG && look == BoardView.HIDDEN) {
+                flagToggled(batch.cell(i));
+            }
+        }
+    }
+
+    /**
+     * 记录当前操作揭示了一个单元格
+     *
+     * @param cell 单元格编号
+     */
+    public void cellRevealed(int cell) {
+        if (revealedCount == revealedBuffer.length) {
+            revealedBuffer = Arrays.copyOf(revealedBuffer, revealedCount * 2);
+        }
+        revealedBuffer[revealedCount++] = cell;
+    }
+
+    /**
+     * 记录当前操作切换了一个单元格的标记状态
+     *
+     * @param cell 单元格编号
+     */
+    public void flagToggled(int cell) {
+        if (flaggedCount == flaggedBuffer.length) {
+            flaggedBuffer = Arrays.copyOf(flaggedBuffer, flaggedCount * 2);
+        }
+        flaggedBuffer[flaggedCount++] = cell;
+    }
+
+    /**
+     * 结束当前操作并压入撤销栈，同时清空重做栈
+     * 没有改变任何单元格且没有结束游戏的操作不会被记录。应在本步的 BoardEvents.endMove 之后调用。
+     *
+     * @param explodedCell 本次操作踩中的地雷编号，没有踩雷时为 -1
+     * @param won 本次操作是否赢得了游戏
+     */
+    public void commitMove(int explodedCell, boolean won) {
+        recording = false;
+        if (revealedCount == 0 && flaggedCount == 0 && explodedCell < 0 && !won) {
+            return;
+        }
+        undoStack.add(new Delta(encode(revealedBuffer, revealedCount),
+                encode(flaggedBuffer, flaggedCount), explodedCell, won));
+        redoStack.clear();
+        // 大面积展开之后释放过大的缓冲区
+        if (revealedBuffer.length > 4096) {
+            revealedBuffer = new int[64];
+        }
+    }
+
+    /**
+     * 是否有可撤销的操作
+     *
+     * @return 有可撤销的操作时返回 true
+     */
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    /**
+     * 是否有可重做的操作
+     *
+     * @return 有可重做的操作时返回 true
+     */
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    /**
+     * 取出最近一步操作用于撤销，并把它移到重做栈
+     *
+     * @return 被撤销的操作
+     */
+    public Delta undo() {
+        Delta delta = undoStack.remove(undoStack.size() - 1);
+        redoStack.add(delta);
+        return delta;
+    }
+
+    /**
+     * 取出最近撤销的操作用于重做，并把它移回撤销栈
+     *
+     * @return 被重做的操作
+     */
+    public Delta redo() {
+        Delta delta = redoStack.remove(redoStack.size() - 1);
+        undoStack.add(delta);
+        return delta;
+    }
+
+    /**
+     * 清空全部日志，在开始新的一局或退出练习模式时调用
+     */
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        revealedCount = 0;
+        flaggedCount = 0;
+        recording = false;
+    }
+
+    /**
+     * 把单元格编号编码为按起点升序的 {起点, 长度} 区间序列
+     * 单元格较密集时（如大面积展开）借助位图在线性时间内完成，较稀疏时先排序再合并。
+     */
+    private static int[] encode(int[] cells, int count) {
+        if (count == 0) {
+            return new int[0];
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, cells[i]);
+            max = Math.max(max, cells[i]);
+        }
+        RangeWriter writer = new RangeWriter();
+        if ((long) (max - min) <= 32L * count) {
+            BitSet bits = new BitSet(max - min + 1);
+            for (int i = 0; i < count; i++) {
+                bits.set(cells[i] - min);
+            }
+            for (int start = bits.nextSetBit(0); start >= 0; ) {
+                int end = bits.nextClearBit(start);
+                writer.add(start + min, end - start);
+                start = bits.nextSetBit(end);
+            }
+        } else {
+            int[] sorted = Arrays.copyOf(cells, count);
+            Arrays.sort(sorted);
+            int start = sorted[0];
+            int end = start + 1;
+            for (int i = 1; i < count; i++) {
+                if (sorted[i] == end) {
+                    end++;
+                } else if (sorted[i] > end) {
+                    writer.add(start, end - start);
+                    start = sorted[i];
+                    end = start + 1;
+                }
+            }
+            writer.add(start, end - start);
+        }
+        return writer.toArray();
+    }
+
+    /**
+     * 区间序列的增长缓冲区
+     */
+    private static final class RangeWriter {
+        private int[] ranges = new int[8];
+        private int size;
+
+        void add(int start, int length) {
+            if (size + 2 > ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            ranges[size++] = start;
+            ranges[size++] = length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ranges, size);
+        }
+    }
+
+    /**
+     * 遍历区间序列中的每个单元格
+     *
+     * @param ranges {起点, 长度} 区间序列
+     * @param action 对每个单元格编号执行的操作
+     */
+    public static void forEachCell(int[] ranges, IntConsumer action) {
+        for (int r = 0; r < ranges.length; r += 2) {
+            int end = ranges[r] + ranges[r + 1];
+            for (int cell = ranges[r]; cell < end; cell++) {
+                action.accept(cell);
+            }
+        }
+    }
+
+    /**
+     * 一步操作造成的变化
+     */
+    public static final class Delta {
+        /**
+         * 被揭示的单元格区间
+         */
+        final int[] revealed;
+
+        /**
+         * 标记状态被切换的单元格区间
+         */
+        final int[] flagged;
+
+        /**
+         * 踩中的地雷编号，没有踩雷时为 -1
+         */
+        final int explodedCell;
+
+        /**
+         * 这一步是否赢得了游戏
+         */
+        final boolean won;
+
+        Delta(int[] revealed, int[] flagged, int explodedCell, boolean won) {
+            this.revealed = revealed;
+            this.flagged = flagged;
+            this.explodedCell = explodedCell;
+            this.won = won;
+        }
+    }
+}
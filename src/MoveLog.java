@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 一局游戏的操作记录，随英雄榜成绩一起保存，供 ReplayVerifier 重放校验
+ * <p>
+ * 每次计入点击次数的点击记录一步：单元格编号、左键或右键、点击时计时器的已用毫秒数。
+ * 保存时编码为 LEB128 变长整数序列（单元格编号 * 2 + 是否右键，距上一步的毫秒数），
+ * 再转成不含逗号的 URL 安全 Base64 文本，放在记录行的最后一列；一局高级难度约几百字节。
+ * </p>
+ */
+public final class MoveLog {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * 第 i 步的单元格编号 * 2 + 是否右键，以及已用毫秒数
+     */
+    private int[] moves = new int[64];
+    private long[] times = new long[64];
+    private int size;
+
+    /**
+     * 记录一步
+     *
+     * @param cell 单元格编号（行 * 列数 + 列）
+     * @param right 是否为右键
+     * @param millis 计时器的已用毫秒数
+     */
+    public void add(int cell, boolean right, long millis) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        moves[size] = cell * 2 + (right ? 1 : 0);
+        times[size] = millis;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCell(int index) {
+        return moves[index] >>> 1;
+    }
+
+    public boolean isRight(int index) {
+        return (moves[index] & 1) != 0;
+    }
+
+    public long getMillis(int index) {
+        return times[index];
+    }
+
+    /**
+     * 编码为记录行中的文本
+     */
+    public String encode() {
+        byte[] buffer = new byte[size * 15];
+        int length = 0;
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            length = putVarint(buffer, length, moves[i] & 0xFFFFFFFFL);
+            length = putVarint(buffer, length, times[i] - previous);
+            previous = times[i];
+        }
+        return ENCODER.encodeToString(Arrays.copyOf(buffer, length));
+    }
+
+    /**
+     * 解码记录行中的文本，替换当前内容
+     *
+     * @param text encode 的结果
+     * @return 格式正确时返回 true；时间倒退（毫秒差为负）视为格式错误
+     */
+    public boolean decode(String text) {
+        clear();
+        byte[] data;
+        try {
+            data = DECODER.decode(text);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        long millis = 0;
+        int position = 0;
+        while (position < data.length) {
+            long move = 0;
+            long delta = 0;
+            for (int field = 0; field < 2; field++) {
+                long value = 0;
+                int shift = 0;
+                while (true) {
+                    if (position == data.length || shift > 56) {
+                        return false;
+                    }
+                    byte b = data[position++];
+                    value |= (long) (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                    shift += 7;
+                }
+                if (field == 0) {
+                    move = value;
+                } else {
+                    delta = value;
+                }
+            }
+            if (move > Integer.MAX_VALUE || delta < 0) {
+                return false;
+            }
+            millis += delta;
+            add((int) (move >>> 1), (move & 1) != 0, millis);
+        }
+        return true;
+    }
+
+    private static int putVarint(byte[] buffer, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+}
@@ -0,0 +1,379 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 经典方格棋盘的空白区标注
+ * <p>
+ * 空白区是相邻地雷数为 0 的单元格组成的八连通区域，点击其中任何一个单元格都会揭示整个空白区及其数字边界。
+ * 生成棋盘时一次性标注所有空白区，点击时直接按预先算好的列表揭示，不再逐格展开、反复检查已揭示的单元格。
+ * <p>
+ * 空白区以每行的空白连续段（行、起止列）为单位保存：
+ * - 连续段按行、列排序，rowRuns 给出每行的连续段范围，由单元格找空白区只需在该行的连续段中二分查找
+ * - 每个空白区的连续段编号按升序连续存放，揭示时逐段处理，数字边界就是各段上下左右各扩展一格的范围
+ * 每个连续段占 16 字节，远小于每个单元格一个标签。
+ * </p>
+ * <p>
+ * 标注按行扫描：同一行中的连续段与上一行中列区间相差不超过 1 的连续段合并（并查集）。
+ * 大棋盘按行带并行，各行带内部独立合并，最后只需合并行带交界处的两行。
+ * 同时统计不与任何空白单元格相邻的数字单元格，3BV 即为空白区数加上这些数字单元格数。
+ * </p>
+ */
+public final class Openings {
+    /**
+     * 每个行带的最少行数，行数不足两个行带时不并行
+     */
+    private static final int BAND_ROWS = 256;
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * 第 i 行的连续段编号为 [rowRuns[i], rowRuns[i + 1])
+     */
+    private final int[] rowRuns;
+
+    /**
+     * 连续段的起止列（含）和所属空白区
+     */
+    private final int[] runStart;
+    private final int[] runEnd;
+    private final int[] runRegion;
+
+    /**
+     * 第 r 个空白区的连续段编号为 regionRuns[regionOffsets[r] .. regionOffsets[r + 1])，按升序排列
+     */
+    private final int[] regionOffsets;
+    private final int[] regionRuns;
+
+    /**
+     * 不与任何空白单元格相邻的数字单元格数
+     */
+    private final int isolatedNumbers;
+
+    /**
+     * 最大的空白区连同数字边界的单元格数上界（各连续段上下左右各扩展一格的范围之和）
+     */
+    private final int largestRegion;
+
+    /**
+     * 一个行带的标注结果，连续段编号为行带内的局部编号
+     */
+    private static final class Band {
+        int[] start = new int[64];
+        int[] end = new int[64];
+        int[] parent = new int[64];
+        int count;
+        int isolatedNumbers;
+
+        void add(int from, int to) {
+            if (count == start.length) {
+                start = Arrays.copyOf(start, count * 2);
+                end = Arrays.copyOf(end, count * 2);
+                parent = Arrays.copyOf(parent, count * 2);
+            }
+            start[count] = from;
+            end[count] = to;
+            parent[count] = count;
+            count++;
+        }
+    }
+
+    private Openings(int rows, int cols, int[] rowRuns, int[] runStart, int[] runEnd, int[] runRegion,
+                     int[] regionOffsets, int[] regionRuns, int isolatedNumbers, int largestRegion) {
+        this.rows = rows;
+        this.cols = cols;
+        this.rowRuns = rowRuns;
+        this.runStart = runStart;
+        this.runEnd = runEnd;
+        this.runRegion = runRegion;
+        this.regionOffsets = regionOffsets;
+        this.regionRuns = regionRuns;
+        this.isolatedNumbers = isolatedNumbers;
+        this.largestRegion = largestRegion;
+    }
+
+    /**
+     * 标注棋盘的所有空白区
+     *
+     * @param cells 棋盘，只使用地雷和相邻地雷数
+     * @param topology 棋盘的邻居关系
+     * @return 标注结果，非经典方格棋盘返回 null（其邻居关系不是按行的区间）
+     */
+    public static Openings label(CellGrid cells, Topology topology) {
+        if (topology.getKind() != Topology.Kind.SQUARE) {
+            return null;
+        }
+        int rows = cells.getRows();
+        int cols = cells.getCols();
+        int bandCount = Math.max(1, Math.min(rows / BAND_ROWS, Runtime.getRuntime().availableProcessors() * 4));
+        int[] rowRuns = new int[rows + 1];
+        Band[] bands = new Band[bandCount];
+        IntStream.range(0, bandCount).parallel().forEach(b -> bands[b] = labelBand(cells,
+                bandFirstRow(rows, bandCount, b), bandFirstRow(rows, bandCount, b + 1), rowRuns));
+
+        // 合并各行带：连续段编号加上行带的偏移
+        int runCount = 0;
+        int isolatedNumbers = 0;
+        for (Band band : bands) {
+            runCount += band.count;
+            isolatedNumbers += band.isolatedNumbers;
+        }
+        for (int i = 0; i < rows; i++) {
+            rowRuns[i + 1] += rowRuns[i];
+        }
+        int[] runStart = new int[runCount];
+        int[] runEnd = new int[runCount];
+        int[] parent = new int[runCount];
+        int offset = 0;
+        for (Band band : bands) {
+            System.arraycopy(band.start, 0, runStart, offset, band.count);
+            System.arraycopy(band.end, 0, runEnd, offset, band.count);
+            for (int k = 0; k < band.count; k++) {
+                parent[offset + k] = band.parent[k] + offset;
+            }
+            offset += band.count;
+        }
+        for (int b = 1; b < bandCount; b++) {
+            int row = bandFirstRow(rows, bandCount, b);
+            joinRows(runStart, runEnd, parent, rowRuns[row - 1], rowRuns[row], rowRuns[row], rowRuns[row + 1]);
+        }
+
+        // 合并总是让编号较小的根作为新根，所以父节点编号不大于自身；按编号顺序处理时父节点已经分配了空白区编号，
+        // 可以原地把父节点数组改写为空白区编号
+        int[] runRegion = parent;
+        int regionCount = 0;
+        for (int k = 0; k < runCount; k++) {
+            runRegion[k] = parent[k] == k ? regionCount++ : runRegion[parent[k]];
+        }
+
+        // 按空白区分组（计数排序，组内保持连续段编号升序）
+        int[] regionOffsets = new int[regionCount + 1];
+        for (int k = 0; k < runCount; k++) {
+            regionOffsets[runRegion[k] + 1]++;
+        }
+        for (int r = 0; r < regionCount; r++) {
+            regionOffsets[r + 1] += regionOffsets[r];
+        }
+        int[] fill = Arrays.copyOf(regionOffsets, regionCount);
+        int[] regionRuns = new int[runCount];
+        for (int k = 0; k < runCount; k++) {
+            regionRuns[fill[runRegion[k]]++] = k;
+        }
+
+        // 借用 fill 累计每个空白区的单元格数上界
+        Arrays.fill(fill, 0);
+        int largestRegion = 0;
+        for (int k = 0; k < runCount; k++) {
+            int region = runRegion[k];
+            fill[region] = (int) Math.min(Integer.MAX_VALUE, fill[region] + 3L * (runEnd[k] - runStart[k] + 3));
+            largestRegion = Math.max(largestRegion, fill[region]);
+        }
+        return new Openings(rows, cols, rowRuns, runStart, runEnd, runRegion, regionOffsets, regionRuns,
+                isolatedNumbers, largestRegion);
+    }
+
+    private static int bandFirstRow(int rows, int bandCount, int band) {
+        return (int) ((long) rows * band / bandCount);
+    }
+
+    /**
+     * 标注行带 [firstRow, lastRow) 内的连续段并在行带内合并，同时统计孤立的数字单元格
+     * 每行的连续段数写入 rowRuns[行 + 1]，各行带写入的位置互不重叠。
+     */
+    private static Band labelBand(CellGrid cells, int firstRow, int lastRow, int[] rowRuns) {
+        int rows = cells.getRows();
+        int cols = cells.getCols();
+        Band band = new Band();
+        // column[j + 1] 为第 j 列在当前行及上下两行中的空白单元格数，两端各留一个 0
+        int[] column = new int[cols + 2];
+        int previousFrom = 0;
+        for (int i = firstRow; i < lastRow; i++) {
+            int base = i * cols;
+            int from = band.count;
+            for (int j = 0; j < cols; j++) {
+                if (!cells.isZero(base + j)) {
+                    continue;
+                }
+                int start = j;
+                while (j + 1 < cols && cells.isZero(base + j + 1)) {
+                    j++;
+                }
+                band.add(start, j);
+            }
+            rowRuns[i + 1] = band.count - from;
+            if (i > firstRow) {
+                joinRows(band.start, band.end, band.parent, previousFrom, from, from, band.count);
+            }
+            previousFrom = from;
+
+            // 数据是随机的，这里避免短路求值的分支
+            for (int j = 0; j < cols; j++) {
+                int sum = zero(cells, base + j);
+                if (i > 0) {
+                    sum += zero(cells, base - cols + j);
+                }
+                if (i < rows - 1) {
+                    sum += zero(cells, base + cols + j);
+                }
+                column[j + 1] = sum;
+            }
+            int isolated = 0;
+            for (int j = 0; j < cols; j++) {
+                int number = cells.getAdjacentMines(base + j) != 0 ? 1 : 0;
+                isolated += number & (column[j] + column[j + 1] + column[j + 2] == 0 ? 1 : 0);
+            }
+            band.isolatedNumbers += isolated;
+        }
+        return band;
+    }
+
+    private static int zero(CellGrid cells, int cell) {
+        return cells.isZero(cell) ? 1 : 0;
+    }
+
+    /**
+     * 合并相邻两行中八连通相接（列区间相差不超过 1）的连续段
+     * 两行的连续段都按列排序，双指针扫描，时间与两行的连续段数之和成正比。
+     */
+    private static void joinRows(int[] start, int[] end, int[] parent, int upperFrom, int upperTo,
+                                 int lowerFrom, int lowerTo) {
+        int k = upperFrom;
+        for (int run = lowerFrom; run < lowerTo; run++) {
+            while (k < upperTo && end[k] < start[run] - 1) {
+                k++;
+            }
+            for (int m = k; m < upperTo && start[m] <= end[run] + 1; m++) {
+                union(parent, run, m);
+            }
+        }
+    }
+
+    /**
+     * 查找根节点，同时进行路径减半
+     */
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /**
+     * 合并两个集合，总是让编号较小的根作为新根
+     */
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) {
+            parent[rb] = ra;
+        } else if (rb < ra) {
+            parent[ra] = rb;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 查询
+    // ------------------------------------------------------------------
+
+    /**
+     * 空白区数量
+     */
+    public int getRegionCount() {
+        return regionOffsets.length - 1;
+    }
+
+    /**
+     * 棋盘的 3BV：空白区数加上不与空白单元格相邻的数字单元格数
+     */
+    public int get3BV() {
+        return getRegionCount() + isolatedNumbers;
+    }
+
+    /**
+     * 最大的空白区连同数字边界的单元格数上界，逐格展开一个空白区时栈的大小不会超过它
+     */
+    public int getLargestRegion() {
+        return largestRegion;
+    }
+
+    /**
+     * 查找单元格所在的空白区
+     *
+     * @return 空白区编号，单元格不是空白单元格时返回 -1
+     */
+    public int regionOf(int row, int col) {
+        int low = rowRuns[row];
+        int high = rowRuns[row + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runEnd[mid] < col) {
+                low = mid + 1;
+            } else if (runStart[mid] > col) {
+                high = mid - 1;
+            } else {
+                return runRegion[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 单元格回调
+     */
+    public interface CellVisitor {
+        void visit(int row, int col);
+    }
+
+    /**
+     * 按行依次访问空白区的所有单元格及其数字边界
+     * 相邻连续段的边界可能重叠，同一个数字单元格最多被访问三次，调用方应跳过已处理的单元格。
+     *
+     * @param region 空白区编号
+     * @param visitor 单元格回调
+     */
+    public void forEachCell(int region, CellVisitor visitor) {
+        int from = regionOffsets[region];
+        int to = regionOffsets[region + 1];
+        // 组内连续段编号升序，所在行单调不减，从第一段所在的行向下推进
+        int row = rowOf(regionRuns[from]);
+        for (int k = from; k < to; k++) {
+            int run = regionRuns[k];
+            while (rowRuns[row + 1] <= run) {
+                row++;
+            }
+            int firstCol = Math.max(0, runStart[run] - 1);
+            int lastCol = Math.min(cols - 1, runEnd[run] + 1);
+            for (int i = Math.max(0, row - 1); i <= Math.min(rows - 1, row + 1); i++) {
+                for (int j = firstCol; j <= lastCol; j++) {
+                    visitor.visit(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * 连续段所在的行
+     */
+    private int rowOf(int run) {
+        int low = 0;
+        int high = rows - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rowRuns[mid] <= run) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 估算 rows × cols 棋盘的标注占用的内存（字节）
+     * 每个连续段 16 字节；常见的地雷密度下连续段数不超过单元格数的十分之一。
+     */
+    static long estimateBytes(int rows, int cols) {
+        return (long) rows * cols * 16 / 10 + rows * 4L;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * 扫雷机器人的策略接口
+ * 机器人只能通过 View 看到人类玩家能看到的信息：棋盘尺寸、地雷总数、已揭示的数字和旗帜，
+ * 每次被询问时返回下一步操作。地雷位置保存在裁判（Referee）中，View 不持有任何指向它的引用。
+ * <p>
+ * 同一个 Player 实例只会在一个线程中使用，可以在对局之间保存状态；
+ * 每开始一局都会先调用 newGame。
+ * </p>
+ */
+public interface Player {
+    /**
+     * 机器人的名称，用于比赛报告
+     */
+    String getName();
+
+    /**
+     * 开始新的一局
+     *
+     * @param view 本局的可见局面，整局有效
+     */
+    default void newGame(View view) {
+    }
+
+    /**
+     * 选择下一步操作
+     *
+     * @param view 当前可见局面
+     * @return 下一步操作，不能为 null
+     */
+    Move nextMove(View view);
+
+    /**
+     * 机器人可见的局面，只读
+     */
+    interface View {
+        /**
+         * 未揭示且未标记的单元格
+         */
+        int HIDDEN = -1;
+
+        /**
+         * 标记了旗帜的单元格
+         */
+        int FLAG = -2;
+
+        int getRows();
+
+        int getCols();
+
+        /**
+         * 地雷总数
+         */
+        int getMines();
+
+        /**
+         * 棋盘的邻居关系
+         */
+        Topology getTopology();
+
+        /**
+         * 获取单元格的可见状态
+         *
+         * @return 已揭示时为周围地雷数 0~8，否则为 HIDDEN 或 FLAG
+         */
+        int getCell(int row, int col);
+
+        default boolean isRevealed(int row, int col) {
+            return getCell(row, col) >= 0;
+        }
+
+        default boolean isFlagged(int row, int col) {
+            return getCell(row, col) == FLAG;
+        }
+
+        /**
+         * 已揭示的单元格数
+         */
+        int getRevealedCount();
+
+        /**
+         * 本局已经执行的操作数
+         */
+        int getMoveCount();
+    }
+
+    /**
+     * 一步操作：揭示单元格或切换旗帜
+     */
+    final class Move {
+        private final boolean flag;
+        private final int row;
+        private final int col;
+
+        private Move(boolean flag, int row, int col) {
+            this.flag = flag;
+            this.row = row;
+            this.col = col;
+        }
+
+        /**
+         * 揭示单元格（相当于左键点击）
+         */
+        public static Move reveal(int row, int col) {
+            return new Move(false, row, col);
+        }
+
+        /**
+         * 切换单元格的旗帜（相当于右键点击）
+         */
+        public static Move flag(int row, int col) {
+            return new Move(true, row, col);
+        }
+
+        public boolean isFlag() {
+            return flag;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        @Override
+        public String toString() {
+            return (flag ? "flag " : "reveal ") + row + "," + col;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.Arrays;
+
+/**
+ * 无界面的对局裁判
+ * 持有地雷位置，执行机器人的操作并维护机器人可见的局面，规则与 MineSweeper 的左键、右键点击相同：
+ * 揭示地雷即失败，揭示周围没有地雷的单元格时自动展开，旗帜标记的单元格不会被揭示。
+ * <p>
+ * 机器人只能拿到 getView() 返回的局面。局面对象是独立的静态嵌套类实例，
+ * 只持有可见状态数组和计数，不引用裁判本身，因此从它出发（包括通过反射）无法到达地雷数组。
+ * 一个裁判可以反复调用 newBoard 复用，所有数组只在构造时分配一次。
+ * </p>
+ */
+public final class Referee {
+    private final int rows;
+    private final int cols;
+    private final int mineCount;
+    private final Topology topology;
+
+    /**
+     * 地雷位置，按 行 * 列数 + 列 索引
+     */
+    private final boolean[] mines;
+
+    /**
+     * 每个单元格周围的地雷数
+     */
+    private final byte[] counts;
+
+    private final VisibleView view;
+
+    /**
+     * 展开空白区使用的显式栈
+     */
+    private int[] stack;
+
+    private boolean lost;
+
+    /**
+     * 创建裁判
+     *
+     * @param topology 棋盘的邻居关系，同时确定棋盘尺寸
+     * @param mineCount 地雷数
+     */
+    public Referee(Topology topology, int mineCount) {
+        this.topology = topology;
+        this.rows = topology.getRows();
+        this.cols = topology.getCols();
+        this.mineCount = mineCount;
+        this.mines = new boolean[rows * cols];
+        this.counts = new byte[rows * cols];
+        this.view = new VisibleView(topology, mineCount);
+        this.stack = new int[64];
+    }
+
+    /**
+     * 用种子生成新的棋盘，地雷位置与游戏中相同种子生成的棋盘一致
+     *
+     * @param seed 随机种子
+     */
+    public void newBoard(long seed) {
+        Arrays.fill(mines, false);
+        BoardGenerator.placeMines(mines, rows, cols, mineCount, seed);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int cell = i * cols + j;
+                int count = 0;
+                if (!mines[cell]) {
+                    for (int offset : topology.cellOffsets(i, j)) {
+                        if (mines[cell + offset]) {
+                            count++;
+                        }
+                    }
+                }
+                counts[cell] = (byte) count;
+            }
+        }
+        Arrays.fill(view.cells, (byte) Player.View.HIDDEN);
+        view.revealedCount = 0;
+        view.moveCount = 0;
+        lost = false;
+    }
+
+    /**
+     * 机器人可见的局面
+     */
+    public Player.View getView() {
+        return view;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    public boolean isWon() {
+        return !lost && view.revealedCount == rows * cols - mineCount;
+    }
+
+    public boolean isOver() {
+        return lost || isWon();
+    }
+
+    /**
+     * 执行一步操作，对局已经结束时忽略
+     *
+     * @param move 操作
+     * @throws IllegalArgumentException 单元格超出棋盘时抛出
+     */
+    public void apply(Player.Move move) {
+        int row = move.getRow();
+        int col = move.getCol();
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IllegalArgumentException("单元格超出棋盘: " + move);
+        }
+        if (isOver()) {
+            return;
+        }
+        view.moveCount++;
+        int cell = row * cols + col;
+        byte look = view.cells[cell];
+        if (move.isFlag()) {
+            if (look < 0) {
+                view.cells[cell] = (byte) (look == Player.View.FLAG ? Player.View.HIDDEN : Player.View.FLAG);
+            }
+        } else if (look == Player.View.HIDDEN) {
+            if (mines[cell]) {
+                lost = true;
+            } else {
+                reveal(cell);
+            }
+        }
+    }
+
+    /**
+     * 与 MineSweeper.revealCell 规则相同的展开，已揭示或已标记的单元格不会被揭示
+     */
+    private void reveal(int start) {
+        byte[] cells = view.cells;
+        int size = 0;
+        stack[size++] = start;
+        while (size > 0) {
+            int cell = stack[--size];
+            if (cells[cell] != Player.View.HIDDEN) {
+                continue;
+            }
+            cells[cell] = counts[cell];
+            view.revealedCount++;
+            if (counts[cell] != 0) {
+                continue;
+            }
+            int[] offsets = topology.cellOffsets(cell / cols, cell % cols);
+            if (size + offsets.length > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + offsets.length));
+            }
+            for (int offset : offsets) {
+                if (cells[cell + offset] == Player.View.HIDDEN) {
+                    stack[size++] = cell + offset;
+                }
+            }
+        }
+    }
+
+    /**
+     * 可见局面的实现，不持有裁判或地雷数组的引用
+     */
+    private static final class VisibleView implements Player.View {
+        private final Topology topology;
+        private final int rows;
+        private final int cols;
+        private final int mines;
+
+        /**
+         * 每个单元格的可见状态：周围地雷数、HIDDEN 或 FLAG
+         */
+        private final byte[] cells;
+
+        private int revealedCount;
+        private int moveCount;
+
+        VisibleView(Topology topology, int mines) {
+            this.topology = topology;
+            this.rows = topology.getRows();
+            this.cols = topology.getCols();
+            this.mines = mines;
+            this.cells = new byte[rows * cols];
+        }
+
+        @Override
+        public int getRows() {
+            return rows;
+        }
+
+        @Override
+        public int getCols() {
+            return cols;
+        }
+
+        @Override
+        public int getMines() {
+            return mines;
+        }
+
+        @Override
+        public Topology getTopology() {
+            return topology;
+        }
+
+        @Override
+        public int getCell(int row, int col) {
+            return cells[row * cols + col];
+        }
+
+        @Override
+        public int getRevealedCount() {
+            return revealedCount;
+        }
+
+        @Override
+        public int getMoveCount() {
+            return moveCount;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import javax.swing.*;
+
+/**
+ * 棋盘绘制性能测试
+ * 不需要显示器，把棋盘画到离屏的 BufferedImage 上，在不同的棋盘尺寸和揭示程度下报告：
+ * - 整帧：重绘整个视口（VIEW_WIDTH × VIEW_HEIGHT，棋盘更小时为整个棋盘）的帧率
+ * - 局部重绘：只重绘一个单元格所在区域（点击或标记后 repaint 的脏区域）的平均耗时
+ * <p>
+ * 参与比较的绘制方式：
+ * - BoardView 在几个缩放级别下的绘制，间距不小于 4 像素时逐格绘制，更小时写入像素缓冲区
+ * - 小地图的整帧绘制
+ * - 与原先游戏相同的 JButton 网格（GridLayout、Nimbus 外观、每格一个按钮），只在单元格不超过 BUTTON_LIMIT 时测量
+ * 每项先预热再计时，结果是稳定状态的数值，可以和逻辑部分的性能测试一样用来发现绘制上的退化。
+ * 可以在命令行运行（不需要显示器）：java -Djava.awt.headless=true RenderBenchmark [行数 列数 地雷数]
+ * </p>
+ */
+public class RenderBenchmark {
+    /**
+     * 视口尺寸，与棋盘视图的最大默认视口相同
+     */
+    private static final int VIEW_WIDTH = 960;
+    private static final int VIEW_HEIGHT = 720;
+
+    /**
+     * 测量的单元格间距：默认大小、较小的逐格绘制、像素缓冲区、聚合块
+     */
+    private static final double[] PITCHES = {BoardView.DEFAULT_PITCH, 8, 2, 1 / 8.0};
+
+    /**
+     * 揭示程度：未揭示、揭示一半、全部揭示（地雷按同样比例标记）
+     */
+    private static final double[] REVEAL_FRACTIONS = {0, 0.5, 1};
+
+    /**
+     * JButton 网格最多的单元格数，更多时创建按钮本身就要很久
+     */
+    private static final int BUTTON_LIMIT = 100 * 100;
+
+    /**
+     * 每项测量的预热和计时时长（纳秒）
+     */
+    private static final long WARMUP_NANOS = 300_000_000L;
+    private static final long MEASURE_NANOS = 500_000_000L;
+
+    private RenderBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
+        if (args.length == 3) {
+            run(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            return;
+        }
+        run(9, 9, 10);
+        run(16, 30, 99);
+        run(100, 100, 2000);
+        run(1000, 1000, 150000);
+        run(3000, 3000, 1350000);
+    }
+
+    private static void run(int rows, int cols, int mines) {
+        Topology topology = Topology.of(Topology.Kind.SQUARE, rows, cols);
+        BoardGenerator.Board board = BoardGenerator.generate(topology, mines, BoardGenerator.Mode.SAFE_START,
+                new Random(rows * 31L + cols), null, () -> false);
+        BufferedImage image = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        for (double fraction : REVEAL_FRACTIONS) {
+            System.out.printf("%d x %d / %d，揭示 %.0f%%%n", rows, cols, mines, fraction * 100);
+            BoardView view = new BoardView(rows, cols, false);
+            Minimap minimap = new Minimap(view);
+            applyState(view, board, topology, fraction);
+
+            for (double pitch : PITCHES) {
+                view.setPitch(pitch, null);
+                Dimension size = view.getPreferredSize();
+                view.setSize(size);
+                int width = Math.min(VIEW_WIDTH, size.width);
+                int height = Math.min(VIEW_HEIGHT, size.height);
+                // 视口放在棋盘中央
+                int x = (size.width - width) / 2;
+                int y = (size.height - height) / 2;
+                double frame = measure(image, view, new Rectangle(x, y, width, height), null);
+                double dirty = measure(image, view, new Rectangle(x, y, width, height), view::getPitch);
+                report("视图 " + formatPitch(pitch), frame, dirty);
+            }
+
+            Dimension minimapSize = minimap.getPreferredSize();
+            minimap.setSize(minimapSize);
+            report("小地图", measure(image, minimap, new Rectangle(minimapSize), null), Double.NaN);
+
+            if (rows * cols <= BUTTON_LIMIT) {
+                JPanel grid = buttonGrid(view);
+                Dimension size = grid.getSize();
+                Rectangle visible = new Rectangle(0, 0, Math.min(VIEW_WIDTH, size.width),
+                        Math.min(VIEW_HEIGHT, size.height));
+                double frame = measure(image, grid, visible, null);
+                double dirty = measure(image, grid, visible, () -> BoardView.DEFAULT_PITCH);
+                report("按钮网格", frame, dirty);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * 按随机顺序揭示一定比例的安全单元格（含自动展开），并按同样比例标记地雷
+     */
+    private static void applyState(BoardView view, BoardGenerator.Board board, Topology topology, double fraction) {
+        CellGrid cells = board.cells;
+        int cols = cells.getCols();
+        int total = cells.getRows() * cols;
+        int target = (int) ((total - countMines(cells)) * fraction);
+        cells.clearState();
+        Revealer revealer = new Revealer();
+        revealer.reset(cells, topology, board.openings);
+        Random random = new Random(7);
+        while (cells.getRevealedCount() < target) {
+            int cell = random.nextInt(total);
+            if (!cells.isMine(cell)) {
+                revealer.reveal(cell, c -> view.setCell(c / cols, c % cols, BoardView.revealed(cells.getAdjacentMines(c))));
+            }
+        }
+        for (int cell = 0; cell < total; cell++) {
+            if (cells.isMine(cell) && random.nextDouble() < fraction) {
+                view.setCell(cell / cols, cell % cols, BoardView.FLAG);
+            }
+        }
+        cells.clearState();
+    }
+
+    private static int countMines(CellGrid cells) {
+        int count = 0;
+        for (int cell = cells.getRows() * cells.getCols() - 1; cell >= 0; cell--) {
+            if (cells.isMine(cell)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 与原先游戏相同的按钮网格：GridLayout 间隔 1 像素，每个按钮 25 像素，外观按 BoardView 的当前状态设置
+     */
+    private static JPanel buttonGrid(BoardView view) {
+        int rows = view.getRows();
+        int cols = view.getCols();
+        Color[] colors = {
+                Color.BLUE, Color.GREEN, Color.RED,
+                Color.MAGENTA, Color.ORANGE, Color.CYAN,
+                Color.BLACK, Color.GRAY
+        };
+        JPanel panel = new JPanel(new GridLayout(rows, cols, 1, 1));
+        panel.setBorder(BorderFactory.createLoweredBevelBorder());
+        panel.setBackground(Color.GRAY);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                JButton button = new JButton();
+                button.setForeground(Color.BLACK);
+                button.setBorder(BorderFactory.createRaisedBevelBorder());
+                button.setContentAreaFilled(true);
+                button.setOpaque(true);
+                button.setPreferredSize(new Dimension(25, 25));
+                button.setFont(new Font("Arial", Font.BOLD, 12));
+                button.setMargin(new Insets(0, 0, 0, 0));
+                button.setFocusPainted(false);
+                byte look = view.getCell(i, j);
+                if (look == BoardView.FLAG) {
+                    button.setIcon(IconManager.getFlagIcon());
+                    button.setBackground(Color.YELLOW);
+                } else if (look >= BoardView.REVEALED) {
+                    button.setEnabled(false);
+                    button.setBackground(Color.LIGHT_GRAY);
+                    int count = look - BoardView.REVEALED;
+                    if (count > 0) {
+                        button.setForeground(colors[count - 1]);
+                        button.setText(String.valueOf(count));
+                    }
+                }
+                panel.add(button);
+            }
+        }
+        panel.setSize(panel.getPreferredSize());
+        panel.doLayout();
+        return panel;
+    }
+
+    /**
+     * 单元格边长的来源，为 null 时测量整帧
+     */
+    private interface CellSize {
+        double get();
+    }
+
+    /**
+     * 测量绘制耗时
+     *
+     * @param visible 视口在组件中的位置
+     * @param cellSize 为 null 时每次重绘整个视口，否则每次重绘视口内随机一个单元格的区域
+     * @return 整帧时为每秒帧数，局部重绘时为每次重绘的微秒数
+     */
+    private static double measure(BufferedImage image, JComponent component, Rectangle visible, CellSize cellSize) {
+        Random random = new Random(1);
+        long deadline = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < deadline) {
+            paint(image, component, visible, cellSize, random);
+        }
+        long start = System.nanoTime();
+        long end = start + MEASURE_NANOS;
+        long count = 0;
+        long now;
+        do {
+            paint(image, component, visible, cellSize, random);
+            count++;
+        } while ((now = System.nanoTime()) < end);
+        double seconds = (now - start) / 1e9;
+        return cellSize == null ? count / seconds : seconds * 1e6 / count;
+    }
+
+    private static void paint(BufferedImage image, JComponent component, Rectangle visible, CellSize cellSize,
+                              Random random) {
+        Rectangle clip = visible;
+        if (cellSize != null) {
+            // 单元格不足 1 像素时脏区域至少是 1 像素
+            int size = (int) Math.max(1, Math.ceil(cellSize.get()));
+            clip = new Rectangle(visible.x + random.nextInt(Math.max(1, visible.width - size)),
+                    visible.y + random.nextInt(Math.max(1, visible.height - size)), size, size);
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            g.translate(-visible.x, -visible.y);
+            g.setClip(clip);
+            component.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static String formatPitch(double pitch) {
+        return pitch >= 1 ? String.format("%.0fpx", pitch) : String.format("1/%.0fpx", 1 / pitch);
+    }
+
+    private static void report(String name, double framesPerSecond, double dirtyMicros) {
+        System.out.printf("  %-12s 整帧 %9.1f fps   局部重绘 %s%n", name, framesPerSecond,
+                Double.isNaN(dirtyMicros) ? "        -" : String.format("%9.2f µs", dirtyMicros));
+    }
+}
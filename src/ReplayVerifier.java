@@ -0,0 +1,347 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 英雄榜成绩的重放校验
+ * <p>
+ * 新的英雄榜记录带有棋盘种子、起始单元格和操作记录（MoveLog）。校验时由种子重新生成棋盘，
+ * 用与游戏相同的 CellGrid 和 Revealer 无界面地重放每一步，以下情况判为无效：
+ * - 3BV 或起始单元格与种子生成的棋盘不符，点击次数与操作记录的步数不符
+ * - 左键点中地雷，对局结束后仍有操作，或者最后没有完成对局（例如 Ctrl+B 直接胜利的成绩）
+ * - 记录的用时与最后一步的时间不符，或开始计时后相邻两步的间隔短于 MIN_INTERVAL 毫秒
+ * 没有操作记录的旧成绩无法校验，单独统计。
+ * </p>
+ * <p>
+ * 批量校验按 CPU 核数并行：工作线程依次领取一批记录，每个线程复用自己的重放器（揭示器、操作记录），
+ * 每条记录只分配种子生成的棋盘本身。可以在命令行运行：
+ * java ReplayVerifier 目录或记录文件... | bench [局数 [行数 列数 地雷数]]
+ * </p>
+ */
+public final class ReplayVerifier {
+    /**
+     * 开始计时后相邻两步的最短间隔（毫秒），更快的点击不可能由人完成
+     */
+    public static final int MIN_INTERVAL = 8;
+
+    /**
+     * 每批记录的数量
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * 校验结果
+     */
+    public enum Verdict {
+        VALID("通过"),
+        UNVERIFIABLE("无操作记录"),
+        MALFORMED("操作记录格式错误"),
+        BOARD_MISMATCH("棋盘与种子不符"),
+        CLICKS_MISMATCH("点击次数不符"),
+        MINE_HIT("点中地雷"),
+        MOVES_AFTER_END("结束后仍有操作"),
+        NOT_WON("没有完成对局"),
+        TIME_MISMATCH("用时与操作记录不符"),
+        TOO_FAST("点击间隔过短");
+
+        private final String label;
+
+        Verdict(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Topology topology;
+    private final int mines;
+    private final Revealer revealer = new Revealer();
+    private final MoveLog log = new MoveLog();
+
+    /**
+     * 创建一个重放器，只能由一个线程使用
+     *
+     * @param topology 记录所属难度的棋盘
+     * @param mines 地雷数
+     */
+    public ReplayVerifier(Topology topology, int mines) {
+        this.topology = topology;
+        this.mines = mines;
+    }
+
+    /**
+     * 重放一条记录
+     *
+     * @param record 英雄榜记录
+     * @return 校验结果
+     */
+    public Verdict verify(LegendList.Record record) {
+        if (record.getMoves() == null) {
+            return Verdict.UNVERIFIABLE;
+        }
+        if (!log.decode(record.getMoves())) {
+            return Verdict.MALFORMED;
+        }
+        int size = log.size();
+        if (record.getClicks() != size) {
+            return Verdict.CLICKS_MISMATCH;
+        }
+
+        BoardGenerator.Board board = BoardGenerator.generate(topology, mines, BoardGenerator.Mode.RANDOM,
+                record.getSeed(), null);
+        CellGrid cells = board.cells;
+        int start = record.getStartCell();
+        if (board.bbbv != record.getBbbv() || (start >= 0 && start != BoardGenerator.findStart(cells))) {
+            return Verdict.BOARD_MISMATCH;
+        }
+        revealer.reset(cells, topology, board.openings);
+        if (start >= 0) {
+            revealer.reveal(start, null);
+        }
+
+        int target = cells.getRows() * cells.getCols() - mines;
+        int cellCount = cells.getRows() * cells.getCols();
+        boolean started = false;
+        boolean won = false;
+        for (int i = 0; i < size; i++) {
+            int cell = log.getCell(i);
+            if (cell >= cellCount) {
+                return Verdict.MALFORMED;
+            }
+            if (won) {
+                return Verdict.MOVES_AFTER_END;
+            }
+            long millis = log.getMillis(i);
+            if (started && millis - log.getMillis(i - 1) < MIN_INTERVAL) {
+                return Verdict.TOO_FAST;
+            }
+            if (!started && millis != 0) {
+                return Verdict.TIME_MISMATCH; // 第一次左键之前计时器还没有开始
+            }
+            if (log.isRight(i)) {
+                if (!cells.isRevealed(cell)) {
+                    revealer.setFlagged(cell, !cells.isFlagged(cell));
+                }
+                continue;
+            }
+            started = true;
+            if (!cells.isCovered(cell)) {
+                continue;
+            }
+            if (cells.isMine(cell)) {
+                return Verdict.MINE_HIT;
+            }
+            revealer.reveal(cell, null);
+            won = cells.getRevealedCount() == target;
+        }
+        if (!won) {
+            return Verdict.NOT_WON;
+        }
+        // 计时器在获胜那一步到达的时刻停止，毫秒成绩必须与最后一步的时间相同；
+        // 整秒的成绩来自只保存秒数的旧版本，允许不超过 1 秒的舍入
+        long last = log.getMillis(size - 1);
+        long time = record.getTimeMillis();
+        if (time != last && (time % 1000 != 0 || time / 1000 < last / 1000 || time / 1000 > last / 1000 + 1)) {
+            return Verdict.TIME_MISMATCH;
+        }
+        return Verdict.VALID;
+    }
+
+    /**
+     * 并行校验一个难度的所有记录
+     *
+     * @param records 记录
+     * @param kind 棋盘类型
+     * @param rows 行数
+     * @param cols 列数
+     * @param mines 地雷数
+     * @param threads 并行线程数
+     * @return 与 records 顺序相同的校验结果
+     */
+    public static Verdict[] verifyAll(List<LegendList.Record> records, Topology.Kind kind, int rows, int cols,
+                                      int mines, int threads) throws InterruptedException {
+        Topology topology = Topology.of(kind, rows, cols);
+        Verdict[] verdicts = new Verdict[records.size()];
+        AtomicInteger nextBatch = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                ReplayVerifier verifier = new ReplayVerifier(topology, mines);
+                int from;
+                while ((from = nextBatch.getAndAdd(BATCH)) < records.size()) {
+                    int to = Math.min(records.size(), from + BATCH);
+                    for (int i = from; i < to; i++) {
+                        verdicts[i] = verifier.verify(records.get(i));
+                    }
+                }
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("校验线程失败", e.getCause());
+        }
+        return verdicts;
+    }
+
+    // ------------------------------------------------------------------
+    // 命令行
+    // ------------------------------------------------------------------
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("用法: java ReplayVerifier <目录或记录文件>... | bench [局数 [行 列 地雷]]");
+            System.exit(1);
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args[0].equals("bench")) {
+            int games = args.length >= 2 ? Integer.parseInt(args[1]) : 200_000;
+            int rows = args.length >= 5 ? Integer.parseInt(args[2]) : 16;
+            int cols = args.length >= 5 ? Integer.parseInt(args[3]) : 30;
+            int mines = args.length >= 5 ? Integer.parseInt(args[4]) : 99;
+            bench(games, rows, cols, mines, threads);
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            File file = new File(arg);
+            File[] children = file.listFiles((dir, name) -> LegendList.isLeaderboardFile(name));
+            if (children != null) {
+                files.addAll(Arrays.asList(children));
+            } else {
+                files.add(file);
+            }
+        }
+        for (File file : files) {
+            int[] difficulty = LegendList.parseDifficulty(file.getName());
+            if (difficulty == null) {
+                System.err.println("跳过非记录文件: " + file);
+                continue;
+            }
+            List<LegendList.Record> records = LegendList.readRecords(file);
+            Verdict[] verdicts = verifyAll(records, Topology.Kind.values()[difficulty[3]], difficulty[0],
+                    difficulty[1], difficulty[2], threads);
+            Map<Verdict, Integer> counts = new EnumMap<>(Verdict.class);
+            for (int i = 0; i < verdicts.length; i++) {
+                counts.merge(verdicts[i], 1, Integer::sum);
+                if (verdicts[i] != Verdict.VALID && verdicts[i] != Verdict.UNVERIFIABLE) {
+                    LegendList.Record record = records.get(i);
+                    System.out.printf("  %s：%s %s 秒%n", verdicts[i].getLabel(), record.getPlayerName(),
+                            LegendList.Record.formatTime(record.getTimeMillis()));
+                }
+            }
+            StringBuilder summary = new StringBuilder();
+            for (Map.Entry<Verdict, Integer> entry : counts.entrySet()) {
+                summary.append("  ").append(entry.getKey().getLabel()).append(' ').append(entry.getValue());
+            }
+            System.out.println(file.getName() + "：" + records.size() + " 条" + summary);
+        }
+    }
+
+    /**
+     * 生成一批有效的对局记录（按随机顺序揭示所有安全单元格，夹杂标记地雷和点中已揭示单元格的操作），
+     * 再加上同样数量的篡改记录（改动用时或点中地雷），测量校验吞吐量并检查结果
+     */
+    private static void bench(int games, int rows, int cols, int mines, int threads) throws InterruptedException {
+        Topology topology = Topology.of(Topology.Kind.SQUARE, rows, cols);
+        Random random = new Random(1);
+        List<LegendList.Record> records = new ArrayList<>();
+        Revealer revealer = new Revealer();
+        MoveLog log = new MoveLog();
+        int[] order = new int[rows * cols];
+        for (int g = 0; g < games; g++) {
+            BoardGenerator.Board board = BoardGenerator.generate(topology, mines, BoardGenerator.Mode.SAFE_START,
+                    random, null, () -> false);
+            CellGrid cells = board.cells;
+            revealer.reset(cells, topology, board.openings);
+            int start = board.startRow < 0 ? -1 : board.startRow * cols + board.startCol;
+            if (start >= 0) {
+                revealer.reveal(start, null);
+            }
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            log.clear();
+            long millis = 0;
+            boolean started = false;
+            int target = rows * cols - mines;
+            for (int k = 0; k < order.length && cells.getRevealedCount() < target; k++) {
+                int cell = order[k];
+                if (started) {
+                    millis += MIN_INTERVAL + random.nextInt(300);
+                }
+                if (cells.isMine(cell)) {
+                    if (random.nextInt(4) == 0) {
+                        log.add(cell, true, millis);
+                        revealer.setFlagged(cell, true);
+                    }
+                } else if (!cells.isRevealed(cell) || random.nextInt(8) == 0) {
+                    log.add(cell, false, millis);
+                    revealer.reveal(cell, null);
+                    started = true;
+                }
+            }
+            long last = log.getMillis(log.size() - 1);
+            boolean tamper = (g & 1) == 1;
+            boolean hitMine = tamper && random.nextBoolean();
+            if (hitMine) {
+                // 点中一个地雷之后继续
+                for (int cell = 0; ; cell++) {
+                    if (cells.isMine(cell)) {
+                        String moves = log.encode();
+                        log.clear();
+                        log.add(cell, false, 0);
+                        MoveLog rest = new MoveLog();
+                        rest.decode(moves);
+                        for (int i = 0; i < rest.size(); i++) {
+                            log.add(rest.getCell(i), rest.isRight(i), rest.getMillis(i) + MIN_INTERVAL);
+                        }
+                        last += MIN_INTERVAL;
+                        break;
+                    }
+                }
+            }
+            long time = last;
+            if (tamper && !hitMine) {
+                // 改动几毫秒；避开整秒，整秒的成绩按旧版本的精度校验
+                time += (last + 5) % 1000 == 0 ? 6 : 5;
+            }
+            records.add(new LegendList.Record("p" + g, time, board.bbbv, log.size(), board.seed, start,
+                    log.encode()));
+            cells.clearState();
+        }
+
+        long begin = System.nanoTime();
+        Verdict[] verdicts = verifyAll(records, Topology.Kind.SQUARE, rows, cols, mines, threads);
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        int valid = 0;
+        for (int g = 0; g < games; g++) {
+            boolean tamper = (g & 1) == 1;
+            if ((verdicts[g] == Verdict.VALID) == tamper) {
+                throw new IllegalStateException("记录 " + g + " 的校验结果错误: " + verdicts[g]);
+            }
+            valid += verdicts[g] == Verdict.VALID ? 1 : 0;
+        }
+        System.out.printf("%d x %d / %d：%d 条记录（%d 条有效），%d 线程 %.2f s，每核每秒 %.0f 条%n",
+                rows, cols, mines, games, valid, threads, seconds, games / seconds / threads);
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 揭示单元格和展开空白区
+ * <p>
+ * 规则与经典扫雷相同：揭示未揭示、未标记的单元格，相邻地雷数为 0 时继续揭示周围的单元格，旗帜会阻断展开。
+ * - 有空白区标注（Openings）且该空白区内没有被标记的空白单元格时，直接按标注的列表揭示整个空白区
+ * - 否则用显式栈逐格展开，单元格入栈时即标记为已揭示，每个单元格最多入栈一次
+ * 揭示器在多局之间复用：展开用的栈、每个空白区的旗帜计数数组只在需要更大容量时重新分配，
+ * 有空白区标注时栈在开局时按最大空白区的大小（取 2 的幂）一次分配好，
+ * 回调通过字段传递而不是捕获参数的 lambda，稳定状态下揭示和标记不分配任何对象。
+ * </p>
+ */
+public final class Revealer implements Openings.CellVisitor {
+    private CellGrid cells;
+    private Topology topology;
+    private Openings openings;
+
+    /**
+     * 每个空白区内被标记的空白单元格数，只使用前 openings.getRegionCount() 个
+     */
+    private int[] flaggedZeros = new int[0];
+
+    private int[] stack = new int[64];
+
+    /**
+     * 本次揭示的回调和揭示的单元格数
+     */
+    private IntConsumer listener;
+    private int revealed;
+
+    /**
+     * 开始新的一局
+     *
+     * @param cells 单元格状态，旗帜必须全部清除
+     * @param topology 棋盘的邻居关系
+     * @param openings 空白区标注，可以为 null
+     */
+    public void reset(CellGrid cells, Topology topology, Openings openings) {
+        this.cells = cells;
+        this.topology = topology;
+        this.openings = openings;
+        if (openings != null) {
+            int regions = openings.getRegionCount();
+            if (flaggedZeros.length < regions) {
+                flaggedZeros = new int[regions];
+            } else {
+                Arrays.fill(flaggedZeros, 0, regions, 0);
+            }
+            // 逐格展开不会离开起始单元格所在的空白区及其边界
+            int largest = openings.getLargestRegion();
+            if (stack.length < largest) {
+                stack = new int[Integer.highestOneBit(largest - 1) << 1];
+            }
+        }
+    }
+
+    /**
+     * 设置单元格的标记状态，并维护所在空白区的旗帜计数
+     *
+     * @param cell 单元格编号（行 * 列数 + 列）
+     * @param flag true 表示标记为地雷
+     */
+    public void setFlagged(int cell, boolean flag) {
+        if (cells.isFlagged(cell) == flag) {
+            return;
+        }
+        cells.setFlagged(cell, flag);
+        if (openings != null && cells.isZero(cell)) {
+            int cols = cells.getCols();
+            flaggedZeros[openings.regionOf(cell / cols, cell % cols)] += flag ? 1 : -1;
+        }
+    }
+
+    /**
+     * 揭示单元格，相邻地雷数为 0 时展开空白区
+     *
+     * @param start 单元格编号（行 * 列数 + 列）
+     * @param listener 每揭示一个单元格回调一次，可以为 null
+     * @return 揭示的单元格数，单元格已揭示或已标记时为 0
+     */
+    public int reveal(int start, IntConsumer listener) {
+        if (!cells.isCovered(start)) {
+            return 0;
+        }
+        this.listener = listener;
+        revealed = 0;
+        int cols = cells.getCols();
+        if (openings != null && cells.isZero(start)) {
+            int region = openings.regionOf(start / cols, start % cols);
+            if (flaggedZeros[region] == 0) {
+                openings.forEachCell(region, this);
+                this.listener = null;
+                return revealed;
+            }
+        }
+
+        int size = 0;
+        open(start);
+        stack[size++] = start;
+        while (size > 0) {
+            int cell = stack[--size];
+            if (!cells.isZero(cell)) {
+                continue;
+            }
+            // 把相邻的单元格压入栈中继续揭示
+            for (int offset : topology.cellOffsets(cell / cols, cell % cols)) {
+                int neighbour = cell + offset;
+                if (cells.isCovered(neighbour)) {
+                    open(neighbour);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = neighbour;
+                }
+            }
+        }
+        this.listener = null;
+        return revealed;
+    }
+
+    /**
+     * 空白区列表中的单元格，跳过已揭示和已标记的单元格
+     */
+    @Override
+    public void visit(int row, int col) {
+        int cell = row * cells.getCols() + col;
+        if (cells.isCovered(cell)) {
+            open(cell);
+        }
+    }
+
+    private void open(int cell) {
+        cells.setRevealed(cell, true);
+        revealed++;
+        if (listener != null) {
+            listener.accept(cell);
+        }
+    }
+}
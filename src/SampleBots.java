@@ -0,0 +1,199 @@
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * 示例机器人，用于比赛基准和对比新策略
+ * - RandomBot：随机揭示未揭示的单元格
+ * - RuleBot：按单个数字的两条基本规则推理（数字等于周围旗帜数时其余邻居安全；
+ *   数字减去旗帜数等于未揭示邻居数时它们都是地雷），无法推理时随机猜测
+ * - ProbabilityBot：在 RuleBot 的基础上，无法推理时用 MineProbability 选择地雷概率最低的单元格
+ */
+public final class SampleBots {
+    private SampleBots() {
+    }
+
+    /**
+     * 随机揭示的机器人
+     */
+    public static class RandomBot implements Player {
+        protected final Random random;
+
+        public RandomBot(long seed) {
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public String getName() {
+            return "随机";
+        }
+
+        @Override
+        public Move nextMove(View view) {
+            return guess(view);
+        }
+
+        /**
+         * 在未揭示且未标记的单元格中随机选择一个揭示
+         */
+        protected Move guess(View view) {
+            int rows = view.getRows();
+            int cols = view.getCols();
+            // 先随机试几次，局面接近完成时再顺序查找
+            for (int attempt = 0; attempt < 32; attempt++) {
+                int row = random.nextInt(rows);
+                int col = random.nextInt(cols);
+                if (view.getCell(row, col) == View.HIDDEN) {
+                    return Move.reveal(row, col);
+                }
+            }
+            int start = random.nextInt(rows * cols);
+            for (int k = 0; k < rows * cols; k++) {
+                int cell = (start + k) % (rows * cols);
+                if (view.getCell(cell / cols, cell % cols) == View.HIDDEN) {
+                    return Move.reveal(cell / cols, cell % cols);
+                }
+            }
+            return Move.reveal(0, 0);
+        }
+    }
+
+    /**
+     * 按单个数字推理的机器人
+     */
+    public static class RuleBot extends RandomBot {
+        /**
+         * 上一次推理得到、尚未执行的操作；执行前会检查是否仍然有效
+         */
+        private final ArrayDeque<Move> planned = new ArrayDeque<>();
+
+        public RuleBot(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public String getName() {
+            return "规则";
+        }
+
+        @Override
+        public void newGame(View view) {
+            planned.clear();
+        }
+
+        @Override
+        public Move nextMove(View view) {
+            if (view.getRevealedCount() == 0) {
+                // 第一步揭示中心，打开空白区的机会最大
+                Move first = Move.reveal(view.getRows() / 2, view.getCols() / 2);
+                if (view.getCell(first.getRow(), first.getCol()) == View.HIDDEN) {
+                    return first;
+                }
+            }
+            Move move = nextPlanned(view);
+            if (move == null) {
+                deduce(view);
+                move = nextPlanned(view);
+            }
+            return move != null ? move : guess(view);
+        }
+
+        private Move nextPlanned(View view) {
+            while (!planned.isEmpty()) {
+                Move move = planned.poll();
+                if (view.getCell(move.getRow(), move.getCol()) == View.HIDDEN) {
+                    return move;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 扫描所有数字，把能确定的安全单元格和地雷加入计划
+         */
+        private void deduce(View view) {
+            Topology topology = view.getTopology();
+            int rows = view.getRows();
+            int cols = view.getCols();
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int number = view.getCell(i, j);
+                    if (number <= 0) {
+                        continue;
+                    }
+                    int[] dr = topology.rowOffsets(i, j);
+                    int[] dc = topology.colOffsets(i, j);
+                    int hidden = 0;
+                    int flags = 0;
+                    for (int k = 0; k < dr.length; k++) {
+                        int look = view.getCell(i + dr[k], j + dc[k]);
+                        if (look == View.HIDDEN) {
+                            hidden++;
+                        } else if (look == View.FLAG) {
+                            flags++;
+                        }
+                    }
+                    if (hidden == 0 || (number != flags && number - flags != hidden)) {
+                        continue;
+                    }
+                    boolean safe = number == flags;
+                    for (int k = 0; k < dr.length; k++) {
+                        if (view.getCell(i + dr[k], j + dc[k]) == View.HIDDEN) {
+                            planned.add(safe ? Move.reveal(i + dr[k], j + dc[k]) : Move.flag(i + dr[k], j + dc[k]));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 无法推理时按精确地雷概率猜测的机器人
+     */
+    public static class ProbabilityBot extends RuleBot {
+        private final MineProbability probability = new MineProbability();
+
+        public ProbabilityBot(long seed) {
+            super(seed);
+        }
+
+        @Override
+        public String getName() {
+            return "概率";
+        }
+
+        @Override
+        public void newGame(View view) {
+            super.newGame(view);
+            probability.clear();
+        }
+
+        @Override
+        protected Move guess(View view) {
+            int rows = view.getRows();
+            int cols = view.getCols();
+            boolean[][] revealed = new boolean[rows][cols];
+            int[][] numbers = new int[rows][cols];
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int look = view.getCell(i, j);
+                    revealed[i][j] = look >= 0;
+                    numbers[i][j] = Math.max(look, 0);
+                }
+            }
+            double[][] p = probability.compute(revealed, numbers, view.getMines(), view.getTopology());
+            int bestRow = -1;
+            int bestCol = -1;
+            double best = 2;
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    if (view.getCell(i, j) == View.HIDDEN && p[i][j] < best) {
+                        best = p[i][j];
+                        bestRow = i;
+                        bestCol = j;
+                    }
+                }
+            }
+            return bestRow >= 0 ? Move.reveal(bestRow, bestCol) : super.guess(view);
+        }
+    }
+}
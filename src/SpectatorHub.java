@@ -0,0 +1,428 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 对局直播：把进行中的对局实时转发给任意数量的本地观战者
+ * <p>
+ * 每一步操作（一次左键、右键、撤销、重做或开局）改变的单元格外观在操作结束时编码成一帧，
+ * 帧是不可变的字节数组，放入固定容量的环形缓冲区，所有观战者共享同一份编码：
+ * - 发布方（玩家所在的线程）只做编码和一次写入，代价与本步改变的单元格数成正比，与观战人数无关；
+ *   发布方不加锁、不通知观战者，观战者按自己的节奏 poll
+ * - 每个订阅保存自己读到的帧序号，各自解码；落后超过环形缓冲区容量的订阅不会拖慢玩家，
+ *   而是从镜像快照追上：镜像是发布方随每步维护的当前外观数组，订阅方读取后再重放快照开始之后的帧
+ * 帧中保存的是单元格的最终外观而不是变化量，重放是幂等的，因此读取快照时不需要与发布方同步。
+ * </p>
+ * <p>
+ * 直播作为同步监听者注册到对局的 BoardEvents，每步的一批变化在发布方线程上直接编码成一帧；
+ * 也可以不经过 BoardEvents，直接调用 beginGame、cellChanged 和 endMove。
+ * </p>
+ * <p>
+ * 没有观战者时只维护镜像，不编码、不分配帧，开局时复用尺寸相同的镜像；
+ * 这些操作在环形缓冲区中只留下一个空位，恰好在此期间订阅的观战者读到空位后重新读取快照。
+ * </p>
+ * <p>
+ * 帧格式（整数为 LEB128 变长编码，可能为负的值先做 zigzag）：
+ * - 开局帧：RESET、棋盘类型序号、行数、列数、地雷数
+ * - 操作帧：MOVE、剩余地雷数（zigzag）、对局状态、改变的单元格数，
+ *   然后每个单元格为 与上一个单元格编号之差（zigzag）和 外观代码 一个字节
+ * </p>
+ */
+public final class SpectatorHub implements BoardEvents.Listener {
+    /**
+     * 对局状态：进行中、胜利、失败，与 BoardEvents 相同
+     */
+    public static final int PLAYING = BoardEvents.PLAYING;
+    public static final int WON = BoardEvents.WON;
+    public static final int LOST = BoardEvents.LOST;
+
+    private static final byte RESET = 1;
+    private static final byte MOVE = 2;
+
+    /**
+     * 环形缓冲区的帧数，必须是 2 的幂
+     */
+    private static final int CAPACITY = 256;
+
+    /**
+     * 观战者，由 Subscription.poll 在调用线程上回调
+     */
+    public interface Viewer {
+        /**
+         * 开始新的一局，所有单元格为未揭示
+         */
+        void reset(Topology.Kind kind, int rows, int cols, int mines);
+
+        /**
+         * 单元格外观变化
+         *
+         * @param cell 单元格编号（行 * 列数 + 列）
+         * @param look BoardView 的外观代码
+         */
+        void cellChanged(int cell, byte look);
+
+        /**
+         * 一步操作结束后的剩余地雷数和对局状态
+         */
+        void status(int remainingMines, int state);
+    }
+
+    /**
+     * 已编码的一帧
+     */
+    private static final class Frame {
+        final long sequence;
+        final byte[] data;
+
+        Frame(long sequence, byte[] data) {
+            this.sequence = sequence;
+            this.data = data;
+        }
+    }
+
+    /**
+     * 当前对局的镜像，开局时整体替换（没有订阅时复用尺寸相同的镜像）
+     */
+    private static final class Game {
+        final Topology.Kind kind;
+        final int rows;
+        final int cols;
+        final int mines;
+        final byte[] looks;
+        volatile int remainingMines;
+        volatile int state;
+
+        Game(Topology.Kind kind, int rows, int cols, int mines) {
+            this.kind = kind;
+            this.rows = rows;
+            this.cols = cols;
+            this.mines = mines;
+            this.looks = new byte[rows * cols];
+            this.remainingMines = mines;
+        }
+    }
+
+    private final AtomicReferenceArray<Frame> ring = new AtomicReferenceArray<>(CAPACITY);
+
+    /**
+     * 下一帧的序号；发布方先写镜像和环形缓冲区，再写 published，订阅方先读 published
+     */
+    private volatile long published;
+
+    private volatile Game game;
+
+    /**
+     * 尚未关闭的订阅数
+     */
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    // 以下字段只由发布方访问
+
+    /**
+     * 本步是否已有变化，以及本步是否编码（在本步第一次变化时按是否有订阅决定）
+     */
+    private boolean moveStarted;
+    private boolean encoding;
+
+    /**
+     * 本步尚未发布的单元格变化，已编码
+     */
+    private byte[] pending = new byte[256];
+    private final byte[] header = new byte[1 + 5 + 1 + 5];
+    private int pendingLength;
+    private int pendingCount;
+    private int lastCell;
+
+    /**
+     * 上一帧发布的状态，状态和单元格都没有变化时不发布帧
+     */
+    private int lastRemaining;
+    private int lastState;
+
+    // ------------------------------------------------------------------
+    // 发布方
+    // ------------------------------------------------------------------
+
+    /**
+     * 开始新的一局并发布开局帧，尚未结束的操作被丢弃
+     */
+    public void beginGame(Topology.Kind kind, int rows, int cols, int mines) {
+        pendingLength = 0;
+        pendingCount = 0;
+        lastCell = 0;
+        moveStarted = false;
+        lastRemaining = mines;
+        lastState = PLAYING;
+        Game current = game;
+        if (subscribers.get() == 0) {
+            if (current != null && current.kind == kind && current.rows == rows && current.cols == cols
+                    && current.mines == mines) {
+                Arrays.fill(current.looks, BoardView.HIDDEN);
+                current.remainingMines = mines;
+                current.state = PLAYING;
+            } else {
+                game = new Game(kind, rows, cols, mines);
+            }
+            publishGap();
+            return;
+        }
+        game = new Game(kind, rows, cols, mines);
+
+        byte[] frame = new byte[1 + 4 * 5];
+        int length = 0;
+        frame[length++] = RESET;
+        length = putVarint(frame, length, kind.ordinal());
+        length = putVarint(frame, length, rows);
+        length = putVarint(frame, length, cols);
+        length = putVarint(frame, length, mines);
+        publish(Arrays.copyOf(frame, length));
+    }
+
+    @Override
+    public void gameStarted(Topology.Kind kind, int rows, int cols, int mines) {
+        beginGame(kind, rows, cols, mines);
+    }
+
+    /**
+     * 把一步操作的一批变化编码为一帧发布
+     */
+    @Override
+    public void cellsChanged(BoardEvents.Batch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            cellChanged(batch.cell(i), batch.look(i));
+        }
+        endMove(batch.getRemainingMines(), batch.getState());
+    }
+
+    /**
+     * 记录单元格外观变化，在 endMove 时随本步一起发布
+     *
+     * @param cell 单元格编号（行 * 列数 + 列）
+     * @param look BoardView 的外观代码
+     */
+    public void cellChanged(int cell, byte look) {
+        Game current = game;
+        if (current == null || current.looks[cell] == look) {
+            return;
+        }
+        current.looks[cell] = look;
+        startMove();
+        if (!encoding) {
+            return;
+        }
+        if (pending.length - pendingLength < 6) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        pendingLength = putVarint(pending, pendingLength, zigzag(cell - lastCell));
+        pending[pendingLength++] = look;
+        pendingCount++;
+        lastCell = cell;
+    }
+
+    private void startMove() {
+        if (!moveStarted) {
+            moveStarted = true;
+            encoding = subscribers.get() > 0;
+        }
+    }
+
+    /**
+     * 结束一步操作，把本步的所有变化编码为一帧发布
+     *
+     * @param remainingMines 剩余地雷数
+     * @param state 对局状态：PLAYING、WON 或 LOST
+     */
+    public void endMove(int remainingMines, int state) {
+        Game current = game;
+        if (current == null || (!moveStarted && remainingMines == lastRemaining && state == lastState)) {
+            return;
+        }
+        startMove();
+        current.remainingMines = remainingMines;
+        current.state = state;
+        lastRemaining = remainingMines;
+        lastState = state;
+
+        if (encoding) {
+            int headerLength = 0;
+            header[headerLength++] = MOVE;
+            headerLength = putVarint(header, headerLength, zigzag(remainingMines));
+            header[headerLength++] = (byte) state;
+            headerLength = putVarint(header, headerLength, pendingCount);
+            byte[] frame = Arrays.copyOf(header, headerLength + pendingLength);
+            System.arraycopy(pending, 0, frame, headerLength, pendingLength);
+            publish(frame);
+        } else {
+            publishGap();
+        }
+
+        pendingLength = 0;
+        pendingCount = 0;
+        lastCell = 0;
+        moveStarted = false;
+    }
+
+    /**
+     * 发布一个空位：本步没有编码，读到空位的订阅重新读取快照
+     */
+    private void publishGap() {
+        long sequence = published;
+        ring.set((int) (sequence & (CAPACITY - 1)), null);
+        published = sequence + 1;
+    }
+
+    private void publish(byte[] data) {
+        long sequence = published;
+        ring.set((int) (sequence & (CAPACITY - 1)), new Frame(sequence, data));
+        published = sequence + 1;
+    }
+
+    // ------------------------------------------------------------------
+    // 订阅方
+    // ------------------------------------------------------------------
+
+    /**
+     * 创建一个订阅，第一次 poll 时先收到当前对局的快照
+     */
+    public Subscription subscribe() {
+        subscribers.incrementAndGet();
+        return new Subscription();
+    }
+
+    /**
+     * 一个观战者的读取位置，只能由一个线程使用
+     */
+    public final class Subscription {
+        /**
+         * 下一个要读的帧序号，-1 表示需要先读快照
+         */
+        private long next = -1;
+
+        private boolean closed;
+
+        private Subscription() {
+        }
+
+        /**
+         * 关闭订阅；所有订阅都关闭后发布方不再编码帧
+         */
+        public void close() {
+            if (!closed) {
+                closed = true;
+                subscribers.decrementAndGet();
+            }
+        }
+
+        /**
+         * 把自上次调用以来发布的帧交给观战者，落后太多时先交付快照
+         *
+         * @param viewer 观战者
+         * @return 交付的帧数（快照计为一帧）
+         */
+        public int poll(Viewer viewer) {
+            int delivered = 0;
+            while (true) {
+                long end = published;
+                if (next < 0 || end - next > CAPACITY) {
+                    if (!catchUp(viewer)) {
+                        return delivered;
+                    }
+                    delivered++;
+                    continue;
+                }
+                if (next == end) {
+                    return delivered;
+                }
+                Frame frame = ring.get((int) (next & (CAPACITY - 1)));
+                if (frame == null || frame.sequence != next) {
+                    next = -1; // 空位，或读取期间被覆盖
+                    continue;
+                }
+                decode(frame.data, viewer);
+                next++;
+                delivered++;
+            }
+        }
+
+        /**
+         * 从镜像读取快照，之后从读取前的帧序号开始重放
+         *
+         * @return 还没有开始任何对局时返回 false
+         */
+        private boolean catchUp(Viewer viewer) {
+            long start = published;
+            Game current = game;
+            if (current == null) {
+                return false;
+            }
+            viewer.reset(current.kind, current.rows, current.cols, current.mines);
+            byte[] looks = current.looks;
+            for (int cell = 0; cell < looks.length; cell++) {
+                if (looks[cell] != BoardView.HIDDEN) {
+                    viewer.cellChanged(cell, looks[cell]);
+                }
+            }
+            viewer.status(current.remainingMines, current.state);
+            next = start;
+            return true;
+        }
+    }
+
+    /**
+     * 解码一帧并回调观战者
+     */
+    private static void decode(byte[] data, Viewer viewer) {
+        int[] position = {1};
+        if (data[0] == RESET) {
+            Topology.Kind kind = Topology.Kind.values()[getVarint(data, position)];
+            int rows = getVarint(data, position);
+            int cols = getVarint(data, position);
+            int mines = getVarint(data, position);
+            viewer.reset(kind, rows, cols, mines);
+            return;
+        }
+        int remainingMines = unzigzag(getVarint(data, position));
+        int state = data[position[0]++];
+        int count = getVarint(data, position);
+        int cell = 0;
+        for (int k = 0; k < count; k++) {
+            cell += unzigzag(getVarint(data, position));
+            viewer.cellChanged(cell, data[position[0]++]);
+        }
+        viewer.status(remainingMines, state);
+    }
+
+    // ------------------------------------------------------------------
+    // 变长整数
+    // ------------------------------------------------------------------
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int putVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int getVarint(byte[] buffer, int[] position) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
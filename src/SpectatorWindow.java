@@ -0,0 +1,80 @@
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import javax.swing.*;
+
+/**
+ * 观战窗口，实时显示主窗口中进行的对局
+ * <p>
+ * 窗口持有 SpectatorHub 的一个订阅，用 Swing 定时器按固定频率读取新发布的帧并更新自己的棋盘视图，
+ * 不接收点击。可以同时打开任意多个窗口，玩家一侧的开销不随窗口数增加；
+ * 窗口来不及处理时（例如被拖动或最小化）会从快照追上，而不是让玩家等待。
+ * </p>
+ */
+public class SpectatorWindow extends JFrame implements SpectatorHub.Viewer {
+    /**
+     * 读取新帧的间隔（毫秒）
+     */
+    private static final int POLL_INTERVAL = 30;
+
+    private final SpectatorHub.Subscription subscription;
+    private final Timer timer;
+    private final JLabel statusLabel = new JLabel(" ", SwingConstants.CENTER);
+    private final JScrollPane scrollPane = new JScrollPane();
+
+    private BoardView boardView;
+    private int cols;
+
+    /**
+     * 创建并显示观战窗口
+     *
+     * @param hub 对局直播
+     * @param owner 主窗口，用于定位
+     */
+    public SpectatorWindow(SpectatorHub hub, Component owner) {
+        super("观战");
+        subscription = hub.subscribe();
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        scrollPane.setBorder(BorderFactory.createLoweredBevelBorder());
+        scrollPane.getViewport().setBackground(Color.GRAY);
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        add(statusLabel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+
+        timer = new Timer(POLL_INTERVAL, e -> subscription.poll(this));
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+                subscription.close();
+            }
+        });
+        subscription.poll(this);
+        timer.start();
+        pack();
+        setLocationRelativeTo(owner);
+        setVisible(true);
+    }
+
+    @Override
+    public void reset(Topology.Kind kind, int rows, int cols, int mines) {
+        this.cols = cols;
+        boardView = new BoardView(rows, cols, kind == Topology.Kind.HEX);
+        scrollPane.setViewportView(boardView);
+        setTitle("观战 - " + kind.getLabel() + " " + rows + " × " + cols + " / " + mines);
+        if (isVisible()) {
+            pack();
+        }
+    }
+
+    @Override
+    public void cellChanged(int cell, byte look) {
+        boardView.setCell(cell / cols, cell % cols, look);
+    }
+
+    @Override
+    public void status(int remainingMines, int state) {
+        String text = state == SpectatorHub.WON ? "胜利" : state == SpectatorHub.LOST ? "失败" : "进行中";
+        statusLabel.setText(text + "    剩余地雷: " + remainingMines);
+    }
+}
@@ -0,0 +1,260 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮：一个线程驱动任意数量的定时任务
+ * <p>
+ * 时间轮是 WHEEL_SIZE 个槽组成的环，指针每 TICK 纳秒前进一格，到期时间落在第 t 格的任务挂在第 t % WHEEL_SIZE 个槽上，
+ * 距离超过一圈的任务记录还要转过的圈数。指针每走一格只处理一个槽，安排和取消都是 O(1)，
+ * 因此成千上万局游戏的计时和空闲超时可以共用同一个线程，代价只与本格到期的任务数有关。
+ * </p>
+ * <p>
+ * 任务以 Timeout 的子类表示，链表指针保存在任务对象本身中，安排任务不分配额外的对象；
+ * 每个任务的开销是 Timeout 的几个字段，没有单独的线程或 Swing 定时器。
+ * 到期回调在时间轮线程上执行，应当很快返回，需要操作界面时转交给事件线程；回调中可以重新安排自己。
+ * 精度为一格（TICK），回调不会早于到期时间。
+ * </p>
+ */
+public final class TimerWheel {
+    /**
+     * 每格的时长（纳秒）
+     */
+    private static final long TICK = 20_000_000L;
+
+    /**
+     * 槽数，必须是 2 的幂；一圈约 5 秒
+     */
+    private static final int WHEEL_SIZE = 256;
+
+    private static TimerWheel shared;
+
+    /**
+     * 定时任务，由子类实现到期时的操作；一个任务同时只能被安排一次
+     */
+    public abstract static class Timeout {
+        private Timeout next;
+        private Timeout prev;
+
+        /**
+         * 所在的槽，-1 表示未安排
+         */
+        private int slot = -1;
+
+        /**
+         * 还要转过的圈数
+         */
+        private int rounds;
+
+        /**
+         * 本格到期的任务组成的链表，在时间轮线程上逐个执行
+         */
+        private Timeout nextExpired;
+
+        /**
+         * 到期时在时间轮线程上调用
+         */
+        protected abstract void expired();
+    }
+
+    private final Timeout[] slots = new Timeout[WHEEL_SIZE];
+    private final String name;
+
+    /**
+     * 时间轮的起始时间和指针当前所在的格，由 this 保护
+     */
+    private final long startTime = System.nanoTime();
+    private long tick;
+    private int scheduled;
+    private Thread thread;
+
+    /**
+     * 创建时间轮，线程在第一次安排任务时启动
+     *
+     * @param name 线程名
+     */
+    public TimerWheel(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 所有游戏共用的时间轮
+     */
+    public static synchronized TimerWheel shared() {
+        if (shared == null) {
+            shared = new TimerWheel("TimerWheel");
+        }
+        return shared;
+    }
+
+    /**
+     * 安排任务在 delay 纳秒后到期，已经安排的任务先取消
+     *
+     * @param timeout 任务
+     * @param delay 延迟（纳秒），不大于 0 时在下一格到期
+     */
+    public synchronized void schedule(Timeout timeout, long delay) {
+        if (timeout.slot >= 0) {
+            unlink(timeout);
+        }
+        // 到期所在的格，向上取整保证不早于到期时间；已经过去的格放在当前格，下一次处理
+        long elapsed = System.nanoTime() - startTime + Math.max(0, delay);
+        long target = Math.max(tick, (elapsed + TICK - 1) / TICK);
+        timeout.rounds = (int) Math.min(Integer.MAX_VALUE, (target - tick) / WHEEL_SIZE);
+        int slot = (int) (target & (WHEEL_SIZE - 1));
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = slots[slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        slots[slot] = timeout;
+        scheduled++;
+        if (thread == null) {
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 取消任务；已经到期、正在等待执行的回调仍可能被调用一次
+     */
+    public synchronized void cancel(Timeout timeout) {
+        if (timeout.slot >= 0) {
+            unlink(timeout);
+        }
+    }
+
+    /**
+     * 已安排、尚未到期的任务数
+     */
+    public synchronized int getScheduledCount() {
+        return scheduled;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.next = null;
+        timeout.prev = null;
+        timeout.slot = -1;
+        scheduled--;
+    }
+
+    /**
+     * 时间轮线程：等到当前格结束，取出本格到期的任务，再在锁外逐个执行
+     */
+    private void run() {
+        while (true) {
+            long deadline;
+            synchronized (this) {
+                deadline = startTime + (tick + 1) * TICK;
+            }
+            long wait;
+            while ((wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+
+            Timeout expired = null;
+            synchronized (this) {
+                int slot = (int) (tick & (WHEEL_SIZE - 1));
+                Timeout timeout = slots[slot];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.rounds <= 0) {
+                        unlink(timeout);
+                        timeout.nextExpired = expired;
+                        expired = timeout;
+                    } else {
+                        timeout.rounds--;
+                    }
+                    timeout = next;
+                }
+                tick++;
+            }
+            while (expired != null) {
+                Timeout timeout = expired;
+                expired = timeout.nextExpired;
+                timeout.nextExpired = null;
+                try {
+                    timeout.expired();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // 压力测试
+    // ------------------------------------------------------------------
+
+    /**
+     * 模拟同时进行的大量对局：每局一个 GameClock，带空闲超时，主线程随机触发操作
+     * 报告每局的内存开销、每秒回调数以及时间轮线程的 CPU 占用。
+     * 运行：java TimerWheel [局数 [秒数]]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int sessions = args.length >= 1 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length >= 2 ? Integer.parseInt(args[1]) : 10;
+        TimerWheel wheel = new TimerWheel("TimerWheel-bench");
+        long[] ticks = new long[1];
+        long[] idles = new long[1];
+        GameClock.Listener listener = new GameClock.Listener() {
+            @Override
+            public void secondElapsed(GameClock clock, long elapsedSeconds) {
+                synchronized (ticks) {
+                    ticks[0]++;
+                }
+            }
+
+            @Override
+            public void idle(GameClock clock) {
+                synchronized (idles) {
+                    idles[0]++;
+                }
+                clock.stop();
+            }
+        };
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        GameClock[] clocks = new GameClock[sessions];
+        for (int i = 0; i < sessions; i++) {
+            clocks[i] = new GameClock(wheel, listener, 3_000_000_000L);
+            clocks[i].start();
+        }
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuBefore = threads.getThreadCpuTime(wheel.thread.getId());
+        Random random = new Random(1);
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            // 每 10 毫秒有 1% 的对局有操作，其余的对局逐渐进入空闲
+            for (int k = 0; k < sessions / 100; k++) {
+                GameClock clock = clocks[random.nextInt(sessions)];
+                if (!clock.isRunning()) {
+                    clock.start();
+                }
+                clock.touch();
+            }
+            Thread.sleep(10);
+        }
+        long cpu = threads.getThreadCpuTime(wheel.thread.getId()) - cpuBefore;
+
+        System.out.printf("%d 局，%d 秒：每局 %.0f 字节，每秒回调 %d 次，空闲超时 %d 次，时间轮线程 CPU %.2f%%%n",
+                sessions, seconds, (double) (after - before) / sessions, ticks[0] / seconds, idles[0],
+                cpu / 1e7 / seconds);
+    }
+}
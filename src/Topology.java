@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 棋盘拓扑（邻居关系）
+ * 在生成棋盘时一次性预先计算邻居偏移表，遍历邻居时不需要任何分支或越界检查：
+ * <pre>
+ * int[] dr = topology.rowOffsets(row, col);
+ * int[] dc = topology.colOffsets(row, col);
+ * for (int k = 0; k < dr.length; k++) { 邻居为 (row + dr[k], col + dc[k]) }
+ * </pre>
+ * <p>
+ * 同一行类别、同一列类别中的单元格拥有完全相同的邻居偏移（环面在边缘处的偏移已包含回绕），
+ * 因此只需为每种“行类别 × 列类别”保存一份偏移表，再为每行、每列记录所属类别，
+ * 内存占用与行数加列数成正比，而不是与单元格数成正比，大棋盘同样适用。
+ * 行类别由该行到上下边缘的距离（以及六边形棋盘的行奇偶性）决定，列类别同理。
+ * </p>
+ */
+public final class Topology {
+    /**
+     * 支持的棋盘类型
+     */
+    public enum Kind {
+        /**
+         * 经典方格，8 个相邻单元格
+         */
+        SQUARE("经典", ""),
+
+        /**
+         * 环面，上下、左右边缘相连
+         */
+        TORUS("环面", "torus"),
+
+        /**
+         * 六边形，奇数行向右错开半格，6 个相邻单元格
+         */
+        HEX("六边形", "hex"),
+
+        /**
+         * 马步，相邻单元格为国际象棋中马能走到的 8 个位置
+         */
+        KNIGHT("马步", "knight");
+
+        /**
+         * 菜单中显示的名称
+         */
+        private final String label;
+
+        /**
+         * 英雄榜文件名后缀，经典方格为空
+         */
+        private final String fileSuffix;
+
+        Kind(String label, String fileSuffix) {
+            this.label = label;
+            this.fileSuffix = fileSuffix;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getFileSuffix() {
+            return fileSuffix;
+        }
+    }
+
+    /**
+     * 方格的移动方向 {行偏移, 列偏移}
+     */
+    private static final int[][] SQUARE_MOVES = {
+            {-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}
+    };
+
+    /**
+     * 六边形偶数行的移动方向
+     */
+    private static final int[][] HEX_EVEN_MOVES = {
+            {-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 0}
+    };
+
+    /**
+     * 六边形奇数行的移动方向
+     */
+    private static final int[][] HEX_ODD_MOVES = {
+            {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, 0}, {1, 1}
+    };
+
+    /**
+     * 马步的移动方向
+     */
+    private static final int[][] KNIGHT_MOVES = {
+            {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}
+    };
+
+    /**
+     * 移动方向中行、列偏移的最大绝对值
+     */
+    private static final int REACH = 2;
+
+    /**
+     * 表示偏移越界（该方向没有邻居）
+     */
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private final Kind kind;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * 每行所属的行类别
+     */
+    private final int[] rowClass;
+
+    /**
+     * 每列所属的列类别
+     */
+    private final int[] colClass;
+
+    /**
+     * 列类别的数量
+     */
+    private final int colClasses;
+
+    /**
+     * 按 行类别 * colClasses + 列类别 索引的邻居行偏移、列偏移和一维编号偏移
+     */
+    private final int[][] rowOffsets;
+    private final int[][] colOffsets;
+    private final int[][] cellOffsets;
+
+    /**
+     * 所有单元格中邻居数量的最大值
+     */
+    private final int maxNeighbours;
+
+    private Topology(Kind kind, int rows, int cols) {
+        this.kind = kind;
+        this.rows = rows;
+        this.cols = cols;
+        boolean wrap = kind == Kind.TORUS;
+
+        // 行类别：行奇偶性（仅六边形）加上每个行偏移在该行的实际效果
+        List<int[]> rowKeys = new ArrayList<>();
+        rowClass = classify(rows, wrap, kind == Kind.HEX, rowKeys);
+        List<int[]> colKeys = new ArrayList<>();
+        colClass = classify(cols, wrap, false, colKeys);
+        colClasses = colKeys.size();
+
+        int classes = rowKeys.size() * colClasses;
+        rowOffsets = new int[classes][];
+        colOffsets = new int[classes][];
+        cellOffsets = new int[classes][];
+        int max = 0;
+        for (int rc = 0; rc < rowKeys.size(); rc++) {
+            int[] rowKey = rowKeys.get(rc);
+            int[][] moves = movesFor(kind, rowKey[0] == 1);
+            for (int cc = 0; cc < colClasses; cc++) {
+                int[] colKey = colKeys.get(cc);
+                int[] dr = new int[moves.length];
+                int[] dc = new int[moves.length];
+                int count = 0;
+                for (int[] move : moves) {
+                    int r = rowKey[1 + move[0] + REACH];
+                    int c = colKey[1 + move[1] + REACH];
+                    if (r == NONE || c == NONE || (r == 0 && c == 0)) {
+                        continue;
+                    }
+                    // 小尺寸环面上不同方向可能回绕到同一个单元格，只保留一次
+                    boolean duplicate = false;
+                    for (int k = 0; k < count && !duplicate; k++) {
+                        duplicate = dr[k] == r && dc[k] == c;
+                    }
+                    if (!duplicate) {
+                        dr[count] = r;
+                        dc[count] = c;
+                        count++;
+                    }
+                }
+                int index = rc * colClasses + cc;
+                rowOffsets[index] = Arrays.copyOf(dr, count);
+                colOffsets[index] = Arrays.copyOf(dc, count);
+                cellOffsets[index] = new int[count];
+                for (int k = 0; k < count; k++) {
+                    cellOffsets[index][k] = dr[k] * cols + dc[k];
+                }
+                max = Math.max(max, count);
+            }
+        }
+        maxNeighbours = max;
+    }
+
+    /**
+     * 创建指定类型和尺寸的棋盘拓扑
+     *
+     * @param kind 棋盘类型
+     * @param rows 行数
+     * @param cols 列数
+     * @return 棋盘拓扑
+     */
+    public static Topology of(Kind kind, int rows, int cols) {
+        return new Topology(kind, rows, cols);
+    }
+
+    /**
+     * 把一个维度上的每个位置归类：位置的类别键为 {奇偶性, 偏移 -REACH..REACH 的实际效果}，
+     * 实际效果为回绕后的偏移量，越界时为 NONE。键相同的位置属于同一类别。
+     *
+     * @param size 维度长度
+     * @param wrap 是否回绕
+     * @param parity 是否区分奇偶性
+     * @param keys 输出每个类别的键
+     * @return 每个位置所属的类别
+     */
+    private static int[] classify(int size, boolean wrap, boolean parity, List<int[]> keys) {
+        int[] classes = new int[size];
+        Map<String, Integer> index = new HashMap<>();
+        for (int p = 0; p < size; p++) {
+            int[] key = new int[2 * REACH + 2];
+            key[0] = parity ? p & 1 : 0;
+            for (int d = -REACH; d <= REACH; d++) {
+                int target = p + d;
+                if (wrap) {
+                    key[1 + d + REACH] = Math.floorMod(target, size) - p;
+                } else {
+                    key[1 + d + REACH] = target >= 0 && target < size ? d : NONE;
+                }
+            }
+            String text = Arrays.toString(key);
+            Integer id = index.get(text);
+            if (id == null) {
+                id = keys.size();
+                index.put(text, id);
+                keys.add(key);
+            }
+            classes[p] = id;
+        }
+        return classes;
+    }
+
+    private static int[][] movesFor(Kind kind, boolean oddRow) {
+        switch (kind) {
+            case HEX:
+                return oddRow ? HEX_ODD_MOVES : HEX_EVEN_MOVES;
+            case KNIGHT:
+                return KNIGHT_MOVES;
+            default:
+                return SQUARE_MOVES;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * 所有单元格中邻居数量的最大值
+     */
+    public int getMaxNeighbours() {
+        return maxNeighbours;
+    }
+
+    /**
+     * 获取单元格各邻居的行偏移，返回的数组是共享的，调用方不能修改
+     */
+    public int[] rowOffsets(int row, int col) {
+        return rowOffsets[rowClass[row] * colClasses + colClass[col]];
+    }
+
+    /**
+     * 获取单元格各邻居的列偏移，与 rowOffsets 一一对应
+     */
+    public int[] colOffsets(int row, int col) {
+        return colOffsets[rowClass[row] * colClasses + colClass[col]];
+    }
+
+    /**
+     * 获取单元格各邻居一维编号（行 * 列数 + 列）的偏移，与 rowOffsets 一一对应
+     */
+    public int[] cellOffsets(int row, int col) {
+        return cellOffsets[rowClass[row] * colClasses + colClass[col]];
+    }
+
+    /**
+     * 按邻居表计算每个非地雷单元格周围的地雷数
+     *
+     * @param mines 地雷位置
+     * @param adjacentMines 输出数组，地雷单元格置为 0
+     */
+    public void countAdjacentMines(boolean[][] mines, int[][] adjacentMines) {
+        for (int i = 0; i < rows; i++) {
+            boolean[] row = mines[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j]) {
+                    adjacentMines[i][j] = 0;
+                    continue;
+                }
+                int[] dr = rowOffsets(i, j);
+                int[] dc = colOffsets(i, j);
+                int count = 0;
+                for (int k = 0; k < dr.length; k++) {
+                    if (mines[i + dr[k]][j + dc[k]]) {
+                        count++;
+                    }
+                }
+                adjacentMines[i][j] = count;
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * 机器人比赛
+ * 让多个机器人在同一组由种子确定的棋盘上对局，按 CPU 核数并行，报告每个机器人的胜率、
+ * 每秒操作数和平均思考时间。
+ * <p>
+ * 棋盘按种子分成若干批，工作线程依次领取一批，在本线程内用每个机器人各下一遍这批棋盘。
+ * 每个线程为每个机器人创建自己的实例和裁判，机器人不需要考虑线程安全；
+ * 统计先在线程内累加，最后合并，计时不会互相干扰。
+ * 机器人只能看到裁判提供的可见局面，抛出异常、返回非法操作或超过步数上限都判为失败。
+ * 可以在命令行运行：java Tournament [局数 [行数 列数 地雷数]]
+ * </p>
+ */
+public class Tournament {
+    /**
+     * 每批棋盘的数量
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * 每局的操作数上限为单元格数的倍数，防止机器人反复切换旗帜而不结束
+     */
+    private static final int MOVE_LIMIT_FACTOR = 4;
+
+    /**
+     * 一个参赛机器人，factory 根据种子创建新实例，每个线程各创建一个
+     */
+    public static final class Entry {
+        private final String name;
+        private final LongFunction<Player> factory;
+
+        public Entry(String name, LongFunction<Player> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * 一个机器人的比赛结果
+     */
+    public static final class Result {
+        private final String name;
+        private long games;
+        private long wins;
+        private long errors;
+        private long moves;
+        private long thinkNanos;
+        private long playNanos;
+
+        Result(String name) {
+            this.name = name;
+        }
+
+        void add(Result other) {
+            games += other.games;
+            wins += other.wins;
+            errors += other.errors;
+            moves += other.moves;
+            thinkNanos += other.thinkNanos;
+            playNanos += other.playNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        /**
+         * 因异常、非法操作或超过步数上限而判负的局数
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        /**
+         * 每秒操作数（单线程），包括机器人思考和裁判执行的时间
+         */
+        public double getMovesPerSecond() {
+            return playNanos == 0 ? 0 : moves * 1e9 / playNanos;
+        }
+
+        /**
+         * 平均每步的思考时间（微秒）
+         */
+        public double getAverageThinkMicros() {
+            return moves == 0 ? 0 : thinkNanos / 1e3 / moves;
+        }
+    }
+
+    private Tournament() {
+    }
+
+    /**
+     * 进行比赛
+     *
+     * @param entries 参赛机器人
+     * @param kind 棋盘类型
+     * @param rows 行数
+     * @param cols 列数
+     * @param mines 地雷数
+     * @param firstSeed 第一个棋盘的种子，第 i 局使用 firstSeed + i
+     * @param games 每个机器人的局数
+     * @param threads 并行线程数
+     * @return 与 entries 顺序相同的结果
+     */
+    public static List<Result> run(List<Entry> entries, Topology.Kind kind, int rows, int cols, int mines,
+                                   long firstSeed, long games, int threads) throws InterruptedException {
+        Topology topology = Topology.of(kind, rows, cols);
+        AtomicLong nextBatch = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(pool.submit(() -> {
+                Referee referee = new Referee(topology, mines);
+                Player[] players = new Player[entries.size()];
+                Result[] results = new Result[entries.size()];
+                for (int b = 0; b < players.length; b++) {
+                    players[b] = entries.get(b).factory.apply(firstSeed * 31 + thread);
+                    results[b] = new Result(entries.get(b).name);
+                }
+                long from;
+                while ((from = nextBatch.getAndAdd(BATCH)) < games) {
+                    long to = Math.min(games, from + BATCH);
+                    for (int b = 0; b < players.length; b++) {
+                        for (long g = from; g < to; g++) {
+                            play(players[b], referee, firstSeed + g, results[b]);
+                        }
+                    }
+                }
+                return results;
+            }));
+        }
+        pool.shutdown();
+
+        List<Result> totals = new ArrayList<>();
+        for (Entry entry : entries) {
+            totals.add(new Result(entry.name));
+        }
+        try {
+            for (Future<Result[]> future : futures) {
+                Result[] results = future.get();
+                for (int b = 0; b < results.length; b++) {
+                    totals.get(b).add(results[b]);
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("比赛线程失败", e.getCause());
+        }
+        return totals;
+    }
+
+    /**
+     * 用一个机器人下一局
+     */
+    private static void play(Player player, Referee referee, long seed, Result result) {
+        long start = System.nanoTime();
+        referee.newBoard(seed);
+        Player.View view = referee.getView();
+        int limit = view.getRows() * view.getCols() * MOVE_LIMIT_FACTOR;
+        long think = 0;
+        int moves = 0;
+        boolean error = false;
+        try {
+            player.newGame(view);
+            while (!referee.isOver()) {
+                if (moves == limit) {
+                    error = true;
+                    break;
+                }
+                long before = System.nanoTime();
+                Player.Move move = player.nextMove(view);
+                think += System.nanoTime() - before;
+                moves++;
+                if (move == null) {
+                    error = true;
+                    break;
+                }
+                referee.apply(move);
+            }
+        } catch (RuntimeException e) {
+            error = true;
+        }
+        result.games++;
+        if (!error && referee.isWon()) {
+            result.wins++;
+        }
+        if (error) {
+            result.errors++;
+        }
+        result.moves += moves;
+        result.thinkNanos += think;
+        result.playNanos += System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long games = args.length >= 1 ? Long.parseLong(args[0]) : 100_000;
+        int rows = args.length >= 4 ? Integer.parseInt(args[1]) : 9;
+        int cols = args.length >= 4 ? Integer.parseInt(args[2]) : 9;
+        int mines = args.length >= 4 ? Integer.parseInt(args[3]) : 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry("随机", SampleBots.RandomBot::new));
+        entries.add(new Entry("规则", SampleBots.RuleBot::new));
+        entries.add(new Entry("概率", SampleBots.ProbabilityBot::new));
+
+        long start = System.nanoTime();
+        List<Result> results = run(entries, Topology.Kind.SQUARE, rows, cols, mines, 1, games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d x %d / %d，每个机器人 %d 局，%d 线程，用时 %.1f s（%.0f 局/小时）%n",
+                rows, cols, mines, games, threads, seconds, games * entries.size() / seconds * 3600);
+        System.out.printf("  %-8s %8s %12s %14s %8s%n", "机器人", "胜率", "步/秒(单线程)", "平均思考(µs)", "判负");
+        for (Result result : results) {
+            System.out.printf("  %-8s %7.2f%% %12.0f %14.2f %8d%n", result.getName(), result.getWinRate() * 100,
+                    result.getMovesPerSecond(), result.getAverageThinkMicros(), result.getErrors());
+        }
+    }
+}